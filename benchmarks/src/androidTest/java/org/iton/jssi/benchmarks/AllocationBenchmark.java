@@ -0,0 +1,104 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import android.Manifest;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.rule.GrantPermissionRule;
+
+import org.iton.jssi.wallet.Wallet;
+import org.iton.jssi.wallet.record.WalletRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Objects and bytes allocated by each record operation, see {@link Allocations}.
+ *
+ * @author ITON Solutions
+ */
+@RunWith(AndroidJUnit4.class)
+public class AllocationBenchmark {
+
+    private static final int COUNT = 1000;
+    private static final int TAGS = 4;
+    private static final int VALUE_SIZE = 256;
+    private static final int OPERATIONS = 200;
+
+    @Rule
+    public GrantPermissionRule permissionRule = GrantPermissionRule.grant(Manifest.permission.WRITE_EXTERNAL_STORAGE);
+
+    private Wallet wallet;
+
+    @Before
+    public void setUp() throws Exception {
+        wallet = WalletFixture.wallet(COUNT, TAGS, VALUE_SIZE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        WalletFixture.release(wallet);
+    }
+
+    @Test
+    public void addRecord() throws Exception {
+        measure("addRecord", i -> {
+            WalletRecord record = WalletFixture.record(COUNT + i, TAGS, VALUE_SIZE);
+            wallet.addRecord(record);
+            wallet.deleteRecord(record);
+        });
+    }
+
+    @Test
+    public void findRecord() throws Exception {
+        measure("findRecord", i -> wallet.findRecord(WalletFixture.type(i % COUNT), WalletFixture.name(i % COUNT)));
+    }
+
+    @Test
+    public void findRecords() throws Exception {
+        measure("findRecords", i -> wallet.findRecords(WalletFixture.type(i)));
+    }
+
+    @Test
+    public void updateRecordValue() throws Exception {
+        WalletRecord record = WalletFixture.record(0, TAGS, VALUE_SIZE);
+        measure("updateRecordValue", i -> wallet.updateRecordValue(record, record.getValue()));
+    }
+
+    private void measure(String name, Operation operation) throws Exception {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("records", COUNT);
+        parameters.put("tags", TAGS);
+        parameters.put("value", VALUE_SIZE);
+        Allocations.measure(AllocationBenchmark.class.getSimpleName() + "." + name, parameters, OPERATIONS, operation);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import android.os.Debug;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Objects and bytes allocated by an operation, by all threads, with the allocation counters of
+ * the runtime. Not timed, the counters slow allocation down.
+ *
+ * @author ITON Solutions
+ */
+final class Allocations {
+
+    private static final int WARMUP = 50;
+
+    private Allocations() {
+    }
+
+    /**
+     * Run an operation and report its allocations per run.
+     *
+     * @param name benchmark
+     * @param parameters of the benchmark
+     * @param runs times the operation runs while counting
+     * @param operation
+     */
+    @SuppressWarnings("deprecation")
+    static void measure(String name, Map<String, ?> parameters, int runs, Operation operation) throws Exception {
+        for (int i = 0; i < Math.min(WARMUP, runs); i++) {
+            operation.run(i);
+        }
+
+        Debug.resetGlobalAllocCount();
+        Debug.resetGlobalAllocSize();
+        Debug.startAllocCounting();
+        try {
+            for (int i = 0; i < runs; i++) {
+                operation.run(i);
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+
+        Map<String, Number> metrics = new HashMap<>();
+        metrics.put("allocations", (double) Debug.getGlobalAllocCount() / runs);
+        metrics.put("allocatedBytes", (double) Debug.getGlobalAllocSize() / runs);
+        Report.put(name, parameters, metrics);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import android.Manifest;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.rule.GrantPermissionRule;
+
+import org.iton.jssi.wallet.Wallet;
+import org.iton.jssi.wallet.record.WalletRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * The record operations of a {@link Wallet} by number of records, tags and value size.
+ *
+ * @author ITON Solutions
+ */
+@RunWith(Parameterized.class)
+public class RecordBenchmark {
+
+    // Records looked up in turn, in random order
+    private static final int LOOKUPS = 1024;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Rule
+    public GrantPermissionRule permissionRule = GrantPermissionRule.grant(Manifest.permission.WRITE_EXTERNAL_STORAGE);
+
+    @Parameterized.Parameter(0)
+    public int count;
+
+    @Parameterized.Parameter(1)
+    public int tags;
+
+    @Parameterized.Parameter(2)
+    public int valueSize;
+
+    private Wallet wallet;
+
+    @Parameterized.Parameters(name = "records={0},tags={1},value={2}")
+    public static Collection<Object[]> parameters() {
+        return WalletFixture.parameters();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        wallet = WalletFixture.wallet(count, tags, valueSize);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        WalletFixture.release(wallet);
+    }
+
+    @Test
+    public void addRecord() throws Exception {
+        // Added and deleted again, the wallet keeps its size
+        WalletRecord record = WalletFixture.record(count, tags, valueSize);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            wallet.addRecord(record);
+            state.pauseTiming();
+            wallet.deleteRecord(record);
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void findRecord() throws Exception {
+        String[] types = new String[LOOKUPS];
+        String[] names = new String[LOOKUPS];
+        Random random = new Random(count);
+        for (int i = 0; i < LOOKUPS; i++) {
+            int record = random.nextInt(count);
+            types[i] = WalletFixture.type(record);
+            names[i] = WalletFixture.name(record);
+        }
+
+        int i = 0;
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            wallet.findRecord(types[i], names[i]);
+            i = (i + 1) % LOOKUPS;
+        }
+    }
+
+    @Test
+    public void findMissingRecord() throws Exception {
+        String type = WalletFixture.type(0);
+        String name = WalletFixture.name(count);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            wallet.findRecord(type, name);
+        }
+    }
+
+    /**
+     * One type, a tenth of the records.
+     */
+    @Test
+    public void findRecords() throws Exception {
+        String type = WalletFixture.type(0);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            wallet.findRecords(type);
+        }
+    }
+
+    /**
+     * The same records, decrypted in parallel on the crypto scheduler.
+     */
+    @Test
+    public void findRecordsRx() {
+        String type = WalletFixture.type(0);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            wallet.rx().findRecords(type).blockingSubscribe();
+        }
+    }
+
+    @Test
+    public void findAllRecords() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            wallet.findAllRecords();
+        }
+    }
+
+    @Test
+    public void updateRecordValue() throws Exception {
+        WalletRecord record = WalletFixture.record(0, tags, valueSize);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            wallet.updateRecordValue(record, record.getValue());
+        }
+    }
+
+    @Test
+    public void stats() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            wallet.stats();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * The results androidx.benchmark does not report, throughput and allocations, written to
+ * <code>wallet-benchmarks.json</code> after each one.
+ *
+ * @author ITON Solutions
+ */
+final class Report {
+
+    private static final String TAG = Report.class.getName();
+    private static final String FILE = "wallet-benchmarks.json";
+
+    private static final JSONArray results = new JSONArray();
+
+    private Report() {
+    }
+
+    /**
+     * @param name benchmark
+     * @param parameters of the benchmark
+     * @param metrics measured values
+     */
+    static synchronized void put(String name, Map<String, ?> parameters, Map<String, ? extends Number> metrics) {
+        try {
+            JSONObject result = new JSONObject();
+            result.put("name", name);
+            result.put("params", new JSONObject(parameters));
+            result.put("metrics", new JSONObject(metrics));
+            results.put(result);
+            Log.i(TAG, result.toString());
+            write();
+        } catch (JSONException | IOException e) {
+            Log.e(TAG, String.format("Error: %s", e.getMessage()));
+        }
+    }
+
+    private static void write() throws JSONException, IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = new File(context.getExternalFilesDir(null), FILE);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new JSONObject().put("benchmarks", results).toString(2).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import android.Manifest;
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.GrantPermissionRule;
+
+import org.iton.jssi.wallet.Wallet;
+import org.iton.jssi.wallet.io.IOConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export and import of a wallet by number of records. Besides the time of each, reports the
+ * export file size over the median time, in MB/s. Both include the key derivation of the
+ * export passphrase.
+ *
+ * @author ITON Solutions
+ */
+@RunWith(Parameterized.class)
+public class TransferBenchmark {
+
+    private static final String EXPORT_KEY = "export";
+    private static final int TAGS = 4;
+    private static final int VALUE_SIZE = 256;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Rule
+    public GrantPermissionRule permissionRule = GrantPermissionRule.grant(Manifest.permission.WRITE_EXTERNAL_STORAGE);
+
+    @Parameterized.Parameter
+    public int count;
+
+    private Wallet wallet;
+    private IOConfig config;
+
+    @Parameterized.Parameters(name = "records={0}")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (int count : WalletFixture.counts()) {
+            parameters.add(new Object[]{count});
+        }
+        return parameters;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        wallet = WalletFixture.wallet(count, TAGS, VALUE_SIZE);
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = new File(context.getExternalCacheDir(), WalletFixture.id(count, TAGS, VALUE_SIZE) + ".export");
+        config = new IOConfig(file.getPath(), EXPORT_KEY);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        WalletFixture.release(wallet);
+    }
+
+    @Test
+    public void export() {
+        List<Long> times = new ArrayList<>();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            long started = System.nanoTime();
+            wallet.rx().export(config).blockingSubscribe();
+            times.add(System.nanoTime() - started);
+        }
+        report("export", times);
+    }
+
+    @Test
+    public void restore() throws Exception {
+        if (!new File(config.path).exists()) {
+            wallet.rx().export(config).blockingSubscribe();
+        }
+        String id = WalletFixture.id(count, TAGS, VALUE_SIZE) + "-import";
+
+        List<Long> times = new ArrayList<>();
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            Wallet target = WalletFixture.empty(id);
+            state.resumeTiming();
+
+            long started = System.nanoTime();
+            target.rx().restore(config).blockingSubscribe();
+            times.add(System.nanoTime() - started);
+        }
+        WalletFixture.delete(id);
+        report("restore", times);
+    }
+
+    private void report(String name, List<Long> times) {
+        Collections.sort(times);
+        long median = times.get(times.size() / 2);
+        long bytes = new File(config.path).length();
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("records", count);
+        parameters.put("tags", TAGS);
+        parameters.put("value", VALUE_SIZE);
+
+        Map<String, Number> metrics = new HashMap<>();
+        metrics.put("bytes", bytes);
+        metrics.put("medianMs", TimeUnit.NANOSECONDS.toMillis(median));
+        metrics.put("mbPerSecond", bytes / (1024.0 * 1024.0) / (median / 1e9));
+        Report.put(TransferBenchmark.class.getSimpleName() + "." + name, parameters, metrics);
+    }
+}
@@ -26,17 +26,16 @@
 
 package org.iton.jssi.crypto;
 
-import android.util.Base64;
 import android.util.Log;
 
 import androidx.core.util.Pair;
 import androidx.annotation.Nullable;
 
 import java.util.Map;
-import org.bitcoinj.core.AddressFormatException;
-import org.bitcoinj.core.Base58;
 import org.iton.jssi.crypto.algorithm.CryptoFactory;
 import org.iton.jssi.crypto.algorithm.ICrypto;
+import org.iton.jssi.crypto.codec.Base58;
+import org.iton.jssi.crypto.codec.Base64;
 import org.iton.jssi.did.Did;
 import org.iton.jssi.did.MyDidInfo;
 import org.iton.jssi.did.TheirDid;
@@ -57,6 +56,19 @@ public class CryptoService {
     
     private static final String TAG = CryptoService.class.getName();
     
+    private final KeyPool pool;
+    
+    public CryptoService(){
+        this(null);
+    }
+    
+    /**
+     * @param pool serves random key pairs, may be null
+     */
+    public CryptoService(@Nullable KeyPool pool){
+        this.pool = pool;
+    }
+    
     public Keys createKeys(@Nullable KeyInfo info) throws SodiumException{
         Log.d(TAG, String.format("Create key: %s", info == null ? "no info" : info));
         
@@ -65,11 +77,11 @@ public class CryptoService {
         
         if(info == null){
             crypto = CryptoFactory.getCrypto();
-            keys = crypto.createKeys(null);
+            keys = createKeys(crypto, null);
         } else {
             crypto = CryptoFactory.getCrypto(info.cryptoType);
             byte[] seed = convertSeed(info.seed);
-            keys = crypto.createKeys(seed);
+            keys = createKeys(crypto, seed);
         }
         keys.verkey = String.format("%s:%s", keys.verkey, crypto.getType().getName());
         return keys;
@@ -80,7 +92,7 @@ public class CryptoService {
         
         ICrypto crypto = CryptoFactory.getCrypto(info.cryptoType);
         byte[] seed = convertSeed(info.seed);
-        Keys keys = crypto.createKeys(seed);
+        Keys keys = createKeys(crypto, seed);
         String did = null;
 
         if(info.did != null){
@@ -100,6 +112,21 @@ public class CryptoService {
         return Pair.create(new Did(did, keys.verkey), keys);
     }
     
+    /*
+     * Random keys of the default crypto type are taken from the pool,
+     * seeded keys are always derived on the caller thread.
+     */
+    private Keys createKeys(ICrypto crypto, byte[] seed) throws SodiumException{
+        
+        if(seed != null || pool == null || crypto.getType() != CryptoType.DEFAULT_CRYPTO_TYPE){
+            return crypto.createKeys(seed);
+        }
+        
+        KeyPool.Entry entry = pool.take();
+        entry.clear();
+        return entry.getKeys();
+    }
+    
     public TheirDid createTheirDid(TheirDidInfo info) throws CryptoException{
         Log.d(TAG, String.format("Create their did %s", info));
         
@@ -113,9 +140,9 @@ public class CryptoService {
         
         CryptoBox box = cryptoBox(data, sender, receiver);
         ComboBox result = new ComboBox(
-                Base64.encodeToString(box.cipher, android.util.Base64.NO_PADDING),
+                Base64.encode(box.cipher),
                 sender.verkey,
-                Base64.encodeToString(box.nonce, android.util.Base64.NO_PADDING));
+                Base64.encode(box.nonce));
         
         return result;
     }
@@ -337,7 +364,7 @@ public class CryptoService {
         byte[] bytes;
 
         if (seed.endsWith("=")) {
-            bytes = Base64.decode(seed, Base64.NO_PADDING);
+            bytes = Base64.decode(seed);
         } else if (seed.length() == SodiumConstants.CRYPTO_SIGN_ED25519_SEEDBYTES * 2) {
             bytes = Utils.fromHex(seed);
         } else {
@@ -363,7 +390,7 @@ public class CryptoService {
         return false;
     }
     
-    public CryptoDetached encryptPlaintext(byte[] data, byte[] add, Keys keys) throws SodiumException, AddressFormatException{
+    public CryptoDetached encryptPlaintext(byte[] data, byte[] add, Keys keys) throws SodiumException, IllegalArgumentException{
         
         if(add == null){
             add = new byte[0];
@@ -379,9 +406,9 @@ public class CryptoService {
         byte[] tag = result.get("tag");
         
         CryptoDetached box = new CryptoDetached(
-                Base64.encodeToString(cipher, Base64.NO_PADDING),
-                Base64.encodeToString(nonce, Base64.NO_PADDING),
-                Base64.encodeToString(tag, Base64.NO_PADDING));
+                Base64.encode(cipher),
+                Base64.encode(nonce),
+                Base64.encode(tag));
         
         return box;
     }
@@ -394,15 +421,15 @@ public class CryptoService {
         
         byte[] signkey = Base58.decode(keys.signkey);
 
-        byte[] cipher =  Base64.decode(box.cipher, Base64.NO_PADDING);
-        byte[] nonce = Base64.decode(box.nonce, Base64.NO_PADDING);
-        byte[] tag = Base64.decode(box.tag, Base64.NO_PADDING);
+        byte[] cipher =  Base64.decode(box.cipher);
+        byte[] nonce = Base64.decode(box.nonce);
+        byte[] tag = Base64.decode(box.tag);
 
         byte[] data = Crypto_aead_chacha20poly1305_ietf.decrypt_detached(cipher, tag, add, nonce, signkey);
         return new String(data);
     }
     
-    public void validateKey(String verkey) throws CryptoException, AddressFormatException{
+    public void validateKey(String verkey) throws CryptoException, IllegalArgumentException{
         Log.d(TAG, String.format("Validate did %s", verkey));
         
         String key;
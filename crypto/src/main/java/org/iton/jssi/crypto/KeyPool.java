@@ -0,0 +1,209 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.jssi.crypto;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.iton.jssi.crypto.codec.Base58;
+import org.libsodium.api.Crypto_sign_ed25519;
+import org.libsodium.jni.SodiumException;
+
+/**
+ * Pool of pre-generated Ed25519 key pairs.
+ *
+ * Key pairs are generated and Base58 encoded on a background thread, so
+ * creating keys or a DID is served from the pool instead of calling into
+ * libsodium on the caller thread. Nothing is generated until the first
+ * {@link #take()}; from then on, when the pool drops below the low watermark it
+ * is refilled up to the high watermark. If the pool runs empty the key pair is
+ * generated on the caller thread.
+ *
+ * On {@link #close()} the raw key material of unused entries is zeroed.
+ *
+ * @author ITON Solutions
+ */
+public class KeyPool implements Closeable {
+
+    private static final String TAG = KeyPool.class.getName();
+
+    public static final int DEFAULT_LOW_WATERMARK = 2;
+    public static final int DEFAULT_HIGH_WATERMARK = 8;
+
+    /**
+     * A pooled key pair.
+     */
+    public static class Entry {
+
+        private final byte[] verkey;
+        private final byte[] signkey;
+        private final Keys keys;
+
+        Entry(byte[] verkey, byte[] signkey, Keys keys) {
+            this.verkey = verkey;
+            this.signkey = signkey;
+            this.keys = keys;
+        }
+
+        public byte[] getVerkey() {
+            return verkey;
+        }
+
+        public byte[] getSignkey() {
+            return signkey;
+        }
+
+        /**
+         * @return the Base58 encoded key pair
+         */
+        public Keys getKeys() {
+            return keys;
+        }
+
+        /**
+         * Zeroes the raw key material.
+         */
+        public void clear() {
+            Arrays.fill(verkey, (byte) 0);
+            Arrays.fill(signkey, (byte) 0);
+        }
+    }
+
+    private final int low;
+    private final int high;
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicBoolean refilling = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Key pool");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed;
+
+    public KeyPool() {
+        this(DEFAULT_LOW_WATERMARK, DEFAULT_HIGH_WATERMARK);
+    }
+
+    /**
+     * @param low refill when fewer entries are left
+     * @param high refill up to this number of entries
+     */
+    public KeyPool(int low, int high) {
+        if (low < 0 || high < 1 || low > high) {
+            throw new IllegalArgumentException(String.format("Invalid watermarks low: %d high: %d", low, high));
+        }
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * Takes a key pair from the pool, generating it on the caller thread if the pool is empty.
+     *
+     * @return the key pair, the caller should {@link Entry#clear()} it when done
+     * @throws SodiumException if the key pair has to be generated and generation fails
+     */
+    public Entry take() throws SodiumException {
+        if (closed) {
+            throw new IllegalStateException("Key pool closed");
+        }
+
+        Entry entry = entries.poll();
+        if (entry != null) {
+            size.decrementAndGet();
+        }
+        if (size.get() < low) {
+            refill();
+        }
+        return entry == null ? generate() : entry;
+    }
+
+    /**
+     * @return the number of ready key pairs
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Stops refilling and zeroes the key material of unused entries.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Entry entry;
+        while ((entry = entries.poll()) != null) {
+            entry.clear();
+        }
+        size.set(0);
+    }
+
+    private void refill() {
+        if (closed || !refilling.compareAndSet(false, true)) {
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                while (!closed && size.get() < high) {
+                    entries.add(generate());
+                    size.incrementAndGet();
+                }
+            } catch (SodiumException e) {
+                Log.e(TAG, String.format("Key pool refill failed: %s", e.getMessage()));
+            } finally {
+                refilling.set(false);
+            }
+        });
+    }
+
+    private Entry generate() throws SodiumException {
+        Map<String, byte[]> result = Crypto_sign_ed25519.keypair();
+        byte[] pk = result.get("pk");
+        byte[] sk = result.get("sk");
+
+        Keys keys = new Keys(Base58.encode(pk), Base58.encode(sk));
+        return new Entry(pk, sk, keys);
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.jssi.crypto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.iton.jssi.crypto.algorithm.ICrypto.CryptoType;
+import org.iton.jssi.crypto.codec.Base58;
+import org.iton.jssi.crypto.codec.Base64;
+import org.iton.jssi.wallet.Wallet;
+import org.iton.jssi.wallet.record.WalletRecord;
+import org.libsodium.jni.SodiumException;
+
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SIGN_ED25519_PUBLICKEYBYTES;
+import static org.libsodium.jni.SodiumConstants.CRYPTO_SIGN_ED25519_SECRETKEYBYTES;
+
+/**
+ * Key material of an {@link Keys#TYPE} wallet record in binary form.
+ *
+ * The record value is the Base64 encoding of a type byte followed by the raw
+ * verkey and signkey, instead of a JSON object with Base58 encoded keys, so
+ * reading it needs neither Jackson nor Base58. Records still holding the JSON
+ * form are rewritten on first read by {@link #read(Wallet, String)}.
+ *
+ * @author ITON Solutions
+ */
+public final class KeyRecord {
+
+    public static final byte ED25519 = 1;
+
+    private static final int LENGTH = 1 + CRYPTO_SIGN_ED25519_PUBLICKEYBYTES + CRYPTO_SIGN_ED25519_SECRETKEYBYTES;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final byte type;
+    private final byte[] verkey;
+    private final byte[] signkey;
+
+    public KeyRecord(byte type, byte[] verkey, byte[] signkey) {
+        if (type != ED25519) {
+            throw new IllegalArgumentException(String.format("Unknown key type %d", type));
+        }
+        if (verkey.length != CRYPTO_SIGN_ED25519_PUBLICKEYBYTES || signkey.length != CRYPTO_SIGN_ED25519_SECRETKEYBYTES) {
+            throw new IllegalArgumentException(String.format("Invalid key length verkey: %d signkey: %d", verkey.length, signkey.length));
+        }
+        this.type = type;
+        this.verkey = verkey;
+        this.signkey = signkey;
+    }
+
+    /**
+     * Reads the keys of a verkey from the wallet, migrating a JSON record to the binary form.
+     *
+     * @param wallet the wallet
+     * @param verkey the Base58 verkey, the name of the record
+     * @return the keys
+     * @throws IOException if there is no such record or its value cannot be decoded
+     */
+    public static KeyRecord read(Wallet wallet, String verkey) throws SodiumException, IOException {
+        WalletRecord record = wallet.findRecord(Keys.TYPE, verkey);
+        if (record == null) {
+            throw new IOException(String.format("No keys for verkey %s", verkey));
+        }
+
+        String value = record.getValue();
+        if (isBinary(value)) {
+            return decode(value);
+        }
+
+        KeyRecord keys = fromKeys(MAPPER.readValue(value, Keys.class));
+        wallet.updateRecordValue(record, keys.encode());
+        return keys;
+    }
+
+    /**
+     * @return a new wallet record holding these keys in binary form
+     */
+    public WalletRecord toRecord() {
+        return new WalletRecord(Keys.TYPE, Base58.encode(verkey), encode());
+    }
+
+    /**
+     * Checks for the binary form itself, Base64 of the expected length starting with a known
+     * key type, so JSON with leading whitespace or a byte order mark is not taken for binary.
+     *
+     * @param value the record value
+     * @return true if the value is in binary form, false if it is JSON
+     */
+    public static boolean isBinary(String value) {
+        try {
+            return Base64.decodedLength(value) == LENGTH
+                    && Base64.decode(value.subSequence(0, 4))[0] == ED25519;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param value the record value in binary form
+     * @throws IOException if the value is not a valid binary key record
+     */
+    public static KeyRecord decode(String value) throws IOException {
+        byte[] bytes = new byte[LENGTH];
+        try {
+            if (Base64.decodedLength(value) != LENGTH) {
+                throw new IOException(String.format("Invalid key record length %d", value.length()));
+            }
+            Base64.decode(value, bytes, 0);
+            return new KeyRecord(bytes[0],
+                    Arrays.copyOfRange(bytes, 1, 1 + CRYPTO_SIGN_ED25519_PUBLICKEYBYTES),
+                    Arrays.copyOfRange(bytes, 1 + CRYPTO_SIGN_ED25519_PUBLICKEYBYTES, LENGTH));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid key record", e);
+        } finally {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    /**
+     * @return the record value in binary form
+     */
+    public String encode() {
+        byte[] bytes = new byte[LENGTH];
+        bytes[0] = type;
+        System.arraycopy(verkey, 0, bytes, 1, verkey.length);
+        System.arraycopy(signkey, 0, bytes, 1 + verkey.length, signkey.length);
+        String value = Base64.encode(bytes);
+        Arrays.fill(bytes, (byte) 0);
+        return value;
+    }
+
+    /**
+     * @param keys Base58 encoded keys, the verkey may carry a crypto type suffix
+     * @throws IllegalArgumentException if the keys cannot be decoded
+     */
+    public static KeyRecord fromKeys(Keys keys) {
+        String verkey = keys.verkey;
+        int index = verkey.indexOf(':');
+        if (index >= 0) {
+            if (CryptoType.toType(verkey.substring(index + 1)) != CryptoType.DEFAULT_CRYPTO_TYPE) {
+                throw new IllegalArgumentException(String.format("Unknown crypto type in verkey %s", verkey));
+            }
+            verkey = verkey.substring(0, index);
+        }
+
+        byte[] pk = new byte[CRYPTO_SIGN_ED25519_PUBLICKEYBYTES];
+        byte[] sk = new byte[CRYPTO_SIGN_ED25519_SECRETKEYBYTES];
+        Base58.decode(verkey, pk, 0, pk.length);
+        Base58.decode(keys.signkey, sk, 0, sk.length);
+        return new KeyRecord(ED25519, pk, sk);
+    }
+
+    /**
+     * @return the Base58 encoded keys
+     */
+    public Keys toKeys() {
+        return new Keys(Base58.encode(verkey), Base58.encode(signkey));
+    }
+
+    public byte getType() {
+        return type;
+    }
+
+    public byte[] getVerkey() {
+        return verkey;
+    }
+
+    public byte[] getSignkey() {
+        return signkey;
+    }
+
+    /**
+     * Zeroes the signkey.
+     */
+    public void clear() {
+        Arrays.fill(signkey, (byte) 0);
+    }
+}
@@ -28,9 +28,9 @@ package org.iton.jssi.crypto.algorithm;
 
 import java.util.Map;
 
-import org.bitcoinj.core.Base58;
 import org.iton.jssi.crypto.CryptoException;
 import org.iton.jssi.crypto.Keys;
+import org.iton.jssi.crypto.codec.Base58;
 import org.libsodium.api.Crypto_box;
 import org.libsodium.api.Crypto_randombytes;
 import org.libsodium.api.Crypto_sign_ed25519;
@@ -0,0 +1,270 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.jssi.crypto.codec;
+
+import java.util.Arrays;
+
+/**
+ * Base58 codec with the Bitcoin alphabet, as used for verkeys, signkeys and DIDs.
+ *
+ * The number is converted in 32 bit words, five Base58 digits at a time, instead
+ * of byte by byte. Decoding into a caller supplied buffer of the expected size,
+ * e.g. a 32 byte verkey or a 64 byte signkey, skips the trimming copy.
+ *
+ * Keys and signatures of {@link #KEY_LENGTH} and {@link #SIGNATURE_LENGTH}
+ * bytes are whole words, so they take a fixed size path: the words are read
+ * and written four bytes at a time and the word array is never resized.
+ *
+ * @author ITON Solutions
+ */
+public final class Base58 {
+
+    /**
+     * The length of an Ed25519 verkey.
+     */
+    public static final int KEY_LENGTH = 32;
+
+    /**
+     * The length of an Ed25519 signkey or signature.
+     */
+    public static final int SIGNATURE_LENGTH = 64;
+
+    private static final char[] ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz".toCharArray();
+    private static final char ZERO = ALPHABET[0];
+    private static final byte[] VALUES = new byte[128];
+
+    // 58^5, the largest power of 58 below 2^30
+    private static final long CHUNK = 58L * 58 * 58 * 58 * 58;
+    private static final int CHUNK_DIGITS = 5;
+    private static final long MASK = 0xffffffffL;
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            VALUES[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private Base58() {
+    }
+
+    public static String encode(byte[] data) {
+        return encode(data, 0, data.length);
+    }
+
+    public static String encode(byte[] data, int off, int len) {
+        int zeros = 0;
+        while (zeros < len && data[off + zeros] == 0) {
+            zeros++;
+        }
+
+        if (len == KEY_LENGTH || len == SIGNATURE_LENGTH) {
+            // Whole words, the leading zero words are skipped by the division
+            int[] words = new int[len / 4];
+            for (int i = 0, j = off; i < words.length; i++, j += 4) {
+                words[i] = data[j] << 24 | (data[j + 1] & 0xff) << 16 | (data[j + 2] & 0xff) << 8 | (data[j + 3] & 0xff);
+            }
+            return encode(words, zeros / 4, zeros, len - zeros);
+        }
+
+        // Big endian 32 bit words of the significant bytes
+        int n = len - zeros;
+        int[] words = new int[(n + 3) / 4];
+        for (int i = 0; i < n; i++) {
+            int k = n - 1 - i;
+            words[words.length - 1 - k / 4] |= (data[off + zeros + i] & 0xff) << (8 * (k % 4));
+        }
+        return encode(words, 0, zeros, n);
+    }
+
+    private static String encode(int[] words, int first, int zeros, int n) {
+        // log(256) / log(58) < 1.38, plus a partial chunk
+        char[] out = new char[zeros + n * 138 / 100 + 1 + CHUNK_DIGITS];
+        int pos = out.length;
+        while (first < words.length) {
+            long rem = 0;
+            for (int i = first; i < words.length; i++) {
+                long cur = rem << 32 | (words[i] & MASK);
+                words[i] = (int) (cur / CHUNK);
+                rem = cur % CHUNK;
+            }
+            while (first < words.length && words[first] == 0) {
+                first++;
+            }
+            for (int i = 0; i < CHUNK_DIGITS; i++) {
+                out[--pos] = ALPHABET[(int) (rem % 58)];
+                rem /= 58;
+            }
+        }
+        // The last chunk is zero padded
+        while (pos < out.length && out[pos] == ZERO) {
+            pos++;
+        }
+        for (int i = 0; i < zeros; i++) {
+            out[--pos] = ZERO;
+        }
+        return new String(out, pos, out.length - pos);
+    }
+
+    /**
+     * @param base58 the Base58 string
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the string is not valid Base58 data
+     */
+    public static byte[] decode(CharSequence base58) {
+        int zeros = zeros(base58);
+        int[] words = words(base58, zeros);
+        int skip = leadingZeroBytes(words);
+        byte[] out = new byte[zeros + words.length * 4 - skip];
+        write(words, skip, out, zeros);
+        return out;
+    }
+
+    /**
+     * Decodes into a caller supplied buffer of the expected decoded size.
+     *
+     * @param base58 the Base58 string
+     * @param out the buffer
+     * @param off the start inside out
+     * @param len the expected number of decoded bytes
+     * @throws IllegalArgumentException if the string is not valid Base58 data or does not decode to len bytes
+     */
+    public static void decode(CharSequence base58, byte[] out, int off, int len) {
+        if (len == KEY_LENGTH || len == SIGNATURE_LENGTH) {
+            decodeFixed(base58, out, off, len);
+            return;
+        }
+
+        int zeros = zeros(base58);
+        int[] words = words(base58, zeros);
+        int skip = leadingZeroBytes(words);
+        int length = zeros + words.length * 4 - skip;
+        if (length != len) {
+            throw new IllegalArgumentException(String.format("Invalid Base58 length %d, expected %d", length, len));
+        }
+        Arrays.fill(out, off, off + zeros, (byte) 0);
+        write(words, skip, out, off + zeros);
+    }
+
+    /*
+     * The words have the expected size from the start. A carry out of the top
+     * word means the number is longer than len bytes.
+     */
+    private static void decodeFixed(CharSequence base58, byte[] out, int off, int len) {
+        int zeros = zeros(base58);
+        int[] words = new int[len / 4];
+
+        for (int i = zeros; i < base58.length(); ) {
+            long acc = 0;
+            long mul = 1;
+            for (int end = Math.min(i + CHUNK_DIGITS, base58.length()); i < end; i++) {
+                acc = acc * 58 + value(base58, i);
+                mul *= 58;
+            }
+
+            long carry = acc;
+            for (int j = words.length - 1; j >= 0; j--) {
+                long cur = (words[j] & MASK) * mul + carry;
+                words[j] = (int) cur;
+                carry = cur >>> 32;
+            }
+            if (carry != 0) {
+                throw new IllegalArgumentException(String.format("Invalid Base58 length, expected %d", len));
+            }
+        }
+
+        int length = zeros + len - leadingZeroBytes(words);
+        if (length != len) {
+            throw new IllegalArgumentException(String.format("Invalid Base58 length %d, expected %d", length, len));
+        }
+        for (int i = 0, j = off; i < words.length; i++, j += 4) {
+            int word = words[i];
+            out[j] = (byte) (word >>> 24);
+            out[j + 1] = (byte) (word >>> 16);
+            out[j + 2] = (byte) (word >>> 8);
+            out[j + 3] = (byte) word;
+        }
+    }
+
+    private static int zeros(CharSequence base58) {
+        int zeros = 0;
+        while (zeros < base58.length() && base58.charAt(zeros) == ZERO) {
+            zeros++;
+        }
+        return zeros;
+    }
+
+    private static int[] words(CharSequence base58, int zeros) {
+        int n = base58.length() - zeros;
+        // log(58) / log(256) < 0.733
+        int[] words = new int[(n * 733 / 1000 + 1 + 3) / 4 + 1];
+        int first = words.length;
+
+        for (int i = zeros; i < base58.length(); ) {
+            long acc = 0;
+            long mul = 1;
+            for (int end = Math.min(i + CHUNK_DIGITS, base58.length()); i < end; i++) {
+                acc = acc * 58 + value(base58, i);
+                mul *= 58;
+            }
+
+            long carry = acc;
+            for (int j = words.length - 1; j >= first; j--) {
+                long cur = (words[j] & MASK) * mul + carry;
+                words[j] = (int) cur;
+                carry = cur >>> 32;
+            }
+            if (carry != 0) {
+                words[--first] = (int) carry;
+            }
+        }
+        return words;
+    }
+
+    private static int leadingZeroBytes(int[] words) {
+        int skip = 0;
+        while (skip < words.length * 4 && (words[skip / 4] >>> (24 - 8 * (skip % 4)) & 0xff) == 0) {
+            skip++;
+        }
+        return skip;
+    }
+
+    private static void write(int[] words, int skip, byte[] out, int off) {
+        for (int i = skip, j = off; i < words.length * 4; i++, j++) {
+            out[j] = (byte) (words[i / 4] >>> (24 - 8 * (i % 4)));
+        }
+    }
+
+    private static int value(CharSequence base58, int index) {
+        char c = base58.charAt(index);
+        int v = c < 128 ? VALUES[c] : -1;
+        if (v < 0) {
+            throw new IllegalArgumentException(String.format("Invalid Base58 character '%c' at %d", c, index));
+        }
+        return v;
+    }
+}
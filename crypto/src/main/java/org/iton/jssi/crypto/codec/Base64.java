@@ -0,0 +1,244 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.jssi.crypto.codec;
+
+import java.util.Arrays;
+
+/**
+ * Table driven Base64 codec for the classic and the URL safe alphabet.
+ *
+ * Encoding never pads and never wraps lines. Decoding accepts data with or
+ * without padding, and skips line breaks and other whitespace, as written by
+ * encoders that wrap lines every 76 characters.
+ *
+ * @author ITON Solutions
+ */
+public final class Base64 {
+
+    private static final char[] STANDARD = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final char[] URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+    private static final byte[] STANDARD_VALUES = values(STANDARD);
+    private static final byte[] URL_VALUES = values(URL);
+
+    private Base64() {
+    }
+
+    /**
+     * @return the data encoded with the classic alphabet, without padding
+     */
+    public static String encode(byte[] data) {
+        return encode(data, 0, data.length, STANDARD);
+    }
+
+    /**
+     * @return the data encoded with the URL safe alphabet, without padding
+     */
+    public static String encodeUrl(byte[] data) {
+        return encode(data, 0, data.length, URL);
+    }
+
+    public static String encodeUrl(byte[] data, int off, int len) {
+        return encode(data, off, len, URL);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the string is not valid Base64 data
+     */
+    public static byte[] decode(CharSequence base64) {
+        base64 = strip(base64);
+        byte[] out = new byte[length(base64)];
+        decode(base64, out, 0, STANDARD_VALUES);
+        return out;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the string is not valid Base64Url data
+     */
+    public static byte[] decodeUrl(CharSequence base64) {
+        base64 = strip(base64);
+        byte[] out = new byte[length(base64)];
+        decode(base64, out, 0, URL_VALUES);
+        return out;
+    }
+
+    /**
+     * Decodes Base64 data into a caller supplied buffer.
+     *
+     * @param base64 the Base64 string
+     * @param out the buffer, must hold {@link #decodedLength(CharSequence)} bytes from off
+     * @param off the start inside out
+     * @return the number of decoded bytes
+     * @throws IllegalArgumentException if the string is not valid Base64 data
+     */
+    public static int decode(CharSequence base64, byte[] out, int off) {
+        return decode(strip(base64), out, off, STANDARD_VALUES);
+    }
+
+    /**
+     * Decodes Base64Url data into a caller supplied buffer.
+     *
+     * @param base64 the Base64Url string
+     * @param out the buffer, must hold {@link #decodedLength(CharSequence)} bytes from off
+     * @param off the start inside out
+     * @return the number of decoded bytes
+     * @throws IllegalArgumentException if the string is not valid Base64Url data
+     */
+    public static int decodeUrl(CharSequence base64, byte[] out, int off) {
+        return decode(strip(base64), out, off, URL_VALUES);
+    }
+
+    /**
+     * @return the number of bytes the string decodes to
+     * @throws IllegalArgumentException if the length is not valid for Base64 data
+     */
+    public static int decodedLength(CharSequence base64) {
+        return length(strip(base64));
+    }
+
+    private static int length(CharSequence base64) {
+        int n = unpaddedLength(base64);
+        if ((n & 3) == 1) {
+            throw new IllegalArgumentException(String.format("Invalid Base64 length %d", base64.length()));
+        }
+        return n / 4 * 3 + ((n & 3) == 0 ? 0 : (n & 3) - 1);
+    }
+
+    private static String encode(byte[] data, int off, int len, char[] alphabet) {
+        char[] out = new char[len / 3 * 4 + (len % 3 == 0 ? 0 : len % 3 + 1)];
+        int i = off;
+        int j = 0;
+        for (int end = off + len / 3 * 3; i < end; i += 3) {
+            int bits = (data[i] & 0xff) << 16 | (data[i + 1] & 0xff) << 8 | (data[i + 2] & 0xff);
+            out[j++] = alphabet[bits >>> 18];
+            out[j++] = alphabet[(bits >>> 12) & 0x3f];
+            out[j++] = alphabet[(bits >>> 6) & 0x3f];
+            out[j++] = alphabet[bits & 0x3f];
+        }
+        switch (len % 3) {
+            case 1: {
+                int bits = (data[i] & 0xff) << 16;
+                out[j++] = alphabet[bits >>> 18];
+                out[j] = alphabet[(bits >>> 12) & 0x3f];
+                break;
+            }
+            case 2: {
+                int bits = (data[i] & 0xff) << 16 | (data[i + 1] & 0xff) << 8;
+                out[j++] = alphabet[bits >>> 18];
+                out[j++] = alphabet[(bits >>> 12) & 0x3f];
+                out[j] = alphabet[(bits >>> 6) & 0x3f];
+                break;
+            }
+            default:
+        }
+        return new String(out);
+    }
+
+    private static int decode(CharSequence base64, byte[] out, int off, byte[] values) {
+        int length = length(base64);
+        int n = unpaddedLength(base64);
+        int i = 0;
+        int j = off;
+        for (int end = n & ~3; i < end; i += 4) {
+            int bits = value(base64, i, values) << 18 | value(base64, i + 1, values) << 12
+                    | value(base64, i + 2, values) << 6 | value(base64, i + 3, values);
+            out[j++] = (byte) (bits >>> 16);
+            out[j++] = (byte) (bits >>> 8);
+            out[j++] = (byte) bits;
+        }
+        switch (n & 3) {
+            case 2: {
+                int bits = value(base64, i, values) << 18 | value(base64, i + 1, values) << 12;
+                out[j] = (byte) (bits >>> 16);
+                break;
+            }
+            case 3: {
+                int bits = value(base64, i, values) << 18 | value(base64, i + 1, values) << 12
+                        | value(base64, i + 2, values) << 6;
+                out[j++] = (byte) (bits >>> 16);
+                out[j] = (byte) (bits >>> 8);
+                break;
+            }
+            default:
+        }
+        return length;
+    }
+
+    /*
+     * Most data has no whitespace, so it is returned as is after one scan.
+     */
+    private static CharSequence strip(CharSequence base64) {
+        int n = base64.length();
+        int i = 0;
+        while (i < n && !Character.isWhitespace(base64.charAt(i))) {
+            i++;
+        }
+        if (i == n) {
+            return base64;
+        }
+        StringBuilder stripped = new StringBuilder(n);
+        stripped.append(base64, 0, i);
+        for (; i < n; i++) {
+            char c = base64.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                stripped.append(c);
+            }
+        }
+        return stripped;
+    }
+
+    private static int unpaddedLength(CharSequence base64) {
+        int n = base64.length();
+        if (n > 0 && base64.charAt(n - 1) == '=') {
+            n--;
+            if (n > 0 && base64.charAt(n - 1) == '=') {
+                n--;
+            }
+            if ((n & 3) == 0 || (base64.length() & 3) != 0) {
+                throw new IllegalArgumentException("Invalid Base64 padding");
+            }
+        }
+        return n;
+    }
+
+    private static int value(CharSequence base64, int index, byte[] values) {
+        char c = base64.charAt(index);
+        int v = c < 128 ? values[c] : -1;
+        if (v < 0) {
+            throw new IllegalArgumentException(String.format("Invalid Base64 character '%c' at %d", c, index));
+        }
+        return v;
+    }
+
+    private static byte[] values(char[] alphabet) {
+        byte[] values = new byte[128];
+        Arrays.fill(values, (byte) -1);
+        for (int i = 0; i < alphabet.length; i++) {
+            values[alphabet[i]] = (byte) i;
+        }
+        return values;
+    }
+}
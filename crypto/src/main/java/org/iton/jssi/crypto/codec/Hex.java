@@ -0,0 +1,111 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.jssi.crypto.codec;
+
+import java.util.Arrays;
+
+/**
+ * Table driven hexadecimal codec, lower case on encoding, either case on decoding.
+ *
+ * @author ITON Solutions
+ */
+public final class Hex {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private Hex() {
+    }
+
+    public static String encode(byte[] data) {
+        return encode(data, 0, data.length);
+    }
+
+    public static String encode(byte[] data, int off, int len) {
+        char[] out = new char[len * 2];
+        for (int i = 0, j = 0; i < len; i++) {
+            int b = data[off + i] & 0xff;
+            out[j++] = DIGITS[b >>> 4];
+            out[j++] = DIGITS[b & 0x0f];
+        }
+        return new String(out);
+    }
+
+    /**
+     * @param hex the hexadecimal string
+     * @return the decoded bytes
+     * @throws IllegalArgumentException if the string is not valid hexadecimal data
+     */
+    public static byte[] decode(CharSequence hex) {
+        byte[] out = new byte[decodedLength(hex)];
+        decode(hex, out, 0);
+        return out;
+    }
+
+    /**
+     * Decodes into a caller supplied buffer.
+     *
+     * @param hex the hexadecimal string
+     * @param out the buffer, must hold {@code hex.length() / 2} bytes from off
+     * @param off the start inside out
+     * @return the number of decoded bytes
+     * @throws IllegalArgumentException if the string is not valid hexadecimal data
+     */
+    public static int decode(CharSequence hex, byte[] out, int off) {
+        int len = decodedLength(hex);
+        for (int i = 0, j = 0; i < len; i++, j += 2) {
+            out[off + i] = (byte) ((value(hex.charAt(j)) << 4) | value(hex.charAt(j + 1)));
+        }
+        return len;
+    }
+
+    public static int decodedLength(CharSequence hex) {
+        if ((hex.length() & 1) != 0) {
+            throw new IllegalArgumentException(String.format("Invalid hex length %d", hex.length()));
+        }
+        return hex.length() / 2;
+    }
+
+    private static int value(char c) {
+        int v = c < 128 ? VALUES[c] : -1;
+        if (v < 0) {
+            throw new IllegalArgumentException(String.format("Invalid hex character '%c'", c));
+        }
+        return v;
+    }
+}
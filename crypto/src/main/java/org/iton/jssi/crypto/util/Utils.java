@@ -25,7 +25,8 @@
  */
 package org.iton.jssi.crypto.util;
 
-import org.bitcoinj.core.Base58;
+import org.iton.jssi.crypto.codec.Base58;
+import org.iton.jssi.crypto.codec.Hex;
 
 /**
  *
@@ -34,13 +35,7 @@ import org.bitcoinj.core.Base58;
 public class Utils {
 
     public static byte[] fromHex(String data) {
-        byte[] result = new byte[data.length() / 2];
-
-        for (int i = 0; i < result.length; i++) {
-            int index = i * 2;
-            result[i] = Integer.valueOf(data.substring(index, index + 2), 0x10).byteValue();
-        }
-        return result;
+        return Hex.decode(data);
     }
 
     public static String buildFullVerkey(String dest, String verkey) {
@@ -97,10 +92,6 @@ public class Utils {
     }
 
     public static String toHex(byte[] bytes) {
-        StringBuilder builder = new StringBuilder();
-        for (byte b : bytes) {
-            builder.append(String.format("%02x", b));
-        }
-        return builder.toString();
+        return Hex.encode(bytes);
     }
 }
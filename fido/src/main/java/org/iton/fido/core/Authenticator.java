@@ -122,7 +122,7 @@ public class Authenticator {
         AuthenticatorBuilder attestationStatement(@NonNull byte[] privateKey, byte[] clientData) {
             this.attestationStatement = PackedAttestationStatement.builder()
                     .privateKey(privateKey)
-                    .authenticatorData(authenticatorData.getBytes())
+                    .authenticatorData(authenticatorData)
                     .clientData(clientData)
                     .build();
             return this;
@@ -0,0 +1,276 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.fido.core;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.iton.fido.Fido;
+import org.iton.fido.model.AuthenticatorData;
+import org.iton.fido.model.ClientData;
+import org.iton.fido.util.ByteArray;
+import org.iton.fido.wss.WSSessionManager;
+import org.iton.jssi.crypto.KeyRecord;
+import org.iton.jssi.did.Did;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * Starts the work of a ceremony that does not depend on the server challenge as soon as the QR
+ * code is decoded: opening the websocket to the action origin, reading the DID and decrypting its
+ * keys from the wallet, writing the client data template and hashing the expected RP ID. Once the
+ * options arrive only hashing and signing remain.
+ * <p>
+ * The stager also records when each {@link Phase} of the ceremony is reached, see {@link #report()}.
+ * One stager serves one ceremony; {@link #close()} clears its keys if the ceremony ends without
+ * signing.
+ *
+ * @author ITON Solutions
+ */
+public class CeremonyStager {
+
+    private static final String TAG = CeremonyStager.class.getName();
+
+    public enum Phase {
+        SCANNED,
+        CONNECTED,
+        DID_LOADED,
+        KEYS_LOADED,
+        OPTIONS_RECEIVED,
+        SIGNED,
+        SENT,
+        FINISHED
+    }
+
+    /**
+     * Reads the keys of a staged ceremony, off the main thread. Marks {@link Phase#DID_LOADED}
+     * on the stager when it has read the DID.
+     */
+    public interface KeySource {
+        KeyRecord read(CeremonyStager stager) throws Exception;
+    }
+
+    private final String origin;
+    private final String type;
+    private final Single<KeyRecord> keys;
+    // Guarded by this, 0 until the phase is reached
+    private final long[] times = new long[Phase.values().length];
+    private volatile ClientData.Template template;
+    // Guarded by this
+    private boolean closed;
+
+    /**
+     * Stage a ceremony and start its independent steps in the background.
+     *
+     * @param app
+     * @param action websocket URL the start message is sent to
+     * @param type {@link ClientData#TYPE_CREATE} or {@link ClientData#TYPE_GET}
+     * @return
+     */
+    @NonNull
+    public static CeremonyStager stage(@NonNull Fido app, @NonNull String action, @NonNull String type) {
+        return stage(action, type, stager -> {
+            Did did = app.getService().getStoreService().getDid();
+            stager.mark(Phase.DID_LOADED);
+            return KeyRecord.read(app.getService().getWalletService().getWallet(), did.verkey);
+        });
+    }
+
+    /**
+     * Stage a ceremony with keys that are not read from the wallet of the app.
+     *
+     * @param action websocket URL the start message is sent to
+     * @param type {@link ClientData#TYPE_CREATE} or {@link ClientData#TYPE_GET}
+     * @param source
+     * @return
+     */
+    @NonNull
+    public static CeremonyStager stage(@NonNull String action, @NonNull String type, @NonNull KeySource source) {
+        CeremonyStager stager = new CeremonyStager(action, type, source);
+        stager.start(action);
+        return stager;
+    }
+
+    private CeremonyStager(String action, String type, KeySource source) {
+        mark(Phase.SCANNED);
+        this.origin = action.substring(0, action.lastIndexOf("/"));
+        this.type = type;
+        this.keys = Single.fromCallable(() -> {
+            KeyRecord record = source.read(this);
+            mark(Phase.KEYS_LOADED);
+            return record;
+        }).subscribeOn(Schedulers.io()).cache();
+    }
+
+    private void start(String action) {
+        // DNS, TCP, TLS and the websocket upgrade while the user looks at the phone
+        WSSessionManager.getInstance().session(action).binary().subscribe(
+                binary -> mark(Phase.CONNECTED),
+                e -> Log.e(TAG, String.format("Error: %s", e.getMessage())));
+
+        keys.subscribe(
+                record -> Log.d(TAG, "Keys staged"),
+                e -> Log.e(TAG, String.format("Error: %s", e.getMessage())));
+
+        Schedulers.computation().scheduleDirect(() -> {
+            try {
+                template = ClientData.template(origin, type);
+                // The RP ID is usually the host of the origin
+                String host = new URI(origin).getHost();
+                if (host != null) {
+                    AuthenticatorData.prepare(host.getBytes());
+                }
+            } catch (IOException | URISyntaxException e) {
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * The keys of the stored DID, read once. The caller clears them after signing.
+     *
+     * @return
+     */
+    @NonNull
+    public synchronized Single<KeyRecord> keys() {
+        return closed ? Single.error(new IOException("Ceremony closed")) : keys;
+    }
+
+    /**
+     * Clear the staged keys, now or as soon as they are read. Call when the ceremony fails or
+     * its activity goes away; after signing the keys are cleared already.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        keys.subscribe(KeyRecord::clear, e -> Log.d(TAG, "No keys to clear"));
+    }
+
+    /**
+     * The client data JSON for the challenge, from the staged template if it is ready and was
+     * written for this origin.
+     *
+     * @param challenge
+     * @param origin
+     * @return
+     * @throws IOException
+     */
+    @NonNull
+    public String clientData(@NonNull ByteArray challenge, @NonNull String origin) throws IOException {
+        ClientData.Template current = template;
+        if (current != null && current.matches(origin, type)) {
+            return current.write(challenge);
+        }
+        return ClientData.write(challenge, origin, type);
+    }
+
+    /**
+     * Record the time a phase was first reached.
+     *
+     * @param phase
+     */
+    public synchronized void mark(@NonNull Phase phase) {
+        if (times[phase.ordinal()] == 0) {
+            times[phase.ordinal()] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Milliseconds from the scan to a phase.
+     *
+     * @param phase
+     * @return the elapsed time or -1 if the phase was not reached
+     */
+    public synchronized long elapsed(@NonNull Phase phase) {
+        long time = times[phase.ordinal()];
+        return time == 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(time - times[Phase.SCANNED.ordinal()]);
+    }
+
+    /**
+     * Nanoseconds from the scan to a phase.
+     *
+     * @param phase
+     * @return the elapsed time or -1 if the phase was not reached
+     */
+    public synchronized long elapsedNanos(@NonNull Phase phase) {
+        long time = times[phase.ordinal()];
+        return time == 0 ? -1 : time - times[Phase.SCANNED.ordinal()];
+    }
+
+    /**
+     * Log the time from the scan to each phase reached.
+     */
+    public void report() {
+        Log.d(TAG, toString());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("Ceremony phases:");
+        for (Phase phase : Phase.values()) {
+            long elapsed = elapsed(phase);
+            if (elapsed >= 0) {
+                result.append(String.format(" %s +%d ms", phase, elapsed));
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Mark a phase of an optional stager.
+     *
+     * @param stager
+     * @param phase
+     */
+    public static void mark(@Nullable CeremonyStager stager, @NonNull Phase phase) {
+        if (stager != null) {
+            stager.mark(phase);
+        }
+    }
+
+    /**
+     * Close an optional stager.
+     *
+     * @param stager
+     */
+    public static void close(@Nullable CeremonyStager stager) {
+        if (stager != null) {
+            stager.close();
+        }
+    }
+}
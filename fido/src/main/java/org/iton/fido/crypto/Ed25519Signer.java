@@ -0,0 +1,214 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.fido.crypto;
+
+import org.iton.fido.crypto.spec.EdDSANamedCurveTable;
+import org.iton.fido.crypto.spec.EdDSAParameterSpec;
+import org.iton.fido.crypto.spec.EdDSAPrivateKeySpec;
+
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SignatureException;
+import java.util.Arrays;
+
+/**
+ * Thread-safe one-shot Ed25519 signing and verification.
+ * <p>
+ * {@link EdDSAEngine} is a stateful {@link java.security.Signature} holding its
+ * own SHA-512 digest. This facade keeps one engine per thread, so callers
+ * neither allocate an engine per operation nor contend on a shared one, and
+ * always uses the one-shot paths, so the message is never copied.
+ * <p>
+ * Private keys given as seeds are expanded once per thread and reused while
+ * the same seed is signed with, the expanded secret scalar and prefix are
+ * kept in the {@link EdDSAPrivateKey}. The expanded key stays with the thread
+ * until {@link #clear()} wipes it. Public keys are decoded through
+ * {@link EdDSAPublicKeyCache}.
+ *
+ * @author ITON Solutions
+ */
+public final class Ed25519Signer {
+
+    private static final EdDSAParameterSpec SPEC = EdDSANamedCurveTable.ED_25519_CURVE_SPEC;
+
+    private static final ThreadLocal<Slot> SLOTS = new ThreadLocal<Slot>() {
+        @Override
+        protected Slot initialValue() {
+            return new Slot();
+        }
+    };
+
+    private Ed25519Signer() {
+    }
+
+    /**
+     * Signs a message.
+     *
+     * @param sk the private key
+     * @param msg the message
+     * @return the 64 byte signature
+     * @throws SignatureException if the key cannot be used for Ed25519
+     */
+    public static byte[] sign(EdDSAPrivateKey sk, byte[] msg) throws SignatureException {
+        return sign(sk, msg, 0, msg.length);
+    }
+
+    /**
+     * Signs a part of a message.
+     *
+     * @param sk the private key
+     * @param msg byte array containing the message
+     * @param off the start of the message inside msg
+     * @param len the length of the message
+     * @return the 64 byte signature
+     * @throws SignatureException if the key cannot be used for Ed25519
+     */
+    public static byte[] sign(EdDSAPrivateKey sk, byte[] msg, int off, int len) throws SignatureException {
+        EdDSAEngine engine = SLOTS.get().engine;
+        try {
+            engine.initSign(sk);
+        } catch (InvalidKeyException e) {
+            throw new SignatureException(e);
+        }
+        return engine.signOneShot(msg, off, len);
+    }
+
+    /**
+     * Signs a message with a private key given by its 32 byte seed.
+     * The expanded key is kept for this thread until {@link #clear()}.
+     *
+     * @param seed the private key seed
+     * @param msg the message
+     * @return the 64 byte signature
+     * @throws SignatureException if the seed length is wrong
+     */
+    public static byte[] sign(byte[] seed, byte[] msg) throws SignatureException {
+        return sign(SLOTS.get().privateKey(seed), msg, 0, msg.length);
+    }
+
+    /**
+     * Wipes the private key this thread expanded from a seed. Call it once
+     * the thread has no more to sign with that seed.
+     */
+    public static void clear() {
+        Slot slot = SLOTS.get();
+        slot.clear();
+        SLOTS.remove();
+    }
+
+    /**
+     * Verifies a signature.
+     *
+     * @param pk the public key
+     * @param msg the message
+     * @param sig the signature
+     * @return true if the signature is valid, false otherwise
+     * @throws SignatureException if the key cannot be used for Ed25519 or the signature length is wrong
+     */
+    public static boolean verify(EdDSAPublicKey pk, byte[] msg, byte[] sig) throws SignatureException {
+        return verify(pk, msg, 0, msg.length, sig);
+    }
+
+    /**
+     * Verifies a signature of a part of a message.
+     *
+     * @param pk the public key
+     * @param msg byte array containing the message
+     * @param off the start of the message inside msg
+     * @param len the length of the message
+     * @param sig the signature
+     * @return true if the signature is valid, false otherwise
+     * @throws SignatureException if the key cannot be used for Ed25519 or the signature length is wrong
+     */
+    public static boolean verify(EdDSAPublicKey pk, byte[] msg, int off, int len, byte[] sig) throws SignatureException {
+        EdDSAEngine engine = SLOTS.get().engine;
+        try {
+            engine.initVerify(pk);
+        } catch (InvalidKeyException e) {
+            throw new SignatureException(e);
+        }
+        return engine.verifyOneShot(msg, off, len, sig, 0, sig.length);
+    }
+
+    /**
+     * Verifies a signature with a public key given by its 32 byte encoding.
+     *
+     * @param pk the encoded public key
+     * @param msg the message
+     * @param sig the signature
+     * @return true if the signature is valid, false otherwise
+     * @throws SignatureException if the public key is invalid or the signature length is wrong
+     */
+    public static boolean verify(byte[] pk, byte[] msg, byte[] sig) throws SignatureException {
+        EdDSAPublicKey key;
+        try {
+            key = EdDSAPublicKeyCache.getInstance().get(pk, SPEC);
+        } catch (IllegalArgumentException e) {
+            throw new SignatureException(e);
+        }
+        return verify(key, msg, 0, msg.length, sig);
+    }
+
+    /**
+     * Per-thread engine and the last expanded private key.
+     */
+    private static final class Slot {
+        final EdDSAEngine engine;
+        byte[] seed;
+        EdDSAPrivateKey privateKey;
+
+        Slot() {
+            try {
+                engine = new EdDSAEngine(MessageDigest.getInstance(SPEC.getHashAlgorithm()));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        EdDSAPrivateKey privateKey(byte[] seed) throws SignatureException {
+            if (this.seed == null || !MessageDigest.isEqual(this.seed, seed)) {
+                try {
+                    privateKey = new EdDSAPrivateKey(new EdDSAPrivateKeySpec(seed.clone(), SPEC));
+                } catch (IllegalArgumentException e) {
+                    throw new SignatureException(e);
+                }
+                this.seed = privateKey.getSeed();
+            }
+            return privateKey;
+        }
+
+        void clear() {
+            if (privateKey != null) {
+                Arrays.fill(privateKey.getSeed(), (byte) 0);
+                Arrays.fill(privateKey.getH(), (byte) 0);
+                Arrays.fill(privateKey.geta(), (byte) 0);
+            }
+            privateKey = null;
+            seed = null;
+        }
+    }
+}
@@ -159,7 +159,8 @@ public final class EdDSAEngine extends Signature {
     protected void engineInitVerify(PublicKey publicKey) throws InvalidKeyException {
         reset();
         if (publicKey instanceof EdDSAPublicKey) {
-            key = (EdDSAPublicKey) publicKey;
+            // Verify against the cached instance, it keeps the tables of -A
+            key = EdDSAPublicKeyCache.getInstance().get((EdDSAPublicKey) publicKey);
 
             if (digest == null) {
                 // Instantiate the digest from the key parameters
@@ -175,7 +176,7 @@ public final class EdDSAEngine extends Signature {
             // key is valid but needs to be instanced as an EdDSAPublicKey before it can be used.
             EdDSAPublicKey parsedPublicKey;
             try {
-                parsedPublicKey = new EdDSAPublicKey(new X509EncodedKeySpec(publicKey.getEncoded()));
+                parsedPublicKey = EdDSAPublicKeyCache.getInstance().get(new X509EncodedKeySpec(publicKey.getEncoded()));
             } catch (InvalidKeySpecException ex) {
                 throw new InvalidKeyException("cannot handle X.509 EdDSA public key: " + publicKey.getAlgorithm());
             }
@@ -71,6 +71,19 @@ public class EdDSAPrivateKey implements EdDSAKey, PrivateKey {
         this.edDsaSpec = spec.getParams();
     }
 
+    /**
+     * @param spec the private key spec
+     * @param Abyte the encoding of spec.getA(), if already known
+     */
+    EdDSAPrivateKey(EdDSAPrivateKeySpec spec, byte[] Abyte) {
+        this.seed = spec.getSeed();
+        this.h = spec.getH();
+        this.a = spec.geta();
+        this.A = spec.getA();
+        this.Abyte = Abyte;
+        this.edDsaSpec = spec.getParams();
+    }
+
     public EdDSAPrivateKey(PKCS8EncodedKeySpec spec) throws InvalidKeySpecException {
         this(new EdDSAPrivateKeySpec(decode(spec.getEncoded()), EdDSANamedCurveTable.ED_25519_CURVE_SPEC));
     }
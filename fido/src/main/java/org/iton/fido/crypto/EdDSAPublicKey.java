@@ -66,6 +66,16 @@ public class EdDSAPublicKey implements EdDSAKey, PublicKey {
         this.edDsaSpec = spec.getParams();
     }
 
+    /**
+     * @param spec the public key spec
+     * @param Abyte the encoding of spec.getA(), if already known
+     */
+    EdDSAPublicKey(EdDSAPublicKeySpec spec, byte[] Abyte) {
+        this.A = spec.getA();
+        this.Abyte = Abyte;
+        this.edDsaSpec = spec.getParams();
+    }
+
     public EdDSAPublicKey(X509EncodedKeySpec spec) throws InvalidKeySpecException {
         this(new EdDSAPublicKeySpec(decode(spec.getEncoded()), EdDSANamedCurveTable.ED_25519_CURVE_SPEC));
     }
@@ -165,7 +175,7 @@ public class EdDSAPublicKey implements EdDSAKey, PublicKey {
      *
      * @return 32 bytes for Ed25519, throws for other curves
      */
-    private static byte[] decode(byte[] d) throws InvalidKeySpecException {
+    static byte[] decode(byte[] d) throws InvalidKeySpecException {
         try {
             //
             // Setup and OID check
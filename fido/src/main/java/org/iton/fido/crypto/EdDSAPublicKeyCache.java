@@ -0,0 +1,187 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.fido.crypto;
+
+import org.iton.fido.crypto.spec.EdDSANamedCurveTable;
+import org.iton.fido.crypto.spec.EdDSAParameterSpec;
+import org.iton.fido.crypto.spec.EdDSAPublicKeySpec;
+
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Bounded cache of decoded Ed25519 public keys.
+ * <p>
+ * Decoding a public key decompresses the point $A$ (a square root and an
+ * inversion), and verification needs $-A$ together with its table of odd
+ * multiples. A cached key keeps all of them, so verifying repeatedly against
+ * the same key skips the decompression and the table building.
+ * <p>
+ * Keys of other curves are not cached. When the cache is full the oldest
+ * entry is evicted.
+ *
+ * @author ITON Solutions
+ */
+public final class EdDSAPublicKeyCache {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final EdDSAPublicKeyCache INSTANCE = new EdDSAPublicKeyCache(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final ConcurrentHashMap<Key, EdDSAPublicKey> keys = new ConcurrentHashMap<>();
+    private final Queue<Key> order = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param capacity the maximal number of cached keys
+     */
+    public EdDSAPublicKeyCache(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the process wide cache
+     */
+    public static EdDSAPublicKeyCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the public key for an encoded point, decoding it on a miss.
+     *
+     * @param pk the encoded point
+     * @param spec the parameter specification for this key
+     * @return the public key
+     * @throws IllegalArgumentException if the key length is wrong or the point is invalid
+     */
+    public EdDSAPublicKey get(byte[] pk, EdDSAParameterSpec spec) {
+        if (!isCacheable(spec))
+            return new EdDSAPublicKey(new EdDSAPublicKeySpec(pk, spec));
+
+        Key key = new Key(pk);
+        EdDSAPublicKey cached = keys.get(key);
+        if (cached == null) {
+            cached = put(key, new EdDSAPublicKey(new EdDSAPublicKeySpec(key.bytes, spec)));
+        }
+        return cached;
+    }
+
+    /**
+     * Gets the public key for an X.509 encoded key, decoding it on a miss.
+     *
+     * @param spec the X.509 encoded key
+     * @return the public key
+     * @throws InvalidKeySpecException if the key spec or the point is invalid
+     */
+    public EdDSAPublicKey get(X509EncodedKeySpec spec) throws InvalidKeySpecException {
+        try {
+            return get(EdDSAPublicKey.decode(spec.getEncoded()), EdDSANamedCurveTable.ED_25519_CURVE_SPEC);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidKeySpecException(e);
+        }
+    }
+
+    /**
+     * Gets the cached instance of an already decoded public key, caching the
+     * given one on a miss, so its tables are kept for later verifications.
+     *
+     * @param publicKey the public key
+     * @return the cached public key with the same encoding and parameters
+     */
+    public EdDSAPublicKey get(EdDSAPublicKey publicKey) {
+        if (!isCacheable(publicKey.getParams()))
+            return publicKey;
+
+        Key key = new Key(publicKey.getAbyte());
+        EdDSAPublicKey cached = keys.get(key);
+        if (cached == null) {
+            cached = put(key, publicKey);
+        }
+        return cached;
+    }
+
+    /**
+     * @return the number of cached keys
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Removes all cached keys.
+     */
+    public void clear() {
+        keys.clear();
+        order.clear();
+    }
+
+    private EdDSAPublicKey put(Key key, EdDSAPublicKey publicKey) {
+        // Negate once, the table of -A is built by the first verification
+        publicKey.getNegativeA();
+        EdDSAPublicKey previous = keys.putIfAbsent(key, publicKey);
+        if (previous != null)
+            return previous;
+
+        order.add(key);
+        while (keys.size() > capacity) {
+            Key eldest = order.poll();
+            if (eldest == null)
+                break;
+            keys.remove(eldest);
+        }
+        return publicKey;
+    }
+
+    private static boolean isCacheable(EdDSAParameterSpec spec) {
+        return EdDSANamedCurveTable.ED_25519_CURVE_SPEC.equals(spec);
+    }
+
+    private static final class Key {
+        private final byte[] bytes;
+        private final int hash;
+
+        Key(byte[] bytes) {
+            this.bytes = bytes.clone();
+            this.hash = Arrays.hashCode(this.bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(bytes, ((Key) o).bytes);
+        }
+    }
+}
@@ -61,7 +61,7 @@ public final class KeyFactory extends KeyFactorySpi {
             return new EdDSAPublicKey((EdDSAPublicKeySpec) keySpec);
         }
         if (keySpec instanceof X509EncodedKeySpec) {
-            return new EdDSAPublicKey((X509EncodedKeySpec) keySpec);
+            return EdDSAPublicKeyCache.getInstance().get((X509EncodedKeySpec) keySpec);
         }
         throw new InvalidKeySpecException("key spec not recognised: " + keySpec.getClass());
     }
@@ -25,6 +25,7 @@
  */
 package org.iton.fido.crypto;
 
+import org.iton.fido.crypto.math.GroupElement;
 import org.iton.fido.crypto.spec.EdDSAGenParameterSpec;
 import org.iton.fido.crypto.spec.EdDSANamedCurveSpec;
 import org.iton.fido.crypto.spec.EdDSANamedCurveTable;
@@ -84,13 +85,51 @@ public final class KeyPairGenerator extends KeyPairGeneratorSpi {
         if (!initialized)
             initialize(DEFAULT_KEYSIZE, new SecureRandom());
 
+        EdDSAPrivateKeySpec privKey = generatePrivateKeySpec();
+        // Encode A once for both keys
+        return keyPair(privKey, privKey.getA().toByteArray());
+    }
+
+    /**
+     * Generates several key pairs at once.
+     * <p>
+     * The public keys are encoded together with a single field inversion, see
+     * {@link GroupElement#encodeAll(GroupElement[])}, which makes bulk key
+     * creation cheaper than calling {@link #generateKeyPair()} repeatedly.
+     *
+     * @param count the number of key pairs
+     * @return the key pairs
+     */
+    public KeyPair[] generateKeyPairs(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("count must not be negative");
+        if (!initialized)
+            initialize(DEFAULT_KEYSIZE, new SecureRandom());
+
+        EdDSAPrivateKeySpec[] privKeys = new EdDSAPrivateKeySpec[count];
+        GroupElement[] points = new GroupElement[count];
+        for (int i = 0; i < count; i++) {
+            privKeys[i] = generatePrivateKeySpec();
+            points[i] = privKeys[i].getA();
+        }
+
+        byte[][] encoded = GroupElement.encodeAll(points);
+        KeyPair[] pairs = new KeyPair[count];
+        for (int i = 0; i < count; i++) {
+            pairs[i] = keyPair(privKeys[i], encoded[i]);
+        }
+        return pairs;
+    }
+
+    private EdDSAPrivateKeySpec generatePrivateKeySpec() {
         byte[] seed = new byte[edParams.getCurve().getField().getb()/8];
         random.nextBytes(seed);
+        return new EdDSAPrivateKeySpec(seed, edParams);
+    }
 
-        EdDSAPrivateKeySpec privKey = new EdDSAPrivateKeySpec(seed, edParams);
+    private KeyPair keyPair(EdDSAPrivateKeySpec privKey, byte[] Abyte) {
         EdDSAPublicKeySpec pubKey = new EdDSAPublicKeySpec(privKey.getA(), edParams);
-
-        return new KeyPair(new EdDSAPublicKey(pubKey), new EdDSAPrivateKey(privKey));
+        return new KeyPair(new EdDSAPublicKey(pubKey, Abyte), new EdDSAPrivateKey(privKey, Abyte.clone()));
     }
 
     /**
@@ -26,6 +26,8 @@
 package org.iton.fido.crypto.math;
 
 
+import org.iton.fido.crypto.math.ed25519.Ed25519FieldElement;
+import org.iton.fido.crypto.math.ed25519.Ed25519GroupWorkspace;
 import org.iton.fido.util.CryptoUtil;
 
 import java.io.Serializable;
@@ -186,6 +188,65 @@ public class GroupElement implements Serializable {
         return new GroupElement(curve, Representation.CACHED, YpX, YmX, Z, T2d);
     }
 
+    /**
+     * Window width of the sliding window tables built by
+     * {@link #precomputeDouble()}: odd multiples $P, 3P, \dots, 15P$.
+     */
+    public static final int DEFAULT_WINDOW_WIDTH = 5;
+
+    /**
+     * Default window width of the static table of the base point $B$ in
+     * {@link #doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])}:
+     * 64 odd multiples $B, 3B, \dots, 127B$.
+     */
+    public static final int DEFAULT_BASE_WINDOW_WIDTH = 8;
+
+    /**
+     * Smallest supported window width.
+     */
+    public static final int MIN_WINDOW_WIDTH = 4;
+
+    /**
+     * Largest supported window width, the digits must fit into a byte.
+     */
+    public static final int MAX_WINDOW_WIDTH = 8;
+
+    /**
+     * Window width used for $A$ once it has been used this many times,
+     * see {@link #windowWidthFor(GroupElement)}.
+     */
+    private static final int REUSE_THRESHOLD = 4;
+
+    /**
+     * Window width used for $A$ once it is reused.
+     */
+    private static final int REUSE_WINDOW_WIDTH = 7;
+
+    private static volatile int baseWindowWidth = DEFAULT_BASE_WINDOW_WIDTH;
+
+    /**
+     * Sets the window width of the table of the base point $B$ used in
+     * {@link #doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])}.
+     * The table holds $2^{w-2}$ odd multiples of $B$. Only applies to Ed25519,
+     * a table already built with a larger width is kept.
+     *
+     * @param width between {@link #MIN_WINDOW_WIDTH} and {@link #MAX_WINDOW_WIDTH}.
+     */
+    public static void setBaseWindowWidth(final int width) {
+        if (width < MIN_WINDOW_WIDTH || width > MAX_WINDOW_WIDTH)
+            throw new IllegalArgumentException("window width must be between " + MIN_WINDOW_WIDTH + " and " + MAX_WINDOW_WIDTH);
+        baseWindowWidth = width;
+    }
+
+    /**
+     * Gets the window width of the table of the base point $B$.
+     *
+     * @return The window width.
+     */
+    public static int getBaseWindowWidth() {
+        return baseWindowWidth;
+    }
+
     /**
      * Variable is package private only so that tests run.
      */
@@ -218,7 +279,7 @@ public class GroupElement implements Serializable {
 
     /**
      * Precomputed table for {@link #scalarMultiply(byte[])},
-     * filled if necessary.
+     * filled if necessary. Ed25519 points use {@link #precmpTable} instead.
      * <p>
      * Variable is package private only so that tests run.
      */
@@ -226,12 +287,31 @@ public class GroupElement implements Serializable {
 
     /**
      * Precomputed table for {@link #doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])},
-     * filled if necessary.
+     * filled if necessary. Ed25519 points use {@link #dblPrecmpTable} instead.
      * <p>
      * Variable is package private only so that tests run.
      */
     final GroupElement[] dblPrecmp;
 
+    /**
+     * Flat limb table for {@link #scalarMultiply(byte[])} of Ed25519 points,
+     * built on first use.
+     */
+    private transient volatile int[] precmpTable;
+
+    /**
+     * Flat limb table for {@link #doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])}
+     * of Ed25519 points, built on first use. Holds $2^{w-2}$ odd multiples for window width $w$.
+     */
+    private transient volatile int[] dblPrecmpTable;
+
+    /**
+     * Number of times this point has been used as $A$ in
+     * {@link #doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])}.
+     * Racy on purpose, it only steers the window width.
+     */
+    private transient int uses;
+
     /**
      * Creates a group element for a curve, without any pre-computation.
      *
@@ -278,7 +358,7 @@ public class GroupElement implements Serializable {
         this.Z = Z;
         this.T = T;
         this.precmp = null;
-        this.dblPrecmp = precomputeDouble ? precomputeDouble() : null;
+        this.dblPrecmp = precomputeDouble && !hasLimbTables() ? precomputeDouble() : null;
     }
 
     /**
@@ -361,7 +441,7 @@ public class GroupElement implements Serializable {
         this.Y = y;
         this.Z = curve.getField().ONE;
         this.T = this.X.multiply(this.Y);
-        if(precomputeSingleAndDouble) {
+        if(precomputeSingleAndDouble && !hasLimbTables()) {
             precmp = precomputeSingle();
             dblPrecmp = precomputeDouble();
         } else {
@@ -448,6 +528,52 @@ public class GroupElement implements Serializable {
         }
     }
 
+    /**
+     * Converts group elements to encoded points on the curve.
+     * <p>
+     * Same as calling {@link #toByteArray()} on each element, but normalizes all
+     * $Z$ coordinates with a single field inversion (Montgomery's simultaneous
+     * inversion): $n$ points cost one inversion and $3(n-1)$ multiplications
+     * instead of $n$ inversions.
+     *
+     * @param points The group elements.
+     * @return The encoded points, in the same order.
+     */
+    public static byte[][] encodeAll(final GroupElement[] points) {
+        final int n = points.length;
+        final byte[][] encoded = new byte[n][];
+        if (n == 0)
+            return encoded;
+
+        final GroupElement[] p = new GroupElement[n];
+        for (int i = 0; i < n; i++) {
+            final Representation repr = points[i].repr;
+            p[i] = repr == Representation.P2 || repr == Representation.P3 ? points[i] : points[i].toP2();
+        }
+
+        // acc[i] = Z_0 * ... * Z_i
+        final FieldElement[] acc = new FieldElement[n];
+        acc[0] = p[0].Z;
+        for (int i = 1; i < n; i++) {
+            acc[i] = acc[i - 1].multiply(p[i].Z);
+        }
+
+        // inv = 1 / (Z_0 * ... * Z_i), walking down from i = n - 1
+        FieldElement inv = acc[n - 1].invert();
+        for (int i = n - 1; i >= 0; i--) {
+            final FieldElement recip = i > 0 ? inv.multiply(acc[i - 1]) : inv;
+            if (i > 0)
+                inv = inv.multiply(p[i].Z);
+
+            final FieldElement x = p[i].X.multiply(recip);
+            final FieldElement y = p[i].Y.multiply(recip);
+            final byte[] s = y.toByteArray();
+            s[s.length-1] |= (x.isNegative() ? (byte) 0x80 : 0);
+            encoded[i] = s;
+        }
+        return encoded;
+    }
+
     /**
      * Converts the group element to the P2 representation.
      *
@@ -551,6 +677,79 @@ public class GroupElement implements Serializable {
         }
     }
 
+    /**
+     * Ed25519 points keep their precomputed tables as flat limb arrays which are
+     * built lazily on first use instead of at construction.
+     *
+     * @return true if the coordinates are Ed25519 field elements.
+     */
+    private boolean hasLimbTables() {
+        return this.X instanceof Ed25519FieldElement;
+    }
+
+    /**
+     * Gets the flat table for {@link #scalarMultiply(byte[])}, building it on first use.
+     */
+    private int[] precmpTable() {
+        int[] table = this.precmpTable;
+        if (table == null) {
+            synchronized (this) {
+                table = this.precmpTable;
+                if (table == null) {
+                    table = Ed25519GroupWorkspace.get().precomputeSingle(toP3());
+                    this.precmpTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Gets the flat table for {@link #doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])},
+     * building it on first use or rebuilding it if a wider window is requested.
+     *
+     * @param width The minimal window width.
+     * @return The table, its width is given by {@link #windowWidth(int[])}.
+     */
+    private int[] dblPrecmpTable(final int width) {
+        int[] table = this.dblPrecmpTable;
+        if (table == null || windowWidth(table) < width) {
+            synchronized (this) {
+                table = this.dblPrecmpTable;
+                if (table == null || windowWidth(table) < width) {
+                    table = Ed25519GroupWorkspace.get().precomputeDouble(toP3(), 1 << (width - 2));
+                    this.dblPrecmpTable = table;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Gets the window width of a flat table of odd multiples.
+     *
+     * @param table The table.
+     * @return $w$ for a table of $2^{w-2}$ entries.
+     */
+    private static int windowWidth(final int[] table) {
+        return Integer.numberOfTrailingZeros(table.length / Ed25519GroupWorkspace.ENTRY) + 2;
+    }
+
+    /**
+     * Chooses the window width for the variable point $A$.
+     * <p>
+     * A single use does not pay for a large table: each entry costs an addition
+     * and the batch inversion, while the width only saves a few additions per
+     * multiplication. Points that are verified against repeatedly, e.g. cached
+     * public keys, are upgraded to a wider table.
+     *
+     * @param A The variable point.
+     * @return The window width.
+     */
+    private static int windowWidthFor(final GroupElement A) {
+        return A.uses++ < REUSE_THRESHOLD ? DEFAULT_WINDOW_WIDTH : REUSE_WINDOW_WIDTH;
+    }
+
     /**
      * Precomputes table for {@link #scalarMultiply(byte[])}.
      */
@@ -883,7 +1082,17 @@ public class GroupElement implements Serializable {
      * @return 64 bytes, each between -8 and 7
      */
     static byte[] toRadix16(final byte[] a) {
-        final byte[] e = new byte[64];
+        return toRadix16(a, new byte[64]);
+    }
+
+    /**
+     * Convert a to radix 16 into a caller supplied buffer.
+     *
+     * @param a $= a[0]+256*a[1]+...+256^{31} a[31]$
+     * @param e 64 bytes receiving the digits, each between -8 and 7
+     * @return e
+     */
+    private static byte[] toRadix16(final byte[] a, final byte[] e) {
         int i;
         // Radix 16 notation
         for (i = 0; i < 32; i++) {
@@ -968,6 +1177,12 @@ public class GroupElement implements Serializable {
      * @return the GroupElement
      */
     public GroupElement scalarMultiply(final byte[] a) {
+        if (hasLimbTables()) {
+            // Allocation free ladder on the limbs of the thread's workspace.
+            final Ed25519GroupWorkspace workspace = Ed25519GroupWorkspace.get();
+            return workspace.scalarMultiply(this.curve, precmpTable(), toRadix16(a, workspace.radix16()));
+        }
+
         GroupElement t;
         int i;
 
@@ -1002,7 +1217,22 @@ public class GroupElement implements Serializable {
      * @return The byte array $r$ in the above described form.
      */
     static byte[] slide(final byte[] a) {
-        byte[] r = new byte[256];
+        return slide(a, new byte[256], DEFAULT_WINDOW_WIDTH);
+    }
+
+    /**
+     * Calculates a sliding-windows base 2 representation for a given value $a$
+     * and window width $w$ into a caller supplied buffer, see {@link #slide(byte[])}.
+     * <p>
+     * Output: $r$ with $ri$ in $\{-(2^{w-1}-1), \dots, -3, -1, 0, 1, 3, \dots, 2^{w-1}-1\}$.
+     *
+     * @param a $= a[0]+256*a[1]+\dots+256^{31} a[31]$.
+     * @param r 256 bytes receiving the representation.
+     * @param width The window width $w$.
+     * @return r
+     */
+    private static byte[] slide(final byte[] a, final byte[] r, final int width) {
+        final int max = (1 << (width - 1)) - 1;
 
         // Put each bit of 'a' into a separate byte, 0 or 1
         for (int i = 0; i < 256; ++i) {
@@ -1012,13 +1242,13 @@ public class GroupElement implements Serializable {
         // Note: r[i] will always be odd.
         for (int i = 0; i < 256; ++i) {
             if (r[i] != 0) {
-                for (int b = 1; b <= 6 && i + b < 256; ++b) {
+                for (int b = 1; b <= width + 1 && i + b < 256; ++b) {
                     // Accumulate bits if possible
                     if (r[i + b] != 0) {
-                        if (r[i] + (r[i + b] << b) <= 15) {
+                        if (r[i] + (r[i + b] << b) <= max) {
                             r[i] += r[i + b] << b;
                             r[i + b] = 0;
-                        } else if (r[i] - (r[i + b] << b) >= -15) {
+                        } else if (r[i] - (r[i + b] << b) >= -max) {
                             r[i] -= r[i + b] << b;
                             for (int k = i + b; k < 256; ++k) {
                                 if (r[k] == 0) {
@@ -1042,6 +1272,9 @@ public class GroupElement implements Serializable {
      * $b = b[0]+256*b[1]+\dots+256^{31} b[31]$ and $B$ is this point.
      * <p>
      * $A$ must have been previously precomputed.
+     * <p>
+     * For Ed25519 the table of $B$ has width {@link #getBaseWindowWidth()}, the
+     * width for $A$ is chosen on demand, see {@link #windowWidthFor(GroupElement)}.
      *
      * @param A in P3 representation.
      * @param a $= a[0]+256*a[1]+\dots+256^{31} a[31]$
@@ -1050,6 +1283,16 @@ public class GroupElement implements Serializable {
      */
     public GroupElement doubleScalarMultiplyVariableTime(final GroupElement A, final byte[] a, final byte[] b) {
         // TODO-CR BR: A check that this is the base point is needed.
+        if (hasLimbTables()) {
+            // Allocation free ladder on the limbs of the thread's workspace.
+            final Ed25519GroupWorkspace workspace = Ed25519GroupWorkspace.get();
+            final int[] Aprecmp = A.dblPrecmpTable(windowWidthFor(A));
+            final int[] Bprecmp = dblPrecmpTable(baseWindowWidth);
+            return workspace.doubleScalarMultiplyVariableTime(this.curve, Aprecmp, Bprecmp,
+                    slide(a, workspace.aslide(), windowWidth(Aprecmp)),
+                    slide(b, workspace.bslide(), windowWidth(Bprecmp)));
+        }
+
         final byte[] aslide = slide(a);
         final byte[] bslide = slide(b);
 
@@ -69,7 +69,7 @@ public class Ed25519FieldElement extends FieldElement {
      */
     public boolean isNonZero() {
         final byte[] s = toByteArray();
-        return Arrays.equals(s, ZERO);
+        return CryptoUtil.equal(s, ZERO) == 0;
     }
 
     /**
@@ -191,7 +191,21 @@ public class Ed25519FieldElement extends FieldElement {
      * @return The (reasonably reduced) field element this * val.
      */
     public FieldElement multiply(FieldElement val) {
-        int[] g = ((Ed25519FieldElement)val).t;
+        int[] h = new int[10];
+        mul(h, t, ((Ed25519FieldElement) val).t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * $h = f * g$ on the raw limbs, see {@link #multiply(FieldElement)}.
+     * <p>
+     * Can overlap $h$ with $f$ or $g$.
+     *
+     * @param h The result limbs.
+     * @param t The limbs of $f$.
+     * @param g The limbs of $g$.
+     */
+    static void mul(final int[] h, final int[] t, final int[] g) {
         int g1_19 = 19 * g[1]; /* 1.959375*2^29 */
         int g2_19 = 19 * g[2]; /* 1.959375*2^30; still ok */
         int g3_19 = 19 * g[3];
@@ -389,7 +403,6 @@ public class Ed25519FieldElement extends FieldElement {
         /* |h0| <= 2^25; from now on fits into int32 unchanged */
         /* |h1| <= 1.01*2^24 */
 
-        int[] h = new int[10];
         h[0] = (int) h0;
         h[1] = (int) h1;
         h[2] = (int) h2;
@@ -400,7 +413,6 @@ public class Ed25519FieldElement extends FieldElement {
         h[7] = (int) h7;
         h[8] = (int) h8;
         h[9] = (int) h9;
-        return new Ed25519FieldElement(f, h);
     }
 
     /**
@@ -422,6 +434,20 @@ public class Ed25519FieldElement extends FieldElement {
      * @return The (reasonably reduced) square of this field element.
      */
     public FieldElement square() {
+        int[] h = new int[10];
+        sq(h, t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * $h = f * f$ on the raw limbs, see {@link #square()}.
+     * <p>
+     * Can overlap $h$ with $f$.
+     *
+     * @param h The result limbs.
+     * @param t The limbs of $f$.
+     */
+    static void sq(final int[] h, final int[] t) {
         int f0 = t[0];
         int f1 = t[1];
         int f2 = t[2];
@@ -545,7 +571,6 @@ public class Ed25519FieldElement extends FieldElement {
 
         carry0 = (h0 + (long) (1<<25)) >> 26; h1 += carry0; h0 -= carry0 << 26;
 
-        int[] h = new int[10];
         h[0] = (int) h0;
         h[1] = (int) h1;
         h[2] = (int) h2;
@@ -556,7 +581,6 @@ public class Ed25519FieldElement extends FieldElement {
         h[7] = (int) h7;
         h[8] = (int) h8;
         h[9] = (int) h9;
-        return new Ed25519FieldElement(f, h);
     }
 
     /**
@@ -578,6 +602,20 @@ public class Ed25519FieldElement extends FieldElement {
      * @return The (reasonably reduced) square of this field element times 2.
      */
     public FieldElement squareAndDouble() {
+        int[] h = new int[10];
+        sq2(h, t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * $h = 2 * f * f$ on the raw limbs, see {@link #squareAndDouble()}.
+     * <p>
+     * Can overlap $h$ with $f$.
+     *
+     * @param h The result limbs.
+     * @param t The limbs of $f$.
+     */
+    static void sq2(final int[] h, final int[] t) {
         int f0 = t[0];
         int f1 = t[1];
         int f2 = t[2];
@@ -707,7 +745,6 @@ public class Ed25519FieldElement extends FieldElement {
 
         carry0 = (h0 + (long) (1<<25)) >> 26; h1 += carry0; h0 -= carry0 << 26;
 
-        int[] h = new int[10];
         h[0] = (int) h0;
         h[1] = (int) h1;
         h[2] = (int) h2;
@@ -718,7 +755,6 @@ public class Ed25519FieldElement extends FieldElement {
         h[7] = (int) h7;
         h[8] = (int) h8;
         h[9] = (int) h9;
-        return new Ed25519FieldElement(f, h);
     }
 
     /**
@@ -984,6 +1020,105 @@ public class Ed25519FieldElement extends FieldElement {
         return new Ed25519FieldElement(this.f, result);
     }
 
+    /**
+     * $h = f + g$ on the raw limbs, see {@link #add(FieldElement)}.
+     *
+     * @param h The result limbs, can overlap $f$ or $g$.
+     * @param f The limbs of $f$.
+     * @param g The limbs of $g$.
+     */
+    static void add(final int[] h, final int[] f, final int[] g) {
+        for (int i = 0; i < 10; i++) {
+            h[i] = f[i] + g[i];
+        }
+    }
+
+    /**
+     * $h = f - g$ on the raw limbs, see {@link #subtract(FieldElement)}.
+     *
+     * @param h The result limbs, can overlap $f$ or $g$.
+     * @param f The limbs of $f$.
+     * @param g The limbs of $g$.
+     */
+    static void sub(final int[] h, final int[] f, final int[] g) {
+        for (int i = 0; i < 10; i++) {
+            h[i] = f[i] - g[i];
+        }
+    }
+
+    /**
+     * $h = -f$ on the raw limbs, see {@link #negate()}.
+     *
+     * @param h The result limbs, can overlap $f$.
+     * @param f The limbs of $f$.
+     */
+    static void neg(final int[] h, final int[] f) {
+        for (int i = 0; i < 10; i++) {
+            h[i] = -f[i];
+        }
+    }
+
+    /**
+     * Constant-time conditional move on the raw limbs, see {@link #cmov(FieldElement, int)}.
+     * Replaces $f$ with $g$ if $b == 1$, leaves $f$ untouched if $b == 0$.
+     *
+     * @param f The limbs to update in place.
+     * @param g The limbs to copy from.
+     * @param b must be 0 or 1, otherwise results are undefined.
+     */
+    static void cmov(final int[] f, final int[] g, int b) {
+        cmov(f, g, 0, b);
+    }
+
+    /**
+     * Constant-time conditional move from a flat table of limbs.
+     *
+     * @param f The limbs to update in place.
+     * @param g The table to copy from.
+     * @param offset The offset of the 10 limbs in $g$.
+     * @param b must be 0 or 1, otherwise results are undefined.
+     */
+    static void cmov(final int[] f, final int[] g, final int offset, int b) {
+        b = -b;
+        for (int i = 0; i < 10; i++) {
+            f[i] ^= (f[i] ^ g[offset + i]) & b;
+        }
+    }
+
+    /**
+     * Inverts all given field elements with a single field inversion
+     * (Montgomery's simultaneous inversion, $3(n-1)$ multiplications).
+     * <p>
+     * None of the elements may be zero.
+     *
+     * @param f The underlying field.
+     * @param z The limbs of the elements, replaced in place by their inverses.
+     */
+    static void invertAll(final Field f, final int[][] z) {
+        final int n = z.length;
+        if (n == 0)
+            return;
+
+        // acc[i] = z[0] * ... * z[i]
+        final int[][] acc = new int[n][10];
+        System.arraycopy(z[0], 0, acc[0], 0, 10);
+        for (int i = 1; i < n; i++) {
+            mul(acc[i], acc[i - 1], z[i]);
+        }
+
+        // inv = 1 / (z[0] * ... * z[n-1])
+        final int[] inv = ((Ed25519FieldElement) new Ed25519FieldElement(f, acc[n - 1]).invert()).t.clone();
+        final int[] tmp = new int[10];
+        for (int i = n - 1; i > 0; i--) {
+            // 1 / z[i] = (z[0] * ... * z[i-1]) / (z[0] * ... * z[i])
+            mul(tmp, inv, acc[i - 1]);
+            // inv = 1 / (z[0] * ... * z[i-1])
+            mul(inv, inv, z[i]);
+            System.arraycopy(tmp, 0, z[i], 0, 10);
+        }
+        System.arraycopy(inv, 0, z[0], 0, 10);
+    }
+
     @Override
     public int hashCode() {
         return Arrays.hashCode(t);
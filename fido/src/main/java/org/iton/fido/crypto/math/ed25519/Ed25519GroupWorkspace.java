@@ -0,0 +1,518 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.fido.crypto.math.ed25519;
+
+
+import org.iton.fido.crypto.math.Curve;
+import org.iton.fido.crypto.math.FieldElement;
+import org.iton.fido.crypto.math.GroupElement;
+import org.iton.fido.util.CryptoUtil;
+
+/**
+ * Mutable per-thread scratch space for the scalar multiplication ladders of
+ * {@link GroupElement}.
+ * <p>
+ * The immutable {@link GroupElement} API allocates new field and group elements
+ * for every doubling, addition and conversion. The ladders in
+ * {@link GroupElement#scalarMultiply(byte[])} and
+ * {@link GroupElement#doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])}
+ * instead run on the preallocated limbs held here, using the in-place limb
+ * operations of {@link Ed25519FieldElement}. Only the final result is copied
+ * out into a new immutable {@link GroupElement}.
+ * <p>
+ * The formulas and the order of operations are exactly those of the immutable
+ * implementation, so both paths produce identical limbs. A workspace must not
+ * be shared between threads, use {@link #get()}.
+ * <p>
+ * The precomputed tables are flat {@code int[]} arrays of PRECOMP entries
+ * $(y+x, y-x, 2dxy)$, {@link #ENTRY} limbs each. Entries of one row of the
+ * base point table are contiguous, so a constant-time lookup scans a single
+ * block of memory.
+ *
+ * @author ITON Solutions
+ */
+public final class Ed25519GroupWorkspace {
+
+    /** Limbs of one PRECOMP entry $(y+x, y-x, 2dxy)$ in a flat table. */
+    public static final int ENTRY = 30;
+
+    /** Entries per row of the table for {@link #scalarMultiply(Curve, int[], byte[])}. */
+    private static final int ROW = 8;
+
+    /** Rows of the table for {@link #scalarMultiply(Curve, int[], byte[])}. */
+    private static final int ROWS = 32;
+
+    private static final ThreadLocal<Ed25519GroupWorkspace> WORKSPACE = new ThreadLocal<Ed25519GroupWorkspace>() {
+        @Override
+        protected Ed25519GroupWorkspace initialValue() {
+            return new Ed25519GroupWorkspace();
+        }
+    };
+
+    /**
+     * Gets the workspace of the calling thread.
+     *
+     * @return The workspace, created on first use.
+     */
+    public static Ed25519GroupWorkspace get() {
+        return WORKSPACE.get();
+    }
+
+    /** Radix 16 digits for the constant-time ladder. */
+    private final byte[] radix16 = new byte[64];
+
+    /** Sliding window digits for the variable-time ladder. */
+    private final byte[] aslide = new byte[256];
+    private final byte[] bslide = new byte[256];
+
+    /** Accumulator in $P^3$ (or $P^2$, ignoring $T$). */
+    private final int[] X = new int[10];
+    private final int[] Y = new int[10];
+    private final int[] Z = new int[10];
+    private final int[] T = new int[10];
+
+    /** Intermediate result in $P \times P$. */
+    private final int[] X1 = new int[10];
+    private final int[] Y1 = new int[10];
+    private final int[] Z1 = new int[10];
+    private final int[] T1 = new int[10];
+
+    /** Selected PRECOMP point $(y+x, y-x, 2dxy)$. */
+    private final int[] ypx = new int[10];
+    private final int[] ymx = new int[10];
+    private final int[] xy2d = new int[10];
+
+    /** Operand in CACHED representation $(Y+X, Y-X, Z, 2dT)$. */
+    private final int[] YpX = new int[10];
+    private final int[] YmX = new int[10];
+    private final int[] Zc = new int[10];
+    private final int[] T2d = new int[10];
+
+    /** Temporaries. */
+    private final int[] t0 = new int[10];
+    private final int[] t1 = new int[10];
+    private final int[] t2 = new int[10];
+    private final int[] t3 = new int[10];
+
+    private Ed25519GroupWorkspace() {
+    }
+
+    /**
+     * Scratch buffer for {@code GroupElement.toRadix16}.
+     *
+     * @return 64 bytes owned by this workspace.
+     */
+    public byte[] radix16() {
+        return radix16;
+    }
+
+    /**
+     * Scratch buffer for the sliding window representation of $a$.
+     *
+     * @return 256 bytes owned by this workspace.
+     */
+    public byte[] aslide() {
+        return aslide;
+    }
+
+    /**
+     * Scratch buffer for the sliding window representation of $b$.
+     *
+     * @return 256 bytes owned by this workspace.
+     */
+    public byte[] bslide() {
+        return bslide;
+    }
+
+    /**
+     * $h = a * B$ using the precomputed table of $B$. Constant time.
+     *
+     * @param curve The curve.
+     * @param precmp The flat 32x8 table of $B$, see {@link #precomputeSingle(GroupElement)}.
+     * @param e The radix 16 digits of $a$, each between -8 and 7.
+     * @return $a * B$ in P3 representation.
+     */
+    public GroupElement scalarMultiply(final Curve curve, final int[] precmp, final byte[] e) {
+        setZero();
+        int i;
+        for (i = 1; i < 64; i += 2) {
+            select(precmp, i/2, e[i]);
+            madd();
+            toP3();
+        }
+
+        dbl(); toP2();
+        dbl(); toP2();
+        dbl(); toP2();
+        dbl(); toP3();
+
+        for (i = 0; i < 64; i += 2) {
+            select(precmp, i/2, e[i]);
+            madd();
+            toP3();
+        }
+
+        return GroupElement.p3(curve, copy(curve, X), copy(curve, Y), copy(curve, Z), copy(curve, T));
+    }
+
+    /**
+     * $r = a * A + b * B$ using the sliding window representations of $a$ and $b$.
+     * Variable time, only for public inputs.
+     *
+     * @param curve The curve.
+     * @param Aprecmp The flat table of odd multiples of $A$, see {@link #precomputeDouble(GroupElement, int)}.
+     * @param Bprecmp The flat table of odd multiples of $B$.
+     * @param aslide The sliding window digits of $a$.
+     * @param bslide The sliding window digits of $b$.
+     * @return $a * A + b * B$ in P2 representation.
+     */
+    public GroupElement doubleScalarMultiplyVariableTime(
+            final Curve curve,
+            final int[] Aprecmp,
+            final int[] Bprecmp,
+            final byte[] aslide,
+            final byte[] bslide) {
+        setZero();
+
+        int i;
+        for (i = 255; i >= 0; --i) {
+            if (aslide[i] != 0 || bslide[i] != 0) break;
+        }
+
+        for (; i >= 0; --i) {
+            dbl();
+
+            if (aslide[i] > 0) {
+                toP3();
+                load(Aprecmp, aslide[i]/2);
+                madd();
+            } else if (aslide[i] < 0) {
+                toP3();
+                load(Aprecmp, (-aslide[i])/2);
+                msub();
+            }
+
+            if (bslide[i] > 0) {
+                toP3();
+                load(Bprecmp, bslide[i]/2);
+                madd();
+            } else if (bslide[i] < 0) {
+                toP3();
+                load(Bprecmp, (-bslide[i])/2);
+                msub();
+            }
+
+            toP2();
+        }
+
+        return GroupElement.p2(curve, copy(curve, X), copy(curve, Y), copy(curve, Z));
+    }
+
+    /**
+     * Builds the flat table for {@link #scalarMultiply(Curve, int[], byte[])}:
+     * row $i$ holds $16^{2i} B, 2 * 16^{2i} B, \dots, 8 * 16^{2i} B$.
+     * <p>
+     * All 256 entries are made affine with a single field inversion.
+     *
+     * @param B The point in P3 representation.
+     * @return The flat table of 32x8 entries.
+     */
+    public int[] precomputeSingle(final GroupElement B) {
+        final int[][] xs = new int[ROWS * ROW][10];
+        final int[][] ys = new int[ROWS * ROW][10];
+        final int[][] zs = new int[ROWS * ROW][10];
+        final int[] two_d = limbs(B.getCurve().get2D());
+        final int[] Bx = new int[10];
+        final int[] By = new int[10];
+        final int[] Bz = new int[10];
+
+        load(B);
+        for (int i = 0; i < ROWS; i++) {
+            // Bi = 16^{2i} B in CACHED representation
+            cache(two_d);
+            store(Bx, By, Bz);
+            for (int j = 0; j < ROW; j++) {
+                store(xs[i * ROW + j], ys[i * ROW + j], zs[i * ROW + j]);
+                if (j < ROW - 1) {
+                    addCached();
+                    toP3();
+                }
+            }
+            // Only every second summand is precomputed (16^2 = 256)
+            System.arraycopy(Bx, 0, X, 0, 10);
+            System.arraycopy(By, 0, Y, 0, 10);
+            System.arraycopy(Bz, 0, Z, 0, 10);
+            for (int k = 0; k < 8; k++) {
+                dbl();
+                toP3();
+            }
+        }
+        return toPrecomp(B.getCurve(), xs, ys, zs);
+    }
+
+    /**
+     * Builds the flat table for
+     * {@link #doubleScalarMultiplyVariableTime(Curve, int[], int[], byte[], byte[])}:
+     * $P, 3P, 5P, \dots, (2n-1)P$.
+     *
+     * @param P The point in P3 representation.
+     * @param count The number of odd multiples $n$, $2^{w-2}$ for window width $w$.
+     * @return The flat table of $n$ entries.
+     */
+    public int[] precomputeDouble(final GroupElement P, final int count) {
+        final int[][] xs = new int[count][10];
+        final int[][] ys = new int[count][10];
+        final int[][] zs = new int[count][10];
+        final int[] two_d = limbs(P.getCurve().get2D());
+
+        // 2P in CACHED representation
+        load(P);
+        dbl();
+        toP3();
+        cache(two_d);
+
+        load(P);
+        for (int i = 0; i < count; i++) {
+            store(xs[i], ys[i], zs[i]);
+            if (i < count - 1) {
+                addCached();
+                toP3();
+            }
+        }
+        return toPrecomp(P.getCurve(), xs, ys, zs);
+    }
+
+    /**
+     * Converts projective points into flat PRECOMP entries.
+     */
+    private static int[] toPrecomp(final Curve curve, final int[][] xs, final int[][] ys, final int[][] zs) {
+        final int[] two_d = limbs(curve.get2D());
+        Ed25519FieldElement.invertAll(curve.getField(), zs);
+
+        final int[] table = new int[xs.length * ENTRY];
+        final int[] x = new int[10];
+        final int[] y = new int[10];
+        final int[] t = new int[10];
+        for (int i = 0; i < xs.length; i++) {
+            Ed25519FieldElement.mul(x, xs[i], zs[i]);
+            Ed25519FieldElement.mul(y, ys[i], zs[i]);
+
+            Ed25519FieldElement.add(t, y, x);
+            System.arraycopy(t, 0, table, i * ENTRY, 10);
+            Ed25519FieldElement.sub(t, y, x);
+            System.arraycopy(t, 0, table, i * ENTRY + 10, 10);
+            Ed25519FieldElement.mul(t, x, y);
+            Ed25519FieldElement.mul(t, t, two_d);
+            System.arraycopy(t, 0, table, i * ENTRY + 20, 10);
+        }
+        return table;
+    }
+
+    /**
+     * Sets the accumulator to the neutral element $(0:1:1:0)$.
+     */
+    private void setZero() {
+        for (int i = 0; i < 10; i++) {
+            X[i] = 0;
+            Y[i] = 0;
+            Z[i] = 0;
+            T[i] = 0;
+        }
+        Y[0] = 1;
+        Z[0] = 1;
+    }
+
+    /**
+     * Loads a P3 point into the accumulator.
+     */
+    private void load(final GroupElement p) {
+        System.arraycopy(limbs(p.getX()), 0, X, 0, 10);
+        System.arraycopy(limbs(p.getY()), 0, Y, 0, 10);
+        System.arraycopy(limbs(p.getZ()), 0, Z, 0, 10);
+        System.arraycopy(limbs(p.getT()), 0, T, 0, 10);
+    }
+
+    /**
+     * Loads a PRECOMP entry of a flat table into the selection registers.
+     */
+    private void load(final int[] table, final int index) {
+        final int offset = index * ENTRY;
+        System.arraycopy(table, offset, ypx, 0, 10);
+        System.arraycopy(table, offset + 10, ymx, 0, 10);
+        System.arraycopy(table, offset + 20, xy2d, 0, 10);
+    }
+
+    /**
+     * Stores the projective coordinates of the accumulator.
+     */
+    private void store(final int[] x, final int[] y, final int[] z) {
+        System.arraycopy(X, 0, x, 0, 10);
+        System.arraycopy(Y, 0, y, 0, 10);
+        System.arraycopy(Z, 0, z, 0, 10);
+    }
+
+    /**
+     * Keeps the accumulator in the CACHED registers, see {@link GroupElement#toCached()}.
+     * The accumulator itself is left unchanged.
+     */
+    private void cache(final int[] two_d) {
+        Ed25519FieldElement.add(YpX, Y, X);
+        Ed25519FieldElement.sub(YmX, Y, X);
+        System.arraycopy(Z, 0, Zc, 0, 10);
+        Ed25519FieldElement.mul(T2d, T, two_d);
+    }
+
+    /**
+     * Constant-time lookup of $16^i r_i B$, see {@code GroupElement.select}.
+     * No secret array indices, no secret branching.
+     *
+     * @param table The flat table of {@link #precomputeSingle(GroupElement)}.
+     * @param pos $= i/2$ for $i$ in $\{0, 2, 4,..., 62\}$
+     * @param b $= r_i$
+     */
+    private void select(final int[] table, final int pos, final int b) {
+        // Is r_i negative?
+        final int bnegative = CryptoUtil.negative(b);
+        // |r_i|
+        final int babs = b - (((-bnegative) & b) << 1);
+
+        // 16^i |r_i| B
+        for (int i = 0; i < 10; i++) {
+            ypx[i] = 0;
+            ymx[i] = 0;
+            xy2d[i] = 0;
+        }
+        ypx[0] = 1;
+        ymx[0] = 1;
+        for (int j = 0, offset = pos * ROW * ENTRY; j < ROW; j++, offset += ENTRY) {
+            final int move = CryptoUtil.equal(babs, j + 1);
+            Ed25519FieldElement.cmov(ypx, table, offset, move);
+            Ed25519FieldElement.cmov(ymx, table, offset + 10, move);
+            Ed25519FieldElement.cmov(xy2d, table, offset + 20, move);
+        }
+
+        // -16^i |r_i| B
+        System.arraycopy(ymx, 0, t0, 0, 10);
+        System.arraycopy(ypx, 0, t1, 0, 10);
+        Ed25519FieldElement.neg(t2, xy2d);
+
+        // 16^i r_i B
+        Ed25519FieldElement.cmov(ypx, t0, bnegative);
+        Ed25519FieldElement.cmov(ymx, t1, bnegative);
+        Ed25519FieldElement.cmov(xy2d, t2, bnegative);
+    }
+
+    /**
+     * $P \times P$ = $P^3$ + PRECOMP, see {@code GroupElement.madd}.
+     */
+    private void madd() {
+        Ed25519FieldElement.add(t0, Y, X);
+        Ed25519FieldElement.sub(t1, Y, X);
+        Ed25519FieldElement.mul(t0, t0, ypx);   // A
+        Ed25519FieldElement.mul(t1, t1, ymx);   // B
+        Ed25519FieldElement.mul(t2, xy2d, T);   // C
+        Ed25519FieldElement.add(t3, Z, Z);      // D
+        Ed25519FieldElement.sub(X1, t0, t1);
+        Ed25519FieldElement.add(Y1, t0, t1);
+        Ed25519FieldElement.add(Z1, t3, t2);
+        Ed25519FieldElement.sub(T1, t3, t2);
+    }
+
+    /**
+     * $P \times P$ = $P^3$ + CACHED, see {@link GroupElement#add(GroupElement)}.
+     */
+    private void addCached() {
+        Ed25519FieldElement.add(t0, Y, X);
+        Ed25519FieldElement.sub(t1, Y, X);
+        Ed25519FieldElement.mul(t0, t0, YpX);   // A
+        Ed25519FieldElement.mul(t1, t1, YmX);   // B
+        Ed25519FieldElement.mul(t2, T2d, T);    // C
+        Ed25519FieldElement.mul(t3, Z, Zc);     // ZZ
+        Ed25519FieldElement.add(t3, t3, t3);    // D
+        Ed25519FieldElement.sub(X1, t0, t1);
+        Ed25519FieldElement.add(Y1, t0, t1);
+        Ed25519FieldElement.add(Z1, t3, t2);
+        Ed25519FieldElement.sub(T1, t3, t2);
+    }
+
+    /**
+     * $P \times P$ = $P^3$ - PRECOMP, see {@code GroupElement.msub}.
+     */
+    private void msub() {
+        Ed25519FieldElement.add(t0, Y, X);
+        Ed25519FieldElement.sub(t1, Y, X);
+        Ed25519FieldElement.mul(t0, t0, ymx);   // A
+        Ed25519FieldElement.mul(t1, t1, ypx);   // B
+        Ed25519FieldElement.mul(t2, xy2d, T);   // C
+        Ed25519FieldElement.add(t3, Z, Z);      // D
+        Ed25519FieldElement.sub(X1, t0, t1);
+        Ed25519FieldElement.add(Y1, t0, t1);
+        Ed25519FieldElement.sub(Z1, t3, t2);
+        Ed25519FieldElement.add(T1, t3, t2);
+    }
+
+    /**
+     * $P \times P$ = 2 * $P^2$, see {@link GroupElement#dbl()}.
+     */
+    private void dbl() {
+        Ed25519FieldElement.sq(t0, X);          // XX
+        Ed25519FieldElement.sq(t1, Y);          // YY
+        Ed25519FieldElement.sq2(t2, Z);         // B
+        Ed25519FieldElement.add(t3, X, Y);      // A
+        Ed25519FieldElement.sq(t3, t3);         // AA
+        Ed25519FieldElement.add(Y1, t1, t0);    // Yn
+        Ed25519FieldElement.sub(Z1, t1, t0);    // Zn
+        Ed25519FieldElement.sub(X1, t3, Y1);
+        Ed25519FieldElement.sub(T1, t2, Z1);
+    }
+
+    /**
+     * $P \times P \rightarrow P^2$ (3 multiply).
+     */
+    private void toP2() {
+        Ed25519FieldElement.mul(X, X1, T1);
+        Ed25519FieldElement.mul(Y, Y1, Z1);
+        Ed25519FieldElement.mul(Z, Z1, T1);
+    }
+
+    /**
+     * $P \times P \rightarrow P^3$ (4 multiply).
+     */
+    private void toP3() {
+        Ed25519FieldElement.mul(X, X1, T1);
+        Ed25519FieldElement.mul(Y, Y1, Z1);
+        Ed25519FieldElement.mul(Z, Z1, T1);
+        Ed25519FieldElement.mul(T, X1, Y1);
+    }
+
+    private static int[] limbs(final FieldElement fe) {
+        return ((Ed25519FieldElement) fe).t;
+    }
+
+    private static FieldElement copy(final Curve curve, final int[] t) {
+        return new Ed25519FieldElement(curve.getField(), t.clone());
+    }
+}
@@ -59,7 +59,7 @@ public class EdDSANamedCurveTable {
             new Ed25519ScalarOps(), // l
             ed25519curve.createPoint( // B
                     CryptoUtil.fromHex("5866666666666666666666666666666666666666666666666666666666666666"),
-                    true)); // Precompute tables for B
+                    true)); // Precompute tables for B, Ed25519 builds them on first use
 
     private static volatile HashMap<String, EdDSANamedCurveSpec> curves = new HashMap<>();
 
@@ -26,20 +26,6 @@
 
 package org.iton.fido.http;
 
-import android.util.Log;
-
-import java.security.KeyManagementException;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.cert.X509Certificate;
-
-import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSession;
-import javax.net.ssl.SSLSocketFactory;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
-
 import okhttp3.OkHttpClient;
 
 /**
@@ -49,47 +35,13 @@ public class HTTPClient {
 
     private static final String TAG = HTTPClient.class.getName();
 
-    HostnameVerifier verifier = new HostnameVerifier() {
-        @Override
-        public boolean verify(String hostname, SSLSession session) {
-            return true;
-        }
-    };
-
-    X509TrustManager manager = new X509TrustManager() {
-        @Override
-        public void checkClientTrusted(X509Certificate[] chain, String authType) {
-        }
-
-        @Override
-        public void checkServerTrusted(X509Certificate[] chain, String authType) {
-        }
-
-        @Override
-        public X509Certificate[] getAcceptedIssuers() {
-            return new X509Certificate[]{};
-        }
-    };
-
+    /**
+     * The process-wide client of {@link HTTPClientFactory}.
+     *
+     * @return
+     */
     public OkHttpClient getClient() {
-        OkHttpClient client = null;
-
-
-        try {
-            TrustManager[] managers = new TrustManager[]{manager};
-            SSLContext context = SSLContext.getInstance("SSL");
-            context.init(null, managers, new SecureRandom());
-            SSLSocketFactory factory = context.getSocketFactory();
-
-            client = new OkHttpClient.Builder()
-                    .sslSocketFactory(factory, manager)
-                    .hostnameVerifier(verifier)
-                    .build();
-        } catch (KeyManagementException | NoSuchAlgorithmException e) {
-            Log.e(TAG, String.format("Error: %s", e.getMessage()));
-        }
-
-        return client;
+        return HTTPClientFactory.getInstance().getClient();
     }
 
 }
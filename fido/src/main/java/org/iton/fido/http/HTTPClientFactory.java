@@ -0,0 +1,205 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.fido.http;
+
+import android.util.Log;
+
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.X509TrustManager;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Process-wide factory of the {@link OkHttpClient} used for HTTP requests and websockets.
+ * <p>
+ * All clients share one connection pool, one bounded dispatcher and one SSL context, so
+ * connections and TLS sessions are reused across requests and ceremonies.
+ *
+ * @author ITON Solutions
+ */
+public class HTTPClientFactory {
+
+    private static final String TAG = HTTPClientFactory.class.getName();
+
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 5;
+    public static final long DEFAULT_KEEP_ALIVE = 5 * 60 * 1000;
+    public static final int DEFAULT_MAX_REQUESTS = 32;
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 8;
+    public static final long DEFAULT_PING_INTERVAL = 20 * 1000;
+    public static final int TLS_SESSION_CACHE_SIZE = 32;
+    public static final int TLS_SESSION_TIMEOUT = 12 * 60 * 60; // seconds
+
+    private static volatile HTTPClientFactory instance;
+
+    private final OkHttpClient client;
+
+    private static final HostnameVerifier VERIFIER = new HostnameVerifier() {
+        @Override
+        public boolean verify(String hostname, SSLSession session) {
+            return true;
+        }
+    };
+
+    private static final X509TrustManager MANAGER = new X509TrustManager() {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[]{};
+        }
+    };
+
+    public HTTPClientFactory() {
+        this(DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE, DEFAULT_MAX_REQUESTS, DEFAULT_MAX_REQUESTS_PER_HOST, DEFAULT_PING_INTERVAL);
+    }
+
+    /**
+     * @param maxIdleConnections idle connections kept in the pool
+     * @param keepAlive          milliseconds an idle connection is kept
+     * @param maxRequests        concurrent calls, open websockets included
+     * @param maxRequestsPerHost concurrent calls per host
+     * @param pingInterval       milliseconds between websocket pings, 0 to disable
+     */
+    public HTTPClientFactory(int maxIdleConnections, long keepAlive, int maxRequests, int maxRequestsPerHost, long pingInterval) {
+
+        // Unbounded like OkHttp's own executor: a finishing call promotes the next one before its
+        // thread is back in the pool, so a bounded pool would reject it. The limits are the dispatcher's.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "OkHttp Dispatcher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAlive, TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .pingInterval(pingInterval, TimeUnit.MILLISECONDS)
+                .hostnameVerifier(VERIFIER);
+
+        try {
+            SSLContext context = SSLContext.getInstance("SSL");
+            context.init(null, new X509TrustManager[]{MANAGER}, new SecureRandom());
+            SSLSessionContext sessions = context.getClientSessionContext();
+            if (sessions != null) {
+                sessions.setSessionCacheSize(TLS_SESSION_CACHE_SIZE);
+                sessions.setSessionTimeout(TLS_SESSION_TIMEOUT);
+            }
+            builder.sslSocketFactory(context.getSocketFactory(), MANAGER);
+        } catch (KeyManagementException | NoSuchAlgorithmException e) {
+            Log.e(TAG, String.format("Error: %s", e.getMessage()));
+        }
+
+        this.client = builder.build();
+    }
+
+    public static HTTPClientFactory getInstance() {
+        HTTPClientFactory result = instance;
+        if (result == null) {
+            synchronized (HTTPClientFactory.class) {
+                result = instance;
+                if (result == null) {
+                    result = new HTTPClientFactory();
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replace the process-wide factory, e.g. with different pool limits. Clients already
+     * handed out keep using the previous pool.
+     *
+     * @param factory
+     */
+    public static void setInstance(HTTPClientFactory factory) {
+        synchronized (HTTPClientFactory.class) {
+            instance = factory;
+        }
+    }
+
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * A client sharing the pool, dispatcher and SSL context, with other settings changed.
+     *
+     * @return
+     */
+    public OkHttpClient.Builder newBuilder() {
+        return client.newBuilder();
+    }
+
+    public int connectionCount() {
+        return client.connectionPool().connectionCount();
+    }
+
+    public int idleConnectionCount() {
+        return client.connectionPool().idleConnectionCount();
+    }
+
+    public int runningCallsCount() {
+        return client.dispatcher().runningCallsCount();
+    }
+
+    public int queuedCallsCount() {
+        return client.dispatcher().queuedCallsCount();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HTTPClientFactory: {connections: %d, idle: %d, running: %d, queued: %d}",
+                connectionCount(), idleConnectionCount(), runningCallsCount(), queuedCallsCount());
+    }
+}
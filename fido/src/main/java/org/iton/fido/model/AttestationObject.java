@@ -25,18 +25,16 @@
  */
 package org.iton.fido.model;
 
-import android.util.Base64;
-
 import androidx.annotation.NonNull;
 
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
-import org.iton.fido.util.JacksonCodecs;
+import org.iton.fido.util.CborJson;
+import org.iton.fido.util.CborWriter;
+import org.iton.jssi.crypto.codec.Base64;
 
 import java.io.IOException;
 
@@ -128,24 +126,22 @@ public final class AttestationObject {
     @NonNull
     public byte[] getBytes() {
         
-        byte[] bytes = new byte[0];
-        
-        JsonNodeFactory factory = JsonNodeFactory.instance;
-        ObjectNode node = factory.objectNode();
-        node.set("authData",  factory.binaryNode(authenticatorData.getBytes()));
-        node.set("fmt",  factory.textNode(FORMAT));
-        node.set("attStmt",  attestationStatement);
-        
-        try{
-            bytes = JacksonCodecs.cbor().writeValueAsBytes(node);
-        } catch(JsonProcessingException e){}
-        return bytes;
+        CborWriter writer = new CborWriter(authenticatorData.length() + 128);
+
+        // Canonical key order: fmt, attStmt, authData
+        writer.writeMap(3);
+        writer.writeText("fmt").writeText(FORMAT);
+        writer.writeText("attStmt");
+        CborJson.write(writer, attestationStatement);
+        writer.writeText("authData").writeBytes(authenticatorData.buffer(), 0, authenticatorData.length());
+
+        return writer.toByteArray();
     }
-    
+
     static class JsonSerializer extends com.fasterxml.jackson.databind.JsonSerializer<AttestationObject> {
         @Override
         public void serialize(AttestationObject value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-            gen.writeString(Base64.encodeToString(value.getBytes(), Base64.URL_SAFE | Base64.NO_PADDING));
+            gen.writeString(Base64.encodeUrl(value.getBytes()));
         }
     }
 
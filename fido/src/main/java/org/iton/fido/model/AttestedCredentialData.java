@@ -30,10 +30,9 @@ import androidx.annotation.NonNull;
 
 import java.security.PublicKey;
 
-import org.iton.fido.crypto.EdDSAPublicKey;
+import org.iton.fido.crypto.EdDSAPublicKeyCache;
 import org.iton.fido.crypto.spec.EdDSANamedCurveTable;
 import org.iton.fido.crypto.spec.EdDSAParameterSpec;
-import org.iton.fido.crypto.spec.EdDSAPublicKeySpec;
 import org.iton.fido.util.BinaryUtil;
 import org.libsodium.api.Crypto_hash_sha256;
 import org.libsodium.jni.SodiumException;
@@ -111,7 +110,7 @@ public final class AttestedCredentialData {
         public AttestedCredentialDataBuilder publicKey(@NonNull final byte[] publicKey) {
             
             EdDSAParameterSpec spec = EdDSANamedCurveTable.getByName("Ed25519");
-            PublicKey pk = new EdDSAPublicKey(new EdDSAPublicKeySpec(publicKey, spec));
+            PublicKey pk = EdDSAPublicKeyCache.getInstance().get(publicKey, spec);
             this.publicKey = AuthenticatorCodec.publicKeyToCose(pk);
             try {
                 this.credentialId = Crypto_hash_sha256.sha256(publicKey);
@@ -155,12 +154,31 @@ public final class AttestedCredentialData {
     
     public byte[] getBytes(){
         
-        byte[] result = BinaryUtil.concat(
-                aaguid,
-                BinaryUtil.encodeUint16((short)credentialId.length),
-                credentialId, 
-                publicKey);
-        
+        byte[] result = new byte[length()];
+        encode(result, 0);
         return result;
     }
+
+    /**
+     * The length of the encoded attested credential data.
+     * @return 
+     */
+    public int length(){
+        return aaguid.length + 2 + credentialId.length + publicKey.length;
+    }
+
+    /**
+     * Writes the encoded attested credential data into <code>out</code> at <code>offset</code>.
+     * @param out
+     * @param offset
+     * @return the offset following the written bytes
+     */
+    int encode(byte[] out, int offset){
+        System.arraycopy(aaguid, 0, out, offset, aaguid.length);
+        offset = BinaryUtil.putUint16(out, offset + aaguid.length, credentialId.length);
+        System.arraycopy(credentialId, 0, out, offset, credentialId.length);
+        offset += credentialId.length;
+        System.arraycopy(publicKey, 0, out, offset, publicKey.length);
+        return offset + publicKey.length;
+    }
 }
@@ -26,36 +26,66 @@
 
 package org.iton.fido.model;
 
-import com.upokecenter.cbor.CBORObject;
-
-import org.iton.fido.crypto.EdDSAPublicKey;
+import org.iton.fido.crypto.EdDSAPublicKeyCache;
+import org.iton.fido.util.CborException;
+import org.iton.fido.util.CborReader;
+import org.iton.fido.util.CborWriter;
 
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
-import java.util.HashMap;
-import java.util.Map;
 
 
 public final class AuthenticatorCodec {
 
-    public static byte[] publicKeyToCose(PublicKey key) {
-        Map<Long, Object> coseKey = new HashMap<>();
+    private static final int COSE_KTY = 1;
+    private static final int COSE_ALG = 3;
+    private static final int COSE_CRV = -1;
+    private static final int COSE_X = -2;
 
-        coseKey.put(1L, 1L);  // Key type: octet key pair
-        coseKey.put(3L, -8);  // EdDSA(-8)
-        coseKey.put(-1L, 6L); // crv: Ed25519
-        coseKey.put(-2L, key.getEncoded());
+    private static final int KTY_OKP = 1;  // Key type: octet key pair
+    private static final int ALG_EDDSA = -8; // EdDSA(-8)
+    private static final int CRV_ED25519 = 6;
 
-        return CBORObject.FromObject(coseKey).EncodeToBytes();
+    public static byte[] publicKeyToCose(PublicKey key) {
+        byte[] encoded = key.getEncoded();
+
+        // Canonical key order: 1, 3, -1, -2
+        return new CborWriter(16 + encoded.length)
+                .writeMap(4)
+                .writeInt(COSE_KTY).writeInt(KTY_OKP)
+                .writeInt(COSE_ALG).writeInt(ALG_EDDSA)
+                .writeInt(COSE_CRV).writeInt(CRV_ED25519)
+                .writeInt(COSE_X).writeBytes(encoded)
+                .toByteArray();
     }
     
-    public static PublicKey coseToPublicKey(CBORObject cose) {
-        byte[] encoded = cose.get(CBORObject.FromObject(-2)).GetByteString();
+    public static PublicKey coseToPublicKey(byte[] cose) {
+        byte[] encoded = null;
+
+        try {
+            CborReader reader = new CborReader(cose);
+            int entries = reader.readMap();
+            for (int i = 0; entries < 0 ? !reader.readBreak() : i < entries; i++) {
+                if (reader.peekType() > 1) { // not an integer label
+                    reader.skip();
+                    reader.skip();
+                } else if (reader.readInt() == COSE_X) {
+                    encoded = reader.readBytes();
+                } else {
+                    reader.skip();
+                }
+            }
+        } catch (CborException e) {
+            throw new RuntimeException(e);
+        }
+        if (encoded == null) {
+            throw new RuntimeException("COSE key has no public key parameter");
+        }
 
         try {
             X509EncodedKeySpec decoded = new X509EncodedKeySpec(encoded);
-            return new EdDSAPublicKey(decoded);
+            return EdDSAPublicKeyCache.getInstance().get(decoded);
         } catch (InvalidKeySpecException e) {
             throw new RuntimeException(e);
         }
@@ -26,20 +26,21 @@
 
 package org.iton.fido.model;
 
-import android.util.Base64;
-
 import androidx.annotation.NonNull;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.upokecenter.cbor.CBORObject;
 
 import org.iton.fido.util.BinaryUtil;
+import org.iton.jssi.crypto.codec.Base64;
 import org.libsodium.api.Crypto_hash_sha256;
 import org.libsodium.jni.SodiumException;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 import com.google.common.base.Optional;
 
 /**
@@ -66,6 +67,14 @@ import com.google.common.base.Optional;
 @JsonSerialize(using = AuthenticatorData.JsonSerializer.class)
 public final class AuthenticatorData {
 
+    /**
+     * Length of the flags and counter following the rpIdHash.
+     */
+    private static final int FLAGS_COUNTER_LENGTH = 5;
+    private static final int MAX_RP_ID_HASHES = 64;
+    private static final Charset LATIN1 = Charset.forName("ISO-8859-1");
+    private static final ConcurrentHashMap<String, byte[]> RP_ID_HASHES = new ConcurrentHashMap<>();
+
     /**
      * The original raw byte array that this object is decoded from. This is a
      * byte array of 37 bytes or more.
@@ -76,12 +85,14 @@ public final class AuthenticatorData {
      */
     @NonNull
     private final byte[] rpId;
+    @NonNull
+    private final byte[] rpIdHash;
     /**
      * The 32-bit unsigned signature counter.
      *
      * @return
      */
-    private byte[] counter;
+    private int counter;
 
     /**
      * The flags bit field.
@@ -101,13 +112,24 @@ public final class AuthenticatorData {
     @NonNull
     private transient AttestedCredentialData attestedCredentialData;
     
+    /**
+     * The CBOR encoded extensions map, if present.
+     */
     @NonNull
-    private Optional<CBORObject> extensions;
+    private Optional<byte[]> extensions;
+
+    /**
+     * The encoded authenticator data in the first <code>length</code> bytes, possibly
+     * followed by the client data hash it was signed with. Reset by the setters.
+     */
+    private byte[] encoded;
+    private int length;
 
     private AuthenticatorData(@NonNull byte[] rpId, @NonNull AttestedCredentialData attestedCredentialData) {
         this.rpId = rpId;
+        this.rpIdHash = rpIdHash(rpId);
         this.flags = AuthenticatorDataFlags.builder().build();
-        this.counter = BinaryUtil.encodeUint32(0);
+        this.counter = 0;
         this.attestedCredentialData = attestedCredentialData;
         this.extensions = Optional.absent();
     }
@@ -156,11 +178,35 @@ public final class AuthenticatorData {
      * @return
      */
     public byte[] getRpIdHash() {
+        return rpIdHash.clone();
+    }
+
+    /**
+     * Hash an RP ID ahead of the ceremony, so that the authenticator data built once the
+     * options arrive finds it cached.
+     *
+     * @param rpId
+     */
+    public static void prepare(byte[] rpId) {
+        rpIdHash(rpId);
+    }
+
+    private static byte[] rpIdHash(byte[] rpId) {
+        String key = new String(rpId, LATIN1);
+        byte[] hash = RP_ID_HASHES.get(key);
+        if (hash != null) {
+            return hash;
+        }
         try {
-            return Crypto_hash_sha256.sha256(rpId);
+            hash = Crypto_hash_sha256.sha256(rpId);
         } catch(SodiumException e){
             return new byte[0];
         }
+        if (RP_ID_HASHES.size() >= MAX_RP_ID_HASHES) {
+            RP_ID_HASHES.clear();
+        }
+        RP_ID_HASHES.put(key, hash);
+        return hash;
     }
 
     /**
@@ -169,15 +215,16 @@ public final class AuthenticatorData {
      * @return
      */
     public int getCounter() {
-        return BinaryUtil.getUint32(counter);
+        return counter;
     }
     
     public void setCounter(int counter){
-        this.counter = BinaryUtil.encodeUint32(counter);
+        this.counter = counter;
+        this.encoded = null;
     }
 
     /**
-     * Extension-defined authenticator data, if present.
+     * Extension-defined authenticator data as an encoded CBOR map, if present.
      *
      * <p>
      * This member is present if and only if the
@@ -192,18 +239,19 @@ public final class AuthenticatorData {
      * @return
      * @see #flags
      */
-    public Optional<CBORObject> getExtensions() {
-        return extensions;
+    public Optional<byte[]> getExtensions() {
+        return extensions.isPresent() ? Optional.of(extensions.get().clone()) : extensions;
     }
     
-    public void setExtensions(Optional<CBORObject> extensions){
+    public void setExtensions(Optional<byte[]> extensions){
         this.extensions = extensions;
+        this.encoded = null;
     }
     
     static class JsonSerializer extends com.fasterxml.jackson.databind.JsonSerializer<AuthenticatorData> {
         @Override
         public void serialize(AuthenticatorData value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
-            gen.writeString(Base64.encodeToString(value.getBytes(), Base64.URL_SAFE | Base64.NO_PADDING));
+            gen.writeString(value.getBase64Url());
 
         }
     }
@@ -212,25 +260,75 @@ public final class AuthenticatorData {
      * The original raw byte array that this object is decoded from. This is a
      * byte array of 37 bytes or more.
      *
-     * @return
+     * @return a copy of the raw bytes
      * @see
      * <a href="https://www.w3.org/TR/webauthn/#sec-authenticator-data">§6.1.
      * Authenticator Data</a>
      */
     @NonNull
     public byte[] getBytes() {
+        return Arrays.copyOf(buffer(), length);
+    }
 
-        byte[] result = BinaryUtil.concat(
-                getRpIdHash(),
-                getFlags().getBytes(),
-                counter);
+    /**
+     * The raw byte array encoded as unpadded base64url.
+     *
+     * @return
+     */
+    @NonNull
+    public String getBase64Url() {
+        return Base64.encodeUrl(buffer(), 0, length);
+    }
+
+    /**
+     * The encoded authenticator data, valid up to {@link #length()}. Must not be modified.
+     */
+    byte[] buffer() {
+        byte[] result = encoded;
+        if (result == null) {
+            result = encode(0);
+        }
+        return result;
+    }
+
+    /**
+     * The length of the encoded authenticator data.
+     *
+     * @return
+     */
+    int length() {
+        buffer();
+        return length;
+    }
 
+    /**
+     * Encodes the authenticator data in a single pass into a buffer with <code>spare</code>
+     * trailing bytes, which the caller may fill with data to be signed along with it. The
+     * buffer is kept as the encoded form of this object.
+     *
+     * @param spare
+     * @return
+     */
+    byte[] encode(int spare) {
+        byte[] ext = extensions.orNull();
+        int size = rpIdHash.length + FLAGS_COUNTER_LENGTH
+                + (attestedCredentialData != null ? attestedCredentialData.length() : 0)
+                + (ext != null ? ext.length : 0);
+
+        byte[] result = new byte[size + spare];
+        System.arraycopy(rpIdHash, 0, result, 0, rpIdHash.length);
+        int offset = rpIdHash.length;
+        result[offset++] = flags.getValue();
+        offset = BinaryUtil.putUint32(result, offset, counter);
         if (attestedCredentialData != null) {
-            result = BinaryUtil.concat(result, attestedCredentialData.getBytes());
+            offset = attestedCredentialData.encode(result, offset);
         }
-        if (extensions.isPresent()) {
-            result = BinaryUtil.concat(result, extensions.get().EncodeToBytes());
+        if (ext != null) {
+            System.arraycopy(ext, 0, result, offset, ext.length);
         }
+
+        this.length = size;
+        this.encoded = result;
         return result;
     }
 
@@ -245,6 +343,7 @@ public final class AuthenticatorData {
     }
     public void setFlags(AuthenticatorDataFlags flags){
         this.flags = flags;
+        this.encoded = null;
     }
 
     /**
@@ -131,4 +131,8 @@ public final class AuthenticatorDataFlags {
     public byte[] getBytes(){
         return new byte[]{flag};
     }
+
+    public byte getValue(){
+        return flag;
+    }
 }
@@ -0,0 +1,131 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.fido.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import org.iton.fido.util.ByteArray;
+import org.iton.fido.util.JacksonCodecs;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * The client data JSON signed along with the authenticator data.
+ *
+ * @see <a href="https://www.w3.org/TR/webauthn/#sec-client-data">§5.10.1. Client Data Used in WebAuthn Signatures</a>
+ * @author ITON Solutions
+ */
+public final class ClientData {
+
+    public static final String TYPE_CREATE = "webauthn.create";
+    public static final String TYPE_GET = "webauthn.get";
+
+    private ClientData() {
+    }
+
+    /**
+     * Writes the client data JSON without building an intermediate tree.
+     *
+     * @param challenge
+     * @param origin
+     * @param type
+     * @return
+     * @throws IOException
+     */
+    public static String write(ByteArray challenge, String origin, String type) throws IOException {
+        return write(challenge.getBase64Url(), origin, type);
+    }
+
+    /**
+     * Writes the client data JSON around a challenge that is not known yet.
+     *
+     * @param origin
+     * @param type
+     * @return
+     * @throws IOException
+     */
+    public static Template template(String origin, String type) throws IOException {
+        String json = write(Template.PLACEHOLDER, origin, type);
+        // The challenge is the first member, so the first match is its value
+        int index = json.indexOf(Template.PLACEHOLDER);
+        return new Template(origin, type,
+                json.substring(0, index),
+                json.substring(index + Template.PLACEHOLDER.length()));
+    }
+
+    private static String write(String challenge, String origin, String type) throws IOException {
+        StringWriter result = new StringWriter(256);
+        try (JsonGenerator gen = JacksonCodecs.generator(result)) {
+            gen.writeStartObject();
+            gen.writeStringField("challenge", challenge);
+            gen.writeStringField("origin", origin);
+            gen.writeStringField("type", type);
+            gen.writeObjectFieldStart("tokenBinding");
+            gen.writeStringField("status", "supported");
+            gen.writeEndObject();
+            gen.writeObjectFieldStart("clientExtensions");
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+        return result.toString();
+    }
+
+    /**
+     * Client data JSON of one origin and type, split around the challenge. Base64url never
+     * needs escaping, so the challenge is spliced in as is.
+     */
+    public static final class Template {
+
+        static final String PLACEHOLDER = "$challenge$";
+
+        private final String origin;
+        private final String type;
+        private final String prefix;
+        private final String suffix;
+
+        private Template(String origin, String type, String prefix, String suffix) {
+            this.origin = origin;
+            this.type = type;
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        public boolean matches(String origin, String type) {
+            return this.origin.equals(origin) && this.type.equals(type);
+        }
+
+        public String write(ByteArray challenge) {
+            String encoded = challenge.getBase64Url();
+            return new StringBuilder(prefix.length() + encoded.length() + suffix.length())
+                    .append(prefix)
+                    .append(encoded)
+                    .append(suffix)
+                    .toString();
+        }
+    }
+}
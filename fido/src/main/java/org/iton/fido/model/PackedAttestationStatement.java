@@ -31,12 +31,12 @@ import androidx.annotation.NonNull;
 
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import java.util.Arrays;
 
-import org.iton.fido.util.BinaryUtil;
 import org.libsodium.api.Crypto_hash_sha256;
 import org.libsodium.api.Crypto_sign_ed25519;
 import org.libsodium.jni.SodiumException;
+
+import static org.libsodium.jni.SodiumConstants.CRYPTO_HASH_SHA256;
 /**
  *
  * @author ITON Solutions
@@ -54,6 +54,7 @@ public class PackedAttestationStatement{
     
     public static class AttestationStatementBuilder{
         byte[] authenticatorData;
+        AuthenticatorData authenticator;
         byte[] clientData;
         byte[] privateKey;
         
@@ -69,6 +70,17 @@ public class PackedAttestationStatement{
             return this;
         }
 
+        /**
+         * Sign the authenticator data in place: it is encoded once into a buffer that holds
+         * both the signature input and the encoded form returned by the authenticator data.
+         * @param authenticatorData
+         * @return 
+         */
+        public AttestationStatementBuilder authenticatorData(@NonNull AuthenticatorData authenticatorData){
+            this.authenticator = authenticatorData;
+            return this;
+        }
+
         public AttestationStatementBuilder clientData(@NonNull byte[] clientData){
             this.clientData = clientData;
             return this;
@@ -80,13 +92,22 @@ public class PackedAttestationStatement{
             ObjectNode result = factory.objectNode();
             
             try {
-                byte[] data = BinaryUtil.concat(authenticatorData, Crypto_hash_sha256.sha256(clientData));
-                byte[] sig = Crypto_sign_ed25519.sign(data, privateKey);
-                result.set("sig", factory.binaryNode(Arrays.copyOfRange(sig, 0, sig.length - data.length))); // detach data
+                // authenticatorData || sha256(clientData)
+                byte[] data;
+                if (authenticator != null) {
+                    data = authenticator.encode(CRYPTO_HASH_SHA256);
+                } else {
+                    data = new byte[authenticatorData.length + CRYPTO_HASH_SHA256];
+                    System.arraycopy(authenticatorData, 0, data, 0, authenticatorData.length);
+                }
+                System.arraycopy(Crypto_hash_sha256.sha256(clientData), 0, data, data.length - CRYPTO_HASH_SHA256, CRYPTO_HASH_SHA256);
+
+                byte[] sig = Crypto_sign_ed25519.detached(data, privateKey);
+                result.set("sig", factory.binaryNode(sig));
                 result.set("alg", factory.numberNode(-8)); // EdDSA(-8)
 
             } catch (SodiumException e) {
-                Log.e("Sodium exception {}", e.getMessage());
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
             }
 
             return () -> result;
@@ -47,7 +47,9 @@ import org.iton.fido.ui.permission.Constants;
 import org.iton.fido.ui.permission.Permission;
 import org.iton.fido.ui.permission.PermissionResponse;
 import org.iton.fido.ui.permission.PermissionResultCallback;
+import org.iton.fido.wss.WSSessionManager;
 import org.iton.jssi.crypto.CryptoService;
+import org.iton.jssi.crypto.KeyPool;
 import org.iton.jssi.store.DatabaseHelper;
 import org.iton.jssi.wallet.Wallet;
 import org.iton.jssi.wallet.WalletCredential;
@@ -59,7 +61,6 @@ import java.util.List;
 
 import io.reactivex.Observer;
 import io.reactivex.disposables.Disposable;
-import io.reactivex.schedulers.Schedulers;
 
 /**
  * Created by ITON Solutions on 26/09/2019.
@@ -72,6 +73,7 @@ public class FidoService extends Service {
     private Fido app;
     private WalletService walletService;
     private CryptoService cryptoService;
+    private KeyPool keyPool;
     private StoreService storeService;
 
 
@@ -100,6 +102,19 @@ public class FidoService extends Service {
         requestPermissions(true, setPermissionOn(app, permissions));
     }
 
+    @Override
+    public void onDestroy() {
+        Log.d(TAG, "Stop Fido service");
+        if (keyPool != null) {
+            keyPool.close();
+        }
+        WSSessionManager.getInstance().closeAll();
+        if (walletService != null) {
+            walletService.close();
+        }
+        super.onDestroy();
+    }
+
     private void requestPermissions(boolean async, List<String> permissions) {
 
         if (async) {
@@ -156,7 +171,7 @@ public class FidoService extends Service {
         DatabaseHelper helper = new DatabaseHelper("ubicua.db", app);
         walletService = new WalletService(app, credential, helper);
 
-        walletService.open().subscribeOn(Schedulers.newThread()).subscribe(new Observer<Wallet>() {
+        walletService.open().subscribe(new Observer<Wallet>() {
             @Override
             public void onSubscribe(Disposable disposable) {
                 Log.d(TAG, "Received SUBSCRIBED event");
@@ -177,7 +192,8 @@ public class FidoService extends Service {
             public void onComplete() {
                 Log.d(TAG, "Received COMPLETED event");
                 Log.d(TAG, "Start Crypto service");
-                cryptoService = new CryptoService();
+                keyPool = new KeyPool();
+                cryptoService = new CryptoService(keyPool);
                 storeService = new StoreService(app);
                 Intent intent = new Intent();
                 intent.setAction(LauncherActivity.BROADCAST_ACTION);
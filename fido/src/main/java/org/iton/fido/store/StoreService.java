@@ -30,8 +30,8 @@ import android.content.Context;
 import android.content.SharedPreferences;
 import android.util.Log;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.iton.fido.util.JacksonCodecs;
 import org.iton.jssi.did.Did;
 import org.iton.jssi.store.PreexistingEntityException;
 import org.iton.jssi.wallet.Wallet;
@@ -82,7 +82,7 @@ public class StoreService {
 
     public void setDid(Did did) {
         try {
-            String result = new ObjectMapper().writeValueAsString(did);
+            String result = JacksonCodecs.DID_WRITER.writeValueAsString(did);
             preference.edit()
                     .putBoolean(FIDO_FIRST_LAUNCH, Boolean.FALSE)
                     .putInt(FIDO_COUNTER, 0)
@@ -96,7 +96,7 @@ public class StoreService {
     public Did getDid() {
         String did = preference.getString(FIDO_DID, null);
         try {
-            return did == null ? null : new ObjectMapper().readValue(did, Did.class);
+            return did == null ? null : JacksonCodecs.DID_READER.readValue(did);
         } catch(IOException e){
             Log.e(TAG, String.format("Error: %s", e.getCause().getMessage()));
             return null;
@@ -42,6 +42,8 @@ import com.google.zxing.Result;
 
 import org.iton.fido.Fido;
 import org.iton.fido.R;
+import org.iton.fido.core.CeremonyStager;
+import org.iton.fido.model.ClientData;
 import org.iton.fido.ui.home.MainActivity;
 import org.iton.fido.ui.register.FinishRegistrationHandler;
 import org.iton.fido.ui.register.StartRegistrationHandler;
@@ -67,6 +69,7 @@ public class AuthenticateActivity extends Activity implements ZXingScannerView.R
     private ArrayList<Integer> selectedIndices;
     private int cameraId = -1;
     private Fido app;
+    private CeremonyStager stager;
 
    @Override
     protected void onCreate(Bundle state) {
@@ -127,11 +130,21 @@ public class AuthenticateActivity extends Activity implements ZXingScannerView.R
         String action = message.replace(sessionId, "authenticate");
         Log.d(TAG, String.format("Received sessionId: %s from: %s", sessionId, uri.getAuthority()));
 
-        StartAuthenticationHandler start = new StartAuthenticationHandler(app, sessionId, action);
+        // Connect and unlock the keys while the start message is on its way
+        CeremonyStager stager = CeremonyStager.stage(app, action, ClientData.TYPE_GET);
+        CeremonyStager.close(this.stager);
+        this.stager = stager;
+
+        StartAuthenticationHandler start = new StartAuthenticationHandler(app, sessionId, action, stager);
         start.handle((authentication, request) -> {
             Log.d(TAG, String.format("Received action: %s", authentication));
-            FinishAuthenticationHandler finish = new FinishAuthenticationHandler(app, request, authentication);
-            finish.handle(() -> startActivityAndFinish(new Intent(getBaseContext(), MainActivity.class)));
+            stager.mark(CeremonyStager.Phase.OPTIONS_RECEIVED);
+            FinishAuthenticationHandler finish = new FinishAuthenticationHandler(app, request, authentication, stager);
+            finish.handle(() -> {
+                stager.mark(CeremonyStager.Phase.FINISHED);
+                stager.report();
+                startActivityAndFinish(new Intent(getBaseContext(), MainActivity.class));
+            });
         });
     }
 
@@ -141,6 +154,13 @@ public class AuthenticateActivity extends Activity implements ZXingScannerView.R
         scannerView.stopCamera();
     }
 
+    @Override
+    protected void onDestroy() {
+        // Clears the keys of a ceremony that did not get to sign
+        CeremonyStager.close(stager);
+        super.onDestroy();
+    }
+
     public void setupFormats() {
         List<BarcodeFormat> formats = new ArrayList<>();
         if(selectedIndices == null || selectedIndices.isEmpty()) {
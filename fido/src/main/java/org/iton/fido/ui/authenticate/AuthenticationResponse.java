@@ -26,57 +26,112 @@
 
 package org.iton.fido.ui.authenticate;
 
-import android.util.Base64;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.base.Optional;
 
 import org.iton.fido.Fido;
 import org.iton.fido.core.Authenticator;
+import org.iton.fido.core.CeremonyStager;
 import org.iton.fido.model.AssertionRequest;
+import org.iton.fido.model.ClientData;
 import org.iton.fido.store.StoreService;
 import org.iton.fido.util.ByteArray;
+import org.iton.fido.util.CborWriter;
+import org.iton.fido.util.JacksonCodecs;
+import org.iton.jssi.crypto.codec.Base64;
 
 import java.io.IOException;
+import java.io.StringWriter;
 
 /**
  * Created by ITON Solutions on 03/10/2019.
  */
 public class AuthenticationResponse {
 
+    private static final String CREDENTIAL_ID = "iOOGPqcfeovZAXe2RSiCKUXKS5peMlPDfk7ib7Q1JfQ";
+
     private AssertionRequest request;
     private Fido app;
+    private CeremonyStager stager;
 
     public AuthenticationResponse(Fido app, AssertionRequest request){
+        this(app, request, null);
+    }
+
+    public AuthenticationResponse(Fido app, AssertionRequest request, CeremonyStager stager){
         this.app = app;
         this.request = request;
+        this.stager = stager;
     }
 
     public String finish(byte[] publicKey, byte[] privateKey, String origin) throws IOException {
 
         String requestId = request.getRequestId().getBase64Url();
+        String clientDataString = clientData(origin);
+        Authenticator authenticator = authenticator(publicKey, privateKey, clientDataString);
+
+        byte[] signature = authenticator.getAttestationStatement().getObjectNode().get("sig").binaryValue();
+
+        StringWriter result = new StringWriter(1024);
+        try (JsonGenerator gen = JacksonCodecs.generator(result)) {
+            gen.writeStartObject();
+            gen.writeStringField("requestId", requestId);
+            gen.writeObjectFieldStart("credential");
+            gen.writeStringField("id", CREDENTIAL_ID);
+            gen.writeObjectFieldStart("response");
+            gen.writeStringField("authenticatorData", authenticator.getAuthenticatorData().getBase64Url());
+            gen.writeStringField("clientDataJSON", new ByteArray(clientDataString.getBytes()).getBase64());
+            gen.writeStringField("signature", Base64.encodeUrl(signature));
+            gen.writeEndObject();
+            gen.writeObjectFieldStart("clientExtensionResults");
+            gen.writeEndObject();
+            gen.writeStringField("type", "public-key");
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+        return result.toString();
+    }
+
+    /**
+     * The same response as {@link #finish} as a CBOR map, with the binary members as byte
+     * strings instead of base64 text.
+     */
+    public byte[] finishBinary(byte[] publicKey, byte[] privateKey, String origin) throws IOException {
+
+        String requestId = request.getRequestId().getBase64Url();
+        String clientDataString = clientData(origin);
+        Authenticator authenticator = authenticator(publicKey, privateKey, clientDataString);
+
+        byte[] signature = authenticator.getAttestationStatement().getObjectNode().get("sig").binaryValue();
+        byte[] authenticatorData = authenticator.getAuthenticatorData().getBytes();
+
+        // Canonical key order
+        return new CborWriter(authenticatorData.length + 512)
+                .writeMap(2)
+                .writeText("requestId").writeText(requestId)
+                .writeText("credential").writeMap(4)
+                .writeText("id").writeText(CREDENTIAL_ID)
+                .writeText("type").writeText("public-key")
+                .writeText("response").writeMap(3)
+                .writeText("signature").writeBytes(signature)
+                .writeText("clientDataJSON").writeBytes(clientDataString.getBytes())
+                .writeText("authenticatorData").writeBytes(authenticatorData)
+                .writeText("clientExtensionResults").writeMap(0)
+                .toByteArray();
+    }
+
+    private String clientData(String origin) throws IOException {
         ByteArray challenge = request.getPublicKeyCredentialRequestOptions().getChallenge();
+        return stager != null ? stager.clientData(challenge, origin) : ClientData.write(challenge, origin, ClientData.TYPE_GET);
+    }
+
+    private Authenticator authenticator(byte[] publicKey, byte[] privateKey, String clientDataString) {
         Optional<String> rpId = request.getPublicKeyCredentialRequestOptions().getRpId();
 
         // Internal Authenticator counter
         StoreService store = app.getService().getStoreService();
         Integer counter = store.getCounter();
 
-        ObjectMapper mapper = new ObjectMapper();
-
-        ObjectNode tokenBinding = mapper.createObjectNode();
-        tokenBinding.put("status", "supported");
-
-        ObjectNode clientDataJson = mapper.createObjectNode();
-        clientDataJson.put("challenge", challenge.getBase64Url());
-        clientDataJson.put("origin", origin);
-        clientDataJson.put("type", "webauthn.get");
-        clientDataJson.set("tokenBinding", tokenBinding);
-        clientDataJson.set("clientExtensions", mapper.createObjectNode());
-
-        String clientDataString = new ObjectMapper().writeValueAsString(clientDataJson);
-
         Authenticator authenticator = Authenticator.builder()
                 .publicKey(publicKey)
                 .rpId(rpId.isPresent() ? rpId.get().getBytes() : new byte[0])
@@ -85,25 +140,6 @@ public class AuthenticationResponse {
                 .build();
 
         store.setCounter(counter);
-
-        byte[] signature = authenticator.getAttestationStatement().getObjectNode().get("sig").binaryValue();
-
-        ObjectNode authenticatorAssertionResponse = mapper.createObjectNode();
-        authenticatorAssertionResponse.put("authenticatorData", Base64.encodeToString(authenticator.getAuthenticatorData().getBytes(), Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP));
-        authenticatorAssertionResponse.put("clientDataJSON", new ByteArray(clientDataString.getBytes()).getBase64());
-        authenticatorAssertionResponse.put("signature", Base64.encodeToString(signature, Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP));
-
-        ObjectNode publicKeyCredential = mapper.createObjectNode();
-        publicKeyCredential.put("id", "iOOGPqcfeovZAXe2RSiCKUXKS5peMlPDfk7ib7Q1JfQ");
-        publicKeyCredential.set("response", authenticatorAssertionResponse);
-        publicKeyCredential.set("clientExtensionResults", mapper.createObjectNode());
-        publicKeyCredential.put("type", "public-key");
-
-
-        ObjectNode response = mapper.createObjectNode();
-        response.put("requestId", requestId);
-        response.set("credential", publicKeyCredential);
-
-        return mapper.writeValueAsString(response);
+        return authenticator;
     }
 }
@@ -29,30 +29,21 @@ package org.iton.fido.ui.authenticate;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
-import org.bitcoinj.core.Base58;
 import org.iton.fido.Fido;
+import org.iton.fido.core.CeremonyStager;
 import org.iton.fido.model.AssertionRequest;
-import org.iton.fido.model.RegistrationRequest;
 import org.iton.fido.ui.register.FinishRegistrationListener;
-import org.iton.fido.ui.register.RegistrationResponse;
-import org.iton.fido.wss.WSClient;
-import org.iton.fido.wss.WSService;
-import org.iton.fido.wss.event.Connected;
-import org.iton.fido.wss.event.Event;
-import org.iton.jssi.crypto.Keys;
+import org.iton.fido.wss.WSSession;
+import org.iton.fido.wss.WSSessionManager;
+import org.iton.jssi.crypto.KeyRecord;
 import org.iton.jssi.did.Did;
-import org.iton.jssi.wallet.record.WalletRecord;
-import org.libsodium.jni.SodiumException;
-
-import java.io.IOException;
 
-import io.reactivex.Observer;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
 import io.reactivex.disposables.Disposable;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
+import okio.ByteString;
 
 /**
  * Created by ITON Solutions on 07/10/2019.
@@ -64,27 +55,49 @@ public class FinishAuthenticationHandler {
     private AssertionRequest request;
     private Fido app;
     private String action;
+    private CeremonyStager stager;
 
 
     public FinishAuthenticationHandler(@NonNull Fido app, @NonNull AssertionRequest request, @NonNull String action){
+        this(app, request, action, null);
+    }
+
+    public FinishAuthenticationHandler(@NonNull Fido app, @NonNull AssertionRequest request, @NonNull String action, @Nullable CeremonyStager stager){
         this.app = app;
         this.request = request;
         this.action = action;
+        this.stager = stager;
     }
 
     public void handle(FinishRegistrationListener listener) {
 
-        Request.Builder builder = new Request.Builder()
-                .get()
-                .url(action);
+        String origin = action.substring(0, action.lastIndexOf("/"));
 
+        AuthenticationResponse response = new AuthenticationResponse(app, request, stager);
+        Single<KeyRecord> keys = stager != null ? stager.keys() : Single.fromCallable(() -> {
+            Did did = app.getService().getStoreService().getDid();
+            Log.d(TAG, String.format("Keys: verkey: %s", did.verkey));
+            return KeyRecord.read(app.getService().getWalletService().getWallet(), did.verkey);
+        });
 
-        OkHttpClient client = new WSClient().getClient();
-        WSService ws = new WSService(client, builder.build());
-
-        ws.open().subscribe(new Observer<Event>() {
+        // Finish as CBOR when the server negotiated the binary subprotocol, JSON otherwise
+        WSSession session = WSSessionManager.getInstance().session(action);
+        Single<Boolean> finish = session.binary().flatMap(binary -> keys.flatMap(record -> {
+            try {
+                if (binary) {
+                    byte[] message = response.finishBinary(record.getVerkey(), record.getSignkey(), origin);
+                    CeremonyStager.mark(stager, CeremonyStager.Phase.SIGNED);
+                    return session.send(ByteString.of(message));
+                }
+                String message = response.finish(record.getVerkey(), record.getSignkey(), origin);
+                CeremonyStager.mark(stager, CeremonyStager.Phase.SIGNED);
+                return session.send(message);
+            } finally {
+                record.clear();
+            }
+        }));
 
-            String origin = action.substring(0, action.lastIndexOf("/"));
+        finish.subscribe(new SingleObserver<Boolean>() {
 
             @Override
             public void onSubscribe(Disposable disposable) {
@@ -92,34 +105,16 @@ public class FinishAuthenticationHandler {
             }
 
             @Override
-            public void onNext(Event event) {
-
-                Log.d(TAG, String.format("Received %s", event.toString()));
-                if (event instanceof Connected) {
-                    try {
-                        AuthenticationResponse response = new AuthenticationResponse(app, request);
-                        Did did = app.getService().getStoreService().getDid();
-                        WalletRecord record = app.getService().getWalletService().getWallet().findRecord(Keys.TYPE, did.verkey);
-                        Keys keys = new ObjectMapper().readValue(record.getValue(), Keys.class);
-                        Log.d(TAG, String.format("Keys: verkey: %s signkey: %s", keys.verkey, keys.signkey));
-                        String json = response.finish(Base58.decode(keys.verkey), Base58.decode(keys.signkey), origin);
-                        ws.sendMessage(event.sender(), json).subscribe();
-                        event.sender().close(1000, "Finish authentication request close");
-                    } catch (SodiumException | IOException e) {
-                        Log.e(TAG, String.format("Error: %s", e.getCause().getMessage()));
-                    }
-                }
+            public void onSuccess(Boolean sent) {
+                Log.d(TAG, String.format("Finish request sent: %s", sent));
+                CeremonyStager.mark(stager, CeremonyStager.Phase.SENT);
+                listener.onFinish();
             }
 
             @Override
             public void onError(Throwable throwable) {
                 Log.e(TAG, throwable.toString());
-            }
-
-            @Override
-            public void onComplete() {
-                Log.d(TAG, "Received COMPLETED event");
-                listener.onFinish();
+                CeremonyStager.close(stager);
             }
         });
     }
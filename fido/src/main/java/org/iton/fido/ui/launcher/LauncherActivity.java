@@ -37,17 +37,14 @@ import android.widget.ProgressBar;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import org.iton.fido.Fido;
 import org.iton.fido.R;
 import org.iton.fido.service.FidoService;
 import org.iton.fido.store.StoreService;
 import org.iton.fido.ui.home.MainActivity;
 import org.iton.fido.ui.onboard.OnboardActivity;
-import org.iton.jssi.crypto.Keys;
+import org.iton.jssi.crypto.KeyRecord;
 import org.iton.jssi.did.Did;
-import org.iton.jssi.wallet.record.WalletRecord;
 import org.libsodium.jni.SodiumException;
 
 import java.io.IOException;
@@ -88,9 +85,10 @@ public class LauncherActivity extends AppCompatActivity {
                     startActivityAndFinish(new Intent(getBaseContext(), OnboardActivity.class));
                 } else {
                     Did did = store.getDid();
-                    WalletRecord record = service.getWalletService().getWallet().findRecord(Keys.TYPE, did.verkey);
-                    Keys keys = new ObjectMapper().readValue(record.getValue(), Keys.class);
-                    Log.d(TAG, String.format("Keys: verkey: %s signkey: %s", keys.verkey, keys.signkey));
+                    // Also migrates a JSON key record to the binary form
+                    KeyRecord keys = KeyRecord.read(service.getWalletService().getWallet(), did.verkey);
+                    keys.clear();
+                    Log.d(TAG, String.format("Keys: verkey: %s", did.verkey));
 //                    startActivityAndFinish(new Intent(getBaseContext(), QRCodeActivity.class));
                     startActivityAndFinish(new Intent(getBaseContext(), MainActivity.class));
                 }
@@ -35,13 +35,13 @@ import android.widget.EditText;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.iton.fido.Fido;
 import org.iton.fido.R;
 import org.iton.fido.service.FidoService;
 import org.iton.fido.store.StoreService;
 import org.iton.fido.ui.register.RegisterActivity;
+import org.iton.fido.util.JacksonCodecs;
 import org.iton.jssi.did.Did;
 import org.iton.jssi.wallet.WalletService;
 import org.iton.jssi.wallet.record.WalletRecord;
@@ -79,7 +79,7 @@ public class OnboardActivity extends AppCompatActivity {
 
             try {
                 WalletRecord record = service.getWalletService().getWallet().findRecord(Did.TYPE, "EjABoD8BV1mxQhfTccCKw4");
-                Did did = new ObjectMapper().readValue(record.getValue(), Did.class);
+                Did did = JacksonCodecs.DID_READER.readValue(record.getValue());
                 service.getStoreService().setDid(did);
                 Log.d(TAG, String.format("Store Did: {did: %s, verkey: %s}", did.did, did.verkey));
                 startActivityAndFinish(new Intent(getBaseContext(), RegisterActivity.class));
@@ -42,6 +42,8 @@ import com.google.zxing.Result;
 
 import org.iton.fido.Fido;
 import org.iton.fido.R;
+import org.iton.fido.core.CeremonyStager;
+import org.iton.fido.model.ClientData;
 import org.iton.fido.ui.home.MainActivity;
 
 import java.net.URI;
@@ -65,6 +67,7 @@ public class RegisterActivity extends Activity implements ZXingScannerView.Resul
     private ArrayList<Integer> selectedIndices;
     private int cameraId = -1;
     private Fido app;
+    private CeremonyStager stager;
 
    @Override
     protected void onCreate(Bundle state) {
@@ -125,11 +128,21 @@ public class RegisterActivity extends Activity implements ZXingScannerView.Resul
         String action = message.replace(sessionId, "register");
         Log.d(TAG, String.format("Received sessionId: %s from: %s", sessionId, uri.getAuthority()));
 
-        StartRegistrationHandler start = new StartRegistrationHandler(app, sessionId, action);
+        // Connect and unlock the keys while the start message is on its way
+        CeremonyStager stager = CeremonyStager.stage(app, action, ClientData.TYPE_CREATE);
+        CeremonyStager.close(this.stager);
+        this.stager = stager;
+
+        StartRegistrationHandler start = new StartRegistrationHandler(app, sessionId, action, stager);
         start.handle((register, request) -> {
             Log.d(TAG, String.format("Received action: %s", register));
-            FinishRegistrationHandler finish = new FinishRegistrationHandler(app, request, register);
-            finish.handle(() -> startActivityAndFinish(new Intent(getBaseContext(), MainActivity.class)));
+            stager.mark(CeremonyStager.Phase.OPTIONS_RECEIVED);
+            FinishRegistrationHandler finish = new FinishRegistrationHandler(app, request, register, stager);
+            finish.handle(() -> {
+                stager.mark(CeremonyStager.Phase.FINISHED);
+                stager.report();
+                startActivityAndFinish(new Intent(getBaseContext(), MainActivity.class));
+            });
         });
     }
 
@@ -139,6 +152,13 @@ public class RegisterActivity extends Activity implements ZXingScannerView.Resul
         scannerView.stopCamera();
     }
 
+    @Override
+    protected void onDestroy() {
+        // Clears the keys of a ceremony that did not get to sign
+        CeremonyStager.close(stager);
+        super.onDestroy();
+    }
+
     public void setupFormats() {
         List<BarcodeFormat> formats = new ArrayList<>();
         if(selectedIndices == null || selectedIndices.isEmpty()) {
@@ -26,70 +26,102 @@
 
 package org.iton.fido.ui.register;
 
-import android.util.Base64;
-
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 
 import org.iton.fido.core.Authenticator;
+import org.iton.fido.core.CeremonyStager;
+import org.iton.fido.model.ClientData;
 import org.iton.fido.model.RegistrationRequest;
 import org.iton.fido.model.RelyingPartyIdentity;
 import org.iton.fido.util.ByteArray;
+import org.iton.fido.util.CborWriter;
+import org.iton.fido.util.JacksonCodecs;
+import org.iton.jssi.crypto.codec.Base64;
+
+import java.io.IOException;
+import java.io.StringWriter;
 
 /**
  * Created by ITON Solutions on 03/10/2019.
  */
 public class RegistrationResponse {
 
+    private static final String CREDENTIAL_ID = "iOOGPqcfeovZAXe2RSiCKUXKS5peMlPDfk7ib7Q1JfQ";
+
     private RegistrationRequest request;
+    private CeremonyStager stager;
 
     public RegistrationResponse(RegistrationRequest request){
+        this(request, null);
+    }
+
+    public RegistrationResponse(RegistrationRequest request, CeremonyStager stager){
         this.request = request;
+        this.stager = stager;
     }
 
-    public String finish(byte[] publicKey, byte[] privateKey, String origin) throws JsonProcessingException {
+    public String finish(byte[] publicKey, byte[] privateKey, String origin) throws IOException {
 
         String requestId = request.getRequestId().getBase64Url();
-        ByteArray challenge = request.getPublicKeyCredentialCreationOptions().getChallenge();
-        RelyingPartyIdentity identity = request.getPublicKeyCredentialCreationOptions().getRp();
-
-        ObjectMapper mapper = new ObjectMapper();
+        String clientDataString = clientData(origin);
+        Authenticator authenticator = authenticator(publicKey, privateKey, clientDataString);
+
+        StringWriter result = new StringWriter(1024);
+        try (JsonGenerator gen = JacksonCodecs.generator(result)) {
+            gen.writeStartObject();
+            gen.writeStringField("requestId", requestId);
+            gen.writeObjectFieldStart("credential");
+            gen.writeStringField("id", CREDENTIAL_ID);
+            gen.writeObjectFieldStart("response");
+            gen.writeStringField("attestationObject", Base64.encodeUrl(authenticator.getAttestationObject().getBytes()));
+            gen.writeStringField("clientDataJSON", new ByteArray(clientDataString.getBytes()).getBase64());
+            gen.writeEndObject();
+            gen.writeObjectFieldStart("clientExtensionResults");
+            gen.writeEndObject();
+            gen.writeStringField("type", "public-key");
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+        return result.toString();
+    }
 
-        ObjectNode tokenBinding = mapper.createObjectNode();
-        tokenBinding.put("status", "supported");
+    /**
+     * The same response as {@link #finish} as a CBOR map, with the binary members as byte
+     * strings instead of base64 text.
+     */
+    public byte[] finishBinary(byte[] publicKey, byte[] privateKey, String origin) throws IOException {
 
-        ObjectNode clientDataJson = mapper.createObjectNode();
-        clientDataJson.put("challenge", challenge.getBase64Url());
-        clientDataJson.put("origin", origin);
-        clientDataJson.put("type", "webauthn.create");
-        clientDataJson.set("tokenBinding", tokenBinding);
-        clientDataJson.set("clientExtensions", mapper.createObjectNode());
+        String requestId = request.getRequestId().getBase64Url();
+        String clientDataString = clientData(origin);
+        Authenticator authenticator = authenticator(publicKey, privateKey, clientDataString);
+        byte[] attestationObject = authenticator.getAttestationObject().getBytes();
+
+        // Canonical key order
+        return new CborWriter(attestationObject.length + 512)
+                .writeMap(2)
+                .writeText("requestId").writeText(requestId)
+                .writeText("credential").writeMap(4)
+                .writeText("id").writeText(CREDENTIAL_ID)
+                .writeText("type").writeText("public-key")
+                .writeText("response").writeMap(2)
+                .writeText("clientDataJSON").writeBytes(clientDataString.getBytes())
+                .writeText("attestationObject").writeBytes(attestationObject)
+                .writeText("clientExtensionResults").writeMap(0)
+                .toByteArray();
+    }
 
-        String clientDataString = new ObjectMapper().writeValueAsString(clientDataJson);
+    private String clientData(String origin) throws IOException {
+        ByteArray challenge = request.getPublicKeyCredentialCreationOptions().getChallenge();
+        return stager != null ? stager.clientData(challenge, origin) : ClientData.write(challenge, origin, ClientData.TYPE_CREATE);
+    }
 
-        Authenticator authenticator = Authenticator.builder()
+    private Authenticator authenticator(byte[] publicKey, byte[] privateKey, String clientDataString) {
+        RelyingPartyIdentity identity = request.getPublicKeyCredentialCreationOptions().getRp();
+        return Authenticator.builder()
                 .publicKey(publicKey)
                 .rpId(identity.getId().getBytes())
                 .counter(0)
                 .attestationStatement(privateKey, clientDataString.getBytes())
                 .build();
-
-        ObjectNode authenticationAttestationResponse = mapper.createObjectNode();
-        authenticationAttestationResponse.put("attestationObject", Base64.encodeToString(authenticator.getAttestationObject().getBytes(), Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP));
-        authenticationAttestationResponse.put("clientDataJSON", new ByteArray(clientDataString.getBytes()).getBase64());
-
-
-        ObjectNode publicKeyCredential = mapper.createObjectNode();
-        publicKeyCredential.put("id", "iOOGPqcfeovZAXe2RSiCKUXKS5peMlPDfk7ib7Q1JfQ");
-        publicKeyCredential.set("response", authenticationAttestationResponse);
-        publicKeyCredential.set("clientExtensionResults", mapper.createObjectNode());
-        publicKeyCredential.put("type", "public-key");
-
-        ObjectNode response = mapper.createObjectNode();
-        response.put("requestId", requestId);
-        response.set("credential", publicKeyCredential);
-
-        return mapper.writeValueAsString(response);
     }
 }
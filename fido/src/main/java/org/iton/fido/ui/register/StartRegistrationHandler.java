@@ -29,26 +29,27 @@ package org.iton.fido.ui.register;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.iton.fido.Fido;
+import org.iton.fido.core.CeremonyStager;
 import org.iton.fido.model.StartRegistrationRequest;
 import org.iton.fido.model.User;
+import org.iton.fido.util.CborJson;
 import org.iton.fido.util.JacksonCodecs;
-import org.iton.fido.wss.WSClient;
-import org.iton.fido.wss.WSService;
-import org.iton.fido.wss.event.Connected;
-import org.iton.fido.wss.event.Disconnected;
+import org.iton.fido.wss.WSSession;
+import org.iton.fido.wss.WSSessionManager;
 import org.iton.fido.wss.event.Event;
-import org.iton.fido.wss.event.StringMessage;
 import org.iton.jssi.did.Did;
 
-import io.reactivex.Observer;
+import java.io.IOException;
+
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
 import io.reactivex.disposables.Disposable;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
+import okio.ByteString;
 
 /**
  * Created by ITON Solutions on 07/10/2019.
@@ -60,25 +61,45 @@ public class StartRegistrationHandler {
     private Fido app;
     private String sessionId;
     private String action;
+    private CeremonyStager stager;
 
     public StartRegistrationHandler(@NonNull Fido app, @NonNull String sessionId, @NonNull String action){
+        this(app, sessionId, action, null);
+    }
+
+    /**
+     * @param stager closed if the start exchange fails, so its keys are cleared
+     */
+    public StartRegistrationHandler(@NonNull Fido app, @NonNull String sessionId, @NonNull String action, @Nullable CeremonyStager stager){
         this.app = app;
         this.sessionId = sessionId;
         this.action = action;
+        this.stager = stager;
     }
 
     public void handle(StartRegistrationListener listener){
 
-        Request.Builder builder = new Request.Builder()
-                .get()
-                .url(action);
+        Did did = app.getService().getStoreService().getDid();
+        String username = app.getService().getStoreService().getUsername();
 
-        OkHttpClient client = new WSClient().getClient();
-        WSService ws = new WSService(client, builder.build());
+        User user;
+        String json;
+        try {
+            user = new User(sessionId, username, "Vladimir", did.did);
+            json = JacksonCodecs.USER.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            Log.e(TAG, String.format("Error: %s", e.getMessage()));
+            CeremonyStager.close(stager);
+            return;
+        }
 
-        ws.open().subscribe(new Observer<Event>() {
+        // Start as CBOR when the server negotiated the binary subprotocol, JSON otherwise
+        WSSession session = WSSessionManager.getInstance().session(action);
+        Single<Event> reply = session.binary().flatMap(binary -> binary
+                ? session.exchange(ByteString.of(CborJson.encode(JacksonCodecs.json().valueToTree(user))), sessionId)
+                : session.exchange(json, sessionId));
 
-            StartRegistrationRequest request;
+        reply.subscribe(new SingleObserver<Event>() {
 
             @Override
             public void onSubscribe(Disposable disposable) {
@@ -86,50 +107,26 @@ public class StartRegistrationHandler {
             }
 
             @Override
-            public void onNext(Event event) {
-
-                Log.d(TAG, String.format("Received %s" , event.toString()));
-                if(event instanceof Connected){
-
-                    Did did = app.getService().getStoreService().getDid();
-                    String username = app.getService().getStoreService().getUsername();
-
-                    try {
-                        User user = new User(sessionId, username, "Vladimir", did.did);
-                        ObjectMapper mapper = JacksonCodecs.json();
-                        String json = mapper.writeValueAsString(user);
-                        ws.sendMessage(event.sender(), json).subscribe();
-                    } catch (JsonProcessingException e) {
-                        Log.e(TAG, String.format("Error: %s", e.getMessage()));
-                    }
-
-                } else if(event instanceof StringMessage){
-
-                    try {
-                        ObjectMapper mapper = JacksonCodecs.json();
-                        request = mapper.readValue(((StringMessage) event).message(), StartRegistrationRequest.class);
-                        if(request.isSuccess()){
-                            event.sender().close(1000, "Start registration request close");
-                        }
-                    } catch (Exception e) {
-                        Log.e(TAG, String.format("Error: %s", e.getMessage()));
-                        event.sender().close(2000, e.getMessage());
+            public void onSuccess(Event message) {
+                Log.d(TAG, String.format("Received %s", message));
+                try {
+                    StartRegistrationRequest request = WSSession.decode(JacksonCodecs.START_REGISTRATION_REQUEST, message);
+                    if (!request.isSuccess() || request.getAction() == null || request.getRequest() == null) {
+                        Log.e(TAG, String.format("Error: start registration refused %s", message));
+                        CeremonyStager.close(stager);
+                        return;
                     }
-                } else if(event instanceof Disconnected){
+                    listener.onStart(request.getAction(), request.getRequest());
+                } catch (IOException e) {
+                    Log.e(TAG, String.format("Error: %s", e.getMessage()));
+                    CeremonyStager.close(stager);
                 }
             }
 
             @Override
             public void onError(Throwable e) {
                 Log.e(TAG, String.format("Error: %s", e.getMessage()));
-            }
-
-            @Override
-            public void onComplete() {
-                Log.d(TAG, "Received COMPLETED event");
-                if(request != null) {
-                    listener.onStart(request.getAction(), request.getRequest());
-                }
+                CeremonyStager.close(stager);
             }
         });
     }
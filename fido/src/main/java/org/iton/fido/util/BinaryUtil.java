@@ -29,7 +29,7 @@ package org.iton.fido.util;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
-import org.spongycastle.util.encoders.Hex;
+import org.iton.jssi.crypto.codec.Hex;
 
 
 public class BinaryUtil {
@@ -44,7 +44,7 @@ public class BinaryUtil {
      * @return 
      */
     public static String toHex(byte[] bytes) {
-        return Hex.toHexString(bytes);
+        return Hex.encode(bytes);
     }
 
     /**
@@ -142,6 +142,33 @@ public class BinaryUtil {
         return b.array();
     }
 
+    /**
+     * Writes <code>value</code> as a big-endian unsigned 16-bit integer at <code>offset</code>.
+     *
+     * @return the offset following the written bytes
+     */
+    public static int putUint16(byte[] out, int offset, int value) {
+        ExceptionUtil.assure(value >= 0, "Argument must be non-negative, was: %d", value);
+        ExceptionUtil.assure(value < 65536, "Argument must be smaller than 2^15=65536, was: %d", value);
+
+        out[offset] = (byte) (value >>> 8);
+        out[offset + 1] = (byte) value;
+        return offset + 2;
+    }
+
+    /**
+     * Writes <code>value</code> as a big-endian 32-bit integer at <code>offset</code>.
+     *
+     * @return the offset following the written bytes
+     */
+    public static int putUint32(byte[] out, int offset, int value) {
+        out[offset] = (byte) (value >>> 24);
+        out[offset + 1] = (byte) (value >>> 16);
+        out[offset + 2] = (byte) (value >>> 8);
+        out[offset + 3] = (byte) value;
+        return offset + 4;
+    }
+
     /**
      * Returns the values from each provided array combined into a single array. For example, {@code
      * concat(new byte[] {a, b}, new byte[] {}, new byte[] {c}} returns the array {@code {a, b, c}}.
@@ -28,23 +28,29 @@ package org.iton.fido.util;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
+import org.iton.jssi.crypto.codec.Base64;
 import org.jetbrains.annotations.NotNull;
-import org.spongycastle.util.Arrays;
 
-import android.util.Base64;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import androidx.annotation.NonNull;
 
 /**
  * An immutable byte array with support for encoding/decoding to/from various encodings.
+ * <p>
+ * Encodings are computed on first use and cached.
  */
 @JsonSerialize(using = JsonStringSerializer.class)
 public final class ByteArray implements Comparable<ByteArray>, JsonStringSerializable {
 
     @NonNull
     private final byte[] bytes;
-    @NonNull
-    private final String base64;
+    // Racy caches, like String.hashCode, every thread computes the same value
+    private String base64;
+    private String base64Url;
+    private String hex;
+    private int hash;
 
     /**
      * Create a new instance by copying the contents of <code>bytes</code>.
@@ -52,17 +58,30 @@ public final class ByteArray implements Comparable<ByteArray>, JsonStringSeriali
      */
     public ByteArray(@NonNull byte[] bytes) {
         this.bytes = BinaryUtil.copy(bytes);
-        this.base64 = Base64.encodeToString(this.bytes, Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP);
     }
 
     @JsonCreator
     private ByteArray(@NotNull String base64) throws Base64UrlException {
         try {
-            this.bytes = Base64.decode(base64, Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP);
+            this.bytes = Base64.decodeUrl(base64);
         } catch (IllegalArgumentException e) {
             throw new Base64UrlException("Invalid Base64Url encoding: " + base64, e);
         }
-        this.base64 = base64;
+        this.base64Url = base64;
+    }
+
+    private ByteArray(@NonNull byte[] bytes, boolean copy) {
+        this.bytes = copy ? BinaryUtil.copy(bytes) : bytes;
+    }
+
+    /**
+     * Create a new instance sharing <code>bytes</code> without copying. The caller must not
+     * modify the array afterwards.
+     * @param bytes
+     * @return
+     */
+    public static ByteArray wrap(@NonNull byte[] bytes) {
+        return new ByteArray(bytes, false);
     }
 
     /**
@@ -71,7 +90,7 @@ public final class ByteArray implements Comparable<ByteArray>, JsonStringSeriali
      * @return 
      */
     public static ByteArray fromBase64(@NonNull final String base64) {
-        return new ByteArray(Base64.decode(base64, Base64.URL_SAFE | Base64.NO_PADDING | Base64.NO_WRAP));
+        return wrap(Base64.decodeUrl(base64));
     }
 
     /**
@@ -94,7 +113,7 @@ public final class ByteArray implements Comparable<ByteArray>, JsonStringSeriali
      */
     public static ByteArray fromHex(@NonNull final String hex) throws HexException {
         try {
-            return new ByteArray(BinaryUtil.fromHex(hex));
+            return wrap(BinaryUtil.fromHex(hex));
         } catch (Exception e) {
             throw new HexException("Invalid hexadecimal encoding: " + hex, e);
         }
@@ -105,7 +124,9 @@ public final class ByteArray implements Comparable<ByteArray>, JsonStringSeriali
      * @return a new instance containing a copy of this instance followed by a copy of <code>tail</code>.
      */
     public ByteArray concat(@NonNull ByteArray tail) {
-        return new ByteArray(Arrays.concatenate(this.bytes, tail.bytes));
+        byte[] result = Arrays.copyOf(this.bytes, this.bytes.length + tail.bytes.length);
+        System.arraycopy(tail.bytes, 0, result, this.bytes.length, tail.bytes.length);
+        return wrap(result);
     }
 
     public boolean isEmpty() {
@@ -123,25 +144,58 @@ public final class ByteArray implements Comparable<ByteArray>, JsonStringSeriali
         return BinaryUtil.copy(bytes);
     }
 
+    /**
+     * @return a read-only view of the raw byte contents, without copying.
+     */
+    public ByteBuffer asReadOnlyByteBuffer() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * Copies the raw byte contents into <code>dest</code>.
+     * @param dest
+     * @param offset
+     * @return the number of bytes copied.
+     */
+    public int copyTo(@NonNull byte[] dest, int offset) {
+        System.arraycopy(bytes, 0, dest, offset, bytes.length);
+        return bytes.length;
+    }
+
     /**
      * @return the content bytes encoded as classic Base64 data.
      */
     public String getBase64() {
-        return Base64.encodeToString(bytes, Base64.NO_PADDING | Base64.NO_WRAP);
+        String result = base64;
+        if (result == null) {
+            result = Base64.encode(bytes);
+            base64 = result;
+        }
+        return result;
     }
 
     /**
      * @return the content bytes encoded as Base64Url data.
      */
     public String getBase64Url() {
-        return base64;
+        String result = base64Url;
+        if (result == null) {
+            result = Base64.encodeUrl(bytes);
+            base64Url = result;
+        }
+        return result;
     }
 
     /**
      * @return the content bytes encoded as hexadecimal data.
      */
     public String getHex() {
-        return BinaryUtil.toHex(bytes);
+        String result = hex;
+        if (result == null) {
+            result = BinaryUtil.toHex(bytes);
+            hex = result;
+        }
+        return result;
     }
 
     /**
@@ -150,7 +204,7 @@ public final class ByteArray implements Comparable<ByteArray>, JsonStringSeriali
      */
     @Override
     public String toJsonString() {
-        return base64;
+        return getBase64Url();
     }
 
     @Override
@@ -171,13 +225,17 @@ public final class ByteArray implements Comparable<ByteArray>, JsonStringSeriali
         if (o == this) return true;
         if (!(o instanceof ByteArray)) return false;
         final ByteArray other = (ByteArray) o;
-        if (!Arrays.areEqual(this.getBytes(), other.getBytes())) return false;
-        return !(this.getBase64() == null ? other.getBase64() != null : !this.getBase64().equals(other.getBase64()));
+        return Arrays.equals(this.bytes, other.bytes);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(this.getBytes());
+        int result = hash;
+        if (result == 0) {
+            result = Arrays.hashCode(this.bytes);
+            hash = result;
+        }
+        return result;
     }
 
     @Override
@@ -0,0 +1,169 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.fido.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.iton.jssi.crypto.codec.Base64;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.iton.fido.util.CborWriter.MAJOR_ARRAY;
+import static org.iton.fido.util.CborWriter.MAJOR_BYTES;
+import static org.iton.fido.util.CborWriter.MAJOR_MAP;
+import static org.iton.fido.util.CborWriter.MAJOR_NEGATIVE;
+import static org.iton.fido.util.CborWriter.MAJOR_TAG;
+import static org.iton.fido.util.CborWriter.MAJOR_TEXT;
+import static org.iton.fido.util.CborWriter.MAJOR_UNSIGNED;
+
+/**
+ * Converts between CBOR and Jackson trees, so that the JSON model classes can be read from
+ * and written to binary messages.
+ *
+ * <p>
+ * Byte strings become unpadded base64url text, the encoding {@link ByteArray} reads from JSON.
+ * Maps are written with canonical key order. Reading stops at {@link CborReader#MAX_DEPTH}.
+ * </p>
+ *
+ * @author ITON Solutions
+ */
+public final class CborJson {
+
+    private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+    private CborJson() {
+    }
+
+    public static JsonNode toJson(byte[] cbor) throws CborException {
+        return toJson(new CborReader(cbor));
+    }
+
+    /**
+     * Reads the one item left in <code>reader</code>.
+     *
+     * @throws CborException if the item is malformed or followed by more data
+     */
+    public static JsonNode toJson(CborReader reader) throws CborException {
+        JsonNode result = read(reader, 0);
+        if (reader.hasNext()) {
+            throw new CborException("Trailing data after CBOR item");
+        }
+        return result;
+    }
+
+    public static byte[] encode(JsonNode node) {
+        CborWriter writer = new CborWriter();
+        write(writer, node);
+        return writer.toByteArray();
+    }
+
+    public static void write(CborWriter writer, JsonNode node) {
+        if (node.isObject()) {
+            List<String> names = new ArrayList<>(node.size());
+            Iterator<String> it = node.fieldNames();
+            while (it.hasNext()) {
+                names.add(it.next());
+            }
+            Collections.sort(names, CborWriter.CANONICAL_KEYS);
+            writer.writeMap(names.size());
+            for (String name : names) {
+                writer.writeText(name);
+                write(writer, node.get(name));
+            }
+        } else if (node.isArray()) {
+            writer.writeArray(node.size());
+            for (JsonNode item : node) {
+                write(writer, item);
+            }
+        } else if (node.isBinary()) {
+            try {
+                writer.writeBytes(node.binaryValue());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        } else if (node.isIntegralNumber()) {
+            writer.writeInt(node.longValue());
+        } else if (node.isTextual()) {
+            writer.writeText(node.textValue());
+        } else if (node.isBoolean()) {
+            writer.writeBoolean(node.booleanValue());
+        } else if (node.isNull() || node.isMissingNode()) {
+            writer.writeNull();
+        } else {
+            throw new IllegalArgumentException("Unsupported value: " + node.getNodeType());
+        }
+    }
+
+    private static JsonNode read(CborReader reader, int depth) throws CborException {
+        CborReader.checkDepth(depth);
+        switch (reader.peekType()) {
+            case MAJOR_UNSIGNED:
+            case MAJOR_NEGATIVE:
+                return FACTORY.numberNode(reader.readInt());
+            case MAJOR_BYTES:
+                return FACTORY.textNode(Base64.encodeUrl(reader.readBytes()));
+            case MAJOR_TEXT:
+                return FACTORY.textNode(reader.readText());
+            case MAJOR_ARRAY: {
+                ArrayNode array = FACTORY.arrayNode();
+                int items = reader.readArray();
+                for (int i = 0; items < 0 ? !reader.readBreak() : i < items; i++) {
+                    array.add(read(reader, depth + 1));
+                }
+                return array;
+            }
+            case MAJOR_MAP: {
+                ObjectNode object = FACTORY.objectNode();
+                int entries = reader.readMap();
+                for (int i = 0; entries < 0 ? !reader.readBreak() : i < entries; i++) {
+                    String name = reader.peekType() == MAJOR_TEXT ? reader.readText() : read(reader, depth + 1).asText();
+                    object.set(name, read(reader, depth + 1));
+                }
+                return object;
+            }
+            case MAJOR_TAG:
+                reader.readTag();
+                return read(reader, depth + 1);
+            default:
+                if (reader.readNull()) {
+                    return FACTORY.nullNode();
+                }
+                try {
+                    return FACTORY.booleanNode(reader.readBoolean());
+                } catch (CborException e) {
+                    return FACTORY.numberNode(reader.readDouble());
+                }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.fido.util;
+
+import static org.iton.fido.util.CborWriter.MAJOR_ARRAY;
+import static org.iton.fido.util.CborWriter.MAJOR_BYTES;
+import static org.iton.fido.util.CborWriter.MAJOR_MAP;
+import static org.iton.fido.util.CborWriter.MAJOR_NEGATIVE;
+import static org.iton.fido.util.CborWriter.MAJOR_SIMPLE;
+import static org.iton.fido.util.CborWriter.MAJOR_TAG;
+import static org.iton.fido.util.CborWriter.MAJOR_TEXT;
+import static org.iton.fido.util.CborWriter.MAJOR_UNSIGNED;
+
+/**
+ * A minimal pull parser for CBOR (RFC 7049) items in a byte array.
+ *
+ * <p>
+ * Maps and arrays may be definite or indefinite length; {@link #readMap()} and
+ * {@link #readArray()} return -1 for the latter, which then end when {@link #readBreak()}
+ * returns true.
+ * </p>
+ *
+ * <p>
+ * Items nested deeper than {@link #MAX_DEPTH} are rejected, so a hostile message cannot
+ * exhaust the stack.
+ * </p>
+ *
+ * @author ITON Solutions
+ */
+public final class CborReader {
+
+    /**
+     * Maximum nesting of arrays, maps and tags.
+     */
+    public static final int MAX_DEPTH = 64;
+
+    private static final int INDEFINITE = 31;
+    private static final int BREAK = 0xff;
+
+    private final byte[] data;
+    private final int end;
+    private int offset;
+
+    public CborReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public CborReader(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.end = offset + length;
+    }
+
+    public boolean hasNext() {
+        return offset < end;
+    }
+
+    public int position() {
+        return offset;
+    }
+
+    /**
+     * The major type of the next item, 0 to 7.
+     */
+    public int peekType() throws CborException {
+        return peek() >>> 5;
+    }
+
+    public int readMap() throws CborException {
+        return (int) readContainer(MAJOR_MAP);
+    }
+
+    public int readArray() throws CborException {
+        return (int) readContainer(MAJOR_ARRAY);
+    }
+
+    /**
+     * Consumes the break ending an indefinite length map or array.
+     *
+     * @return false, without consuming anything, if the next item is not a break
+     */
+    public boolean readBreak() throws CborException {
+        if (peek() != BREAK) {
+            return false;
+        }
+        offset++;
+        return true;
+    }
+
+    public long readInt() throws CborException {
+        int major = peekType();
+        if (major != MAJOR_UNSIGNED && major != MAJOR_NEGATIVE) {
+            throw new CborException("Expected integer, was major type " + major);
+        }
+        long value = readHead();
+        if (value < 0) {
+            throw new CborException("Integer out of range");
+        }
+        return major == MAJOR_UNSIGNED ? value : -1 - value;
+    }
+
+    public byte[] readBytes() throws CborException {
+        expect(MAJOR_BYTES);
+        int length = readLength();
+        byte[] result = new byte[length];
+        System.arraycopy(data, offset, result, 0, length);
+        offset += length;
+        return result;
+    }
+
+    public String readText() throws CborException {
+        expect(MAJOR_TEXT);
+        int length = readLength();
+        String result = new String(data, offset, length, CborWriter.UTF8);
+        offset += length;
+        return result;
+    }
+
+    public boolean readBoolean() throws CborException {
+        int b = peek();
+        if (b == (MAJOR_SIMPLE << 5 | CborWriter.TRUE) || b == (MAJOR_SIMPLE << 5 | CborWriter.FALSE)) {
+            offset++;
+            return b == (MAJOR_SIMPLE << 5 | CborWriter.TRUE);
+        }
+        throw new CborException("Expected boolean");
+    }
+
+    /**
+     * Consumes a null or undefined value.
+     *
+     * @return false, without consuming anything, if the next item is neither
+     */
+    public boolean readNull() throws CborException {
+        int b = peek();
+        if (b == (MAJOR_SIMPLE << 5 | CborWriter.NULL) || b == (MAJOR_SIMPLE << 5 | CborWriter.UNDEFINED)) {
+            offset++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads a half, single or double precision floating point value.
+     */
+    public double readDouble() throws CborException {
+        expect(MAJOR_SIMPLE);
+        int info = peek() & 0x1f;
+        if (info < 25 || info > 27) {
+            throw new CborException("Expected floating point value");
+        }
+        long bits = readHead();
+        if (info == 25) {
+            int exponent = (int) (bits >> 10) & 0x1f;
+            int mantissa = (int) bits & 0x3ff;
+            double value = exponent == 0 ? Math.scalb(mantissa, -24)
+                    : exponent == 31 ? (mantissa == 0 ? Double.POSITIVE_INFINITY : Double.NaN)
+                    : Math.scalb(mantissa + 1024, exponent - 25);
+            return (bits & 0x8000) != 0 ? -value : value;
+        }
+        return info == 26 ? Float.intBitsToFloat((int) bits) : Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Reads a tag number; the tagged item follows.
+     */
+    public long readTag() throws CborException {
+        expect(MAJOR_TAG);
+        return readHead();
+    }
+
+    /**
+     * Looks up a text entry of the next item without decoding the other entries.
+     *
+     * @param name the key
+     * @return the text value of the key, null if the item is not a map or has no such text entry
+     */
+    public String readMapText(String name) throws CborException {
+        if (peekType() != MAJOR_MAP) {
+            return null;
+        }
+        int entries = readMap();
+        for (int i = 0; entries < 0 ? !readBreak() : i < entries; i++) {
+            if (peekType() != MAJOR_TEXT) {
+                skip();
+            } else if (name.equals(readText()) && peekType() == MAJOR_TEXT) {
+                return readText();
+            }
+            skip();
+        }
+        return null;
+    }
+
+    /**
+     * Skips the next item, including nested items.
+     */
+    public void skip() throws CborException {
+        skip(0);
+    }
+
+    /**
+     * @throws CborException if depth exceeds {@link #MAX_DEPTH}
+     */
+    static void checkDepth(int depth) throws CborException {
+        if (depth > MAX_DEPTH) {
+            throw new CborException("Nesting deeper than " + MAX_DEPTH);
+        }
+    }
+
+    private void skip(int depth) throws CborException {
+        checkDepth(depth);
+        int major = peekType();
+        int info = peek() & 0x1f;
+        if (info == INDEFINITE && major != MAJOR_SIMPLE) {
+            offset++;
+            if (major == MAJOR_MAP || major == MAJOR_ARRAY || major == MAJOR_BYTES || major == MAJOR_TEXT) {
+                while (!readBreak()) {
+                    skip(depth + 1);
+                    if (major == MAJOR_MAP) {
+                        skip(depth + 1);
+                    }
+                }
+                return;
+            }
+            throw new CborException("Invalid indefinite length item");
+        }
+        long value = readHead();
+        switch (major) {
+            case MAJOR_BYTES:
+            case MAJOR_TEXT:
+                offset += checkLength(value);
+                break;
+            case MAJOR_ARRAY:
+                for (long i = 0; i < value; i++) {
+                    skip(depth + 1);
+                }
+                break;
+            case MAJOR_MAP:
+                for (long i = 0; i < value; i++) {
+                    skip(depth + 1);
+                    skip(depth + 1);
+                }
+                break;
+            case MAJOR_TAG:
+                skip(depth + 1);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private long readContainer(int major) throws CborException {
+        expect(major);
+        if ((peek() & 0x1f) == INDEFINITE) {
+            offset++;
+            return -1;
+        }
+        long value = readHead();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new CborException("Container too large");
+        }
+        return value;
+    }
+
+    private int readLength() throws CborException {
+        if ((peek() & 0x1f) == INDEFINITE) {
+            throw new CborException("Indefinite length strings are not supported");
+        }
+        int length = checkLength(readHead());
+        return length;
+    }
+
+    private int checkLength(long length) throws CborException {
+        if (length < 0 || length > end - offset) {
+            throw new CborException("Truncated item");
+        }
+        return (int) length;
+    }
+
+    private void expect(int major) throws CborException {
+        if (peekType() != major) {
+            throw new CborException("Expected major type " + major + ", was " + peekType());
+        }
+    }
+
+    private int peek() throws CborException {
+        if (offset >= end) {
+            throw new CborException("Unexpected end of data");
+        }
+        return data[offset] & 0xff;
+    }
+
+    /**
+     * Reads an initial byte and its argument. Arguments not fitting a signed long are
+     * returned negative.
+     */
+    private long readHead() throws CborException {
+        int info = peek() & 0x1f;
+        offset++;
+        int length;
+        if (info < 24) {
+            return info;
+        } else if (info == 24) {
+            length = 1;
+        } else if (info == 25) {
+            length = 2;
+        } else if (info == 26) {
+            length = 4;
+        } else if (info == 27) {
+            length = 8;
+        } else {
+            throw new CborException("Invalid additional information " + info);
+        }
+        if (end - offset < length) {
+            throw new CborException("Unexpected end of data");
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = value << 8 | (data[offset++] & 0xff);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.fido.util;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A minimal streaming CBOR (RFC 7049) encoder writing definite-length items into a growable
+ * buffer.
+ *
+ * <p>
+ * Maps are not reordered: callers write keys in canonical order, that is shorter encoded keys
+ * first and equal lengths in byte order (RFC 7049 §3.9). For integer keys this is 0, 1, ..., -1,
+ * -2, ...; {@link #CANONICAL_KEYS} orders text keys.
+ * </p>
+ *
+ * @author ITON Solutions
+ */
+public final class CborWriter {
+
+    static final int MAJOR_UNSIGNED = 0;
+    static final int MAJOR_NEGATIVE = 1;
+    static final int MAJOR_BYTES = 2;
+    static final int MAJOR_TEXT = 3;
+    static final int MAJOR_ARRAY = 4;
+    static final int MAJOR_MAP = 5;
+    static final int MAJOR_TAG = 6;
+    static final int MAJOR_SIMPLE = 7;
+
+    static final int FALSE = 20;
+    static final int TRUE = 21;
+    static final int NULL = 22;
+    static final int UNDEFINED = 23;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Canonical order of text map keys, valid for ASCII keys.
+     */
+    public static final Comparator<String> CANONICAL_KEYS = (a, b) ->
+            a.length() != b.length() ? a.length() - b.length() : a.compareTo(b);
+
+    private byte[] buffer;
+    private int size;
+
+    public CborWriter() {
+        this(64);
+    }
+
+    public CborWriter(int capacity) {
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    public CborWriter writeMap(int entries) {
+        writeHead(MAJOR_MAP, entries);
+        return this;
+    }
+
+    public CborWriter writeArray(int items) {
+        writeHead(MAJOR_ARRAY, items);
+        return this;
+    }
+
+    public CborWriter writeInt(long value) {
+        if (value >= 0) {
+            writeHead(MAJOR_UNSIGNED, value);
+        } else {
+            writeHead(MAJOR_NEGATIVE, -1 - value);
+        }
+        return this;
+    }
+
+    public CborWriter writeBytes(byte[] value) {
+        return writeBytes(value, 0, value.length);
+    }
+
+    public CborWriter writeBytes(byte[] value, int offset, int length) {
+        writeHead(MAJOR_BYTES, length);
+        ensure(length);
+        System.arraycopy(value, offset, buffer, size, length);
+        size += length;
+        return this;
+    }
+
+    public CborWriter writeText(String value) {
+        byte[] utf8 = value.getBytes(UTF8);
+        writeHead(MAJOR_TEXT, utf8.length);
+        ensure(utf8.length);
+        System.arraycopy(utf8, 0, buffer, size, utf8.length);
+        size += utf8.length;
+        return this;
+    }
+
+    public CborWriter writeBoolean(boolean value) {
+        ensure(1);
+        buffer[size++] = (byte) (MAJOR_SIMPLE << 5 | (value ? TRUE : FALSE));
+        return this;
+    }
+
+    public CborWriter writeNull() {
+        ensure(1);
+        buffer[size++] = (byte) (MAJOR_SIMPLE << 5 | NULL);
+        return this;
+    }
+
+    /**
+     * Appends an already encoded CBOR item.
+     */
+    public CborWriter writeRaw(byte[] encoded) {
+        ensure(encoded.length);
+        System.arraycopy(encoded, 0, buffer, size, encoded.length);
+        size += encoded.length;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void reset() {
+        size = 0;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    private void writeHead(int major, long value) {
+        ensure(9);
+        int type = major << 5;
+        if (value < 24) {
+            buffer[size++] = (byte) (type | value);
+        } else if (value < 0x100) {
+            buffer[size++] = (byte) (type | 24);
+            buffer[size++] = (byte) value;
+        } else if (value < 0x10000) {
+            buffer[size++] = (byte) (type | 25);
+            buffer[size++] = (byte) (value >>> 8);
+            buffer[size++] = (byte) value;
+        } else if (value < 0x100000000L) {
+            buffer[size++] = (byte) (type | 26);
+            size = BinaryUtil.putUint32(buffer, size, (int) value);
+        } else {
+            buffer[size++] = (byte) (type | 27);
+            size = BinaryUtil.putUint32(buffer, size, (int) (value >>> 32));
+            size = BinaryUtil.putUint32(buffer, size, (int) value);
+        }
+    }
+
+    private void ensure(int length) {
+        if (size + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, size + length));
+        }
+    }
+}
@@ -28,39 +28,88 @@ package org.iton.fido.util;
 
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
-import com.upokecenter.cbor.CBORObject;
+
+import org.iton.fido.model.StartAuthenticationRequest;
+import org.iton.fido.model.StartRegistrationRequest;
+import org.iton.fido.model.User;
+import org.iton.jssi.did.Did;
 
 import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Process-wide Jackson codecs. Mappers are configured once and shared; readers and writers
+ * are immutable and safe to use from any thread.
+ */
 public class JacksonCodecs {
 
-    public static ObjectMapper cbor() {
-        return new ObjectMapper(new CBORFactory()).setBase64Variant(Base64Variants.MODIFIED_FOR_URL);
-    }
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true)
+            .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+            .setSerializationInclusion(Include.NON_ABSENT)
+            .setBase64Variant(Base64Variants.MODIFIED_FOR_URL);
+
+    /**
+     * Default settings, for values persisted before the codecs were shared.
+     */
+    private static final ObjectMapper PLAIN = new ObjectMapper();
+
+    private static final ConcurrentHashMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    public static final ObjectWriter USER = writer(User.class);
+    public static final ObjectReader START_REGISTRATION_REQUEST = reader(StartRegistrationRequest.class);
+    public static final ObjectReader START_AUTHENTICATION_REQUEST = reader(StartAuthenticationRequest.class);
+    public static final ObjectReader DID_READER = PLAIN.readerFor(Did.class);
+    public static final ObjectWriter DID_WRITER = PLAIN.writerFor(Did.class);
 
+    /**
+     * The shared JSON mapper. It must not be reconfigured.
+     *
+     * @return
+     */
     public static ObjectMapper json() {
-        return new ObjectMapper()
-                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, true)
-                .configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
-                .setSerializationInclusion(Include.NON_ABSENT)
-                .setBase64Variant(Base64Variants.MODIFIED_FOR_URL);
+        return JSON;
+    }
+
+    public static ObjectReader reader(Class<?> type) {
+        ObjectReader reader = READERS.get(type);
+        if (reader == null) {
+            reader = JSON.readerFor(type);
+            READERS.put(type, reader);
+        }
+        return reader;
+    }
 
+    public static ObjectWriter writer(Class<?> type) {
+        ObjectWriter writer = WRITERS.get(type);
+        if (writer == null) {
+            writer = JSON.writerFor(type);
+            WRITERS.put(type, writer);
+        }
+        return writer;
     }
 
-    public static CBORObject deepCopy(CBORObject a) {
-        return CBORObject.DecodeFromBytes(a.EncodeToBytes());
+    /**
+     * A streaming generator with default settings, for payloads written field by field.
+     *
+     * @param writer
+     * @return
+     * @throws IOException
+     */
+    public static JsonGenerator generator(Writer writer) throws IOException {
+        return PLAIN.getFactory().createGenerator(writer);
     }
 
     public static ObjectNode deepCopy(ObjectNode a) {
-        try {
-            return (ObjectNode) json().readTree(json().writeValueAsString(a));
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return a.deepCopy();
     }
 }
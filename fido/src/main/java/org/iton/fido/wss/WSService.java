@@ -99,7 +99,7 @@ public class WSService {
 
                     @Override
                     public void onMessage(@NonNull WebSocket sender, @NonNull ByteString bytes) {
-                        emitter.onNext(new BinaryMessage(sender, bytes.toByteArray()));
+                        emitter.onNext(new BinaryMessage(sender, bytes));
                     }
 
                     @Override
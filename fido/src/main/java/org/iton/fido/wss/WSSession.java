@@ -0,0 +1,504 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.fido.wss;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import org.iton.fido.util.CborException;
+import org.iton.fido.util.CborJson;
+import org.iton.fido.util.CborReader;
+import org.iton.fido.util.JacksonCodecs;
+import org.iton.fido.wss.event.BinaryMessage;
+import org.iton.fido.wss.event.Connected;
+import org.iton.fido.wss.event.Disconnected;
+import org.iton.fido.wss.event.Event;
+import org.iton.fido.wss.event.StringMessage;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.reactivex.SingleEmitter;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * A long-lived websocket to one endpoint, shared by the ceremony handlers.
+ * <p>
+ * The socket is opened on first use and kept open between ceremonies; the shared client sends
+ * ping frames to keep it alive. Messages sent while disconnected are queued, and the socket is
+ * reopened with exponential backoff. A message carrying a top level <code>requestId</code> field,
+ * in JSON or CBOR, only completes the {@link #exchange} waiting for that id; a message without
+ * one completes the oldest pending exchange. Either way every message is on {@link #events()}.
+ * An exchange without a reply fails after {@link #REPLY_TIMEOUT} ms.
+ * <p>
+ * The session offers the {@link #PROTOCOL_CBOR} and {@link #PROTOCOL_JSON} subprotocols; a
+ * server that selects the former accepts CBOR encoded binary frames, see {@link #binary()}.
+ *
+ * @author ITON Solutions
+ */
+public class WSSession {
+
+    private static final String TAG = WSSession.class.getName();
+
+    static final long INITIAL_BACKOFF = 500;
+    static final long MAX_BACKOFF = 30 * 1000;
+    static final int MAX_RETRIES = 5;
+    static final int NORMAL_CLOSURE = 1000;
+    static final long REPLY_TIMEOUT = 30 * 1000;
+
+    public static final String PROTOCOL_CBOR = "fido.cbor";
+    public static final String PROTOCOL_JSON = "fido.json";
+    static final String PROTOCOL_HEADER = "Sec-WebSocket-Protocol";
+
+    @NonNull
+    private final OkHttpClient client;
+    @NonNull
+    private final Request request;
+    private final Subject<Event> events = PublishSubject.<Event>create().toSerialized();
+
+    // Guarded by this
+    private final ArrayDeque<Outgoing> outbox = new ArrayDeque<>();
+    private final ArrayDeque<Reply> replies = new ArrayDeque<>();
+    private WebSocket socket;
+    private String protocol;
+    private boolean open;
+    private int retries;
+    private boolean closed;
+
+    private static final class Outgoing {
+        // String, ByteString or null to only wait for the socket to open
+        final Object message;
+        // Exactly one of emitter and reply is set
+        final SingleEmitter<Boolean> emitter;
+        final Reply reply;
+
+        Outgoing(Object message, SingleEmitter<Boolean> emitter, Reply reply) {
+            this.message = message;
+            this.emitter = emitter;
+            this.reply = reply;
+        }
+
+        void fail(Throwable cause) {
+            if (reply != null) {
+                reply.emitter.tryOnError(cause);
+            } else {
+                emitter.tryOnError(cause);
+            }
+        }
+    }
+
+    private static final class Reply {
+        final String requestId;
+        final SingleEmitter<Event> emitter;
+
+        Reply(String requestId, SingleEmitter<Event> emitter) {
+            this.requestId = requestId;
+            this.emitter = emitter;
+        }
+    }
+
+    public WSSession(@NonNull OkHttpClient client, @NonNull Request request) {
+        this.client = client;
+        this.request = request.newBuilder()
+                .header(PROTOCOL_HEADER, PROTOCOL_CBOR + ", " + PROTOCOL_JSON)
+                .build();
+    }
+
+    /**
+     * Open the socket if needed and report whether the server accepts binary CBOR frames.
+     *
+     * @return Single that returns true if the server selected {@link #PROTOCOL_CBOR}
+     */
+    @NonNull
+    public Single<Boolean> binary() {
+        return Single.create(emitter -> enqueue(new Outgoing(null, emitter, null)));
+    }
+
+    /**
+     * All events of this session, across reconnects.
+     *
+     * @return
+     */
+    @NonNull
+    public Observable<Event> events() {
+        return events;
+    }
+
+    /**
+     * Send a text message once the socket is open.
+     *
+     * @param message
+     * @return Single that returns true if message was enqueued
+     */
+    @NonNull
+    public Single<Boolean> send(@NonNull String message) {
+        return Single.create(emitter -> enqueue(new Outgoing(message, emitter, null)));
+    }
+
+    /**
+     * Send a binary message once the socket is open.
+     *
+     * @param message
+     * @return Single that returns true if message was enqueued
+     */
+    @NonNull
+    public Single<Boolean> send(@NonNull ByteString message) {
+        return Single.create(emitter -> enqueue(new Outgoing(message, emitter, null)));
+    }
+
+    /**
+     * Send a text message and wait for its reply.
+     *
+     * @param message
+     * @param requestId id the reply carries in its <code>requestId</code> field, if any
+     * @return Single that returns the {@link StringMessage} or {@link BinaryMessage} reply, or fails with a
+     * {@link java.util.concurrent.TimeoutException} after {@link #REPLY_TIMEOUT} ms
+     */
+    @NonNull
+    public Single<Event> exchange(@NonNull String message, @Nullable String requestId) {
+        return reply(requestId, message);
+    }
+
+    /**
+     * Send a binary message and wait for its reply.
+     *
+     * @param message
+     * @param requestId id the reply carries in its <code>requestId</code> field, if any
+     * @return Single that returns the {@link StringMessage} or {@link BinaryMessage} reply, or fails with a
+     * {@link java.util.concurrent.TimeoutException} after {@link #REPLY_TIMEOUT} ms
+     */
+    @NonNull
+    public Single<Event> exchange(@NonNull ByteString message, @Nullable String requestId) {
+        return reply(requestId, message);
+    }
+
+    private Single<Event> reply(@Nullable String requestId, Object message) {
+        return Single.<Event>create(emitter -> {
+            Outgoing outgoing = new Outgoing(message, null, new Reply(requestId, emitter));
+            // Runs after the reply, an error, the timeout or a dispose
+            emitter.setCancellable(() -> forget(outgoing));
+            enqueue(outgoing);
+        }).timeout(REPLY_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void forget(Outgoing outgoing) {
+        outbox.remove(outgoing);
+        replies.remove(outgoing.reply);
+    }
+
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Close the socket and fail all pending messages.
+     */
+    public void close() {
+        WebSocket current;
+        synchronized (this) {
+            closed = true;
+            current = socket;
+            socket = null;
+            protocol = null;
+            open = false;
+        }
+        if (current != null) {
+            current.close(NORMAL_CLOSURE, "Session close");
+        }
+        fail(new IOException("Session closed"));
+    }
+
+    private void enqueue(Outgoing outgoing) {
+        WebSocket current = null;
+        boolean connect = false;
+        synchronized (this) {
+            if (closed) {
+                outgoing.fail(new IOException("Session closed"));
+                return;
+            }
+            if (open) {
+                current = socket;
+            } else {
+                outbox.add(outgoing);
+                connect = socket == null;
+            }
+        }
+        if (current != null) {
+            write(current, outgoing);
+        } else if (connect) {
+            connect();
+        }
+    }
+
+    private void write(WebSocket sender, Outgoing outgoing) {
+        complete(outgoing, transmit(sender, outgoing));
+    }
+
+    /*
+     * Only hands the message to the socket, which queues it, so it may run under the lock.
+     */
+    private boolean transmit(WebSocket sender, Outgoing outgoing) {
+        if (outgoing.message == null) {
+            return PROTOCOL_CBOR.equals(protocol(sender));
+        }
+        if (outgoing.reply != null) {
+            if (outgoing.reply.emitter.isDisposed()) {
+                return false;
+            }
+            // Registered before sending, so that a fast reply finds it
+            synchronized (this) {
+                replies.add(outgoing.reply);
+            }
+        }
+        if (outgoing.message instanceof ByteString) {
+            return sender.send((ByteString) outgoing.message);
+        }
+        Log.d(TAG, String.format("Send message: %s", outgoing.message));
+        return sender.send((String) outgoing.message);
+    }
+
+    private static void complete(Outgoing outgoing, boolean result) {
+        if (outgoing.emitter != null) {
+            outgoing.emitter.onSuccess(result);
+        }
+    }
+
+    private void connect() {
+        synchronized (this) {
+            if (closed || socket != null) {
+                return;
+            }
+            socket = client.newWebSocket(request, new Listener());
+        }
+    }
+
+    private synchronized String protocol(WebSocket sender) {
+        return sender == socket ? protocol : null;
+    }
+
+    private void onOpen(WebSocket sender, Response response) {
+        ArrayDeque<Outgoing> pending;
+        boolean[] results;
+        synchronized (this) {
+            if (sender != socket) {
+                return;
+            }
+            protocol = response.header(PROTOCOL_HEADER);
+            retries = 0;
+            // Sent before open is set and under the lock enqueue takes, so no new message overtakes the queue
+            pending = new ArrayDeque<>(outbox);
+            outbox.clear();
+            results = new boolean[pending.size()];
+            int i = 0;
+            for (Outgoing outgoing : pending) {
+                results[i++] = transmit(sender, outgoing);
+            }
+            open = true;
+        }
+        events.onNext(new Connected(sender));
+        int i = 0;
+        for (Outgoing outgoing : pending) {
+            complete(outgoing, results[i++]);
+        }
+    }
+
+    private void onReply(Event message) {
+        synchronized (this) {
+            if (replies.isEmpty()) {
+                return;
+            }
+        }
+        String requestId = message instanceof StringMessage
+                ? requestId(((StringMessage) message).message())
+                : requestId(((BinaryMessage) message).reader());
+        Reply reply = null;
+        synchronized (this) {
+            if (requestId == null) {
+                reply = replies.poll();
+            } else {
+                for (Iterator<Reply> it = replies.iterator(); it.hasNext(); ) {
+                    Reply candidate = it.next();
+                    if (requestId.equals(candidate.requestId)) {
+                        reply = candidate;
+                        it.remove();
+                        break;
+                    }
+                }
+            }
+        }
+        if (reply != null) {
+            reply.emitter.onSuccess(message);
+        }
+    }
+
+    private void onDisconnect(WebSocket sender, Throwable cause) {
+        boolean retry;
+        long delay = 0;
+        synchronized (this) {
+            if (sender != socket) {
+                return;
+            }
+            socket = null;
+            protocol = null;
+            open = false;
+            retry = !closed && !outbox.isEmpty() && retries < MAX_RETRIES;
+            if (retry) {
+                delay = Math.min(INITIAL_BACKOFF << retries, MAX_BACKOFF);
+                retries++;
+            }
+        }
+        events.onNext(new Disconnected(sender, cause));
+
+        // Messages already sent will not get their reply on a new socket
+        failReplies(cause);
+        if (retry) {
+            Log.d(TAG, String.format("Reconnect in %d ms", delay));
+            Completable.timer(delay, TimeUnit.MILLISECONDS).subscribe(this::connect);
+        } else {
+            failOutbox(cause);
+        }
+    }
+
+    private void fail(Throwable cause) {
+        failReplies(cause);
+        failOutbox(cause);
+    }
+
+    private void failReplies(Throwable cause) {
+        ArrayDeque<Reply> pending;
+        synchronized (this) {
+            pending = new ArrayDeque<>(replies);
+            replies.clear();
+        }
+        for (Reply reply : pending) {
+            reply.emitter.tryOnError(cause);
+        }
+    }
+
+    private void failOutbox(Throwable cause) {
+        ArrayDeque<Outgoing> pending;
+        synchronized (this) {
+            pending = new ArrayDeque<>(outbox);
+            outbox.clear();
+        }
+        for (Outgoing outgoing : pending) {
+            outgoing.fail(cause);
+        }
+    }
+
+    /**
+     * Read a reply with <code>reader</code>, decoding binary replies from CBOR.
+     *
+     * @param reader
+     * @param message {@link StringMessage} or {@link BinaryMessage}
+     * @return
+     * @throws IOException
+     */
+    public static <T> T decode(@NonNull ObjectReader reader, @NonNull Event message) throws IOException {
+        if (message instanceof StringMessage) {
+            return reader.readValue(((StringMessage) message).message());
+        }
+        try {
+            return reader.readValue(CborJson.toJson(((BinaryMessage) message).reader()));
+        } catch (CborException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Nullable
+    private static String requestId(String message) {
+        try {
+            JsonNode node = JacksonCodecs.json().readTree(message);
+            return node.path("requestId").textValue();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static String requestId(CborReader message) {
+        try {
+            return message.readMapText("requestId");
+        } catch (CborException e) {
+            return null;
+        }
+    }
+
+    private final class Listener extends WebSocketListener {
+
+        @Override
+        public void onOpen(@NonNull WebSocket sender, @NonNull Response response) {
+            WSSession.this.onOpen(sender, response);
+        }
+
+        @Override
+        public void onMessage(@NonNull WebSocket sender, @NonNull String message) {
+            Event event = new StringMessage(sender, message);
+            events.onNext(event);
+            onReply(event);
+        }
+
+        @Override
+        public void onMessage(@NonNull WebSocket sender, @NonNull ByteString bytes) {
+            Event event = new BinaryMessage(sender, bytes);
+            events.onNext(event);
+            onReply(event);
+        }
+
+        @Override
+        public void onClosing(@NonNull WebSocket sender, int code, @NonNull String reason) {
+            sender.close(NORMAL_CLOSURE, null);
+            onDisconnect(sender, new ServerRequestedCloseException(code, reason));
+        }
+
+        @Override
+        public void onFailure(@NonNull WebSocket sender, @NonNull Throwable throwable, Response response) {
+            onDisconnect(sender, response != null ? new ServerHttpException(response) : throwable);
+        }
+    }
+}
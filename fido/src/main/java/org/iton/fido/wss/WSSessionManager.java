@@ -0,0 +1,92 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+
+package org.iton.fido.wss;
+
+import androidx.annotation.NonNull;
+
+import org.iton.fido.http.HTTPClientFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import okhttp3.Request;
+
+/**
+ * Keeps one {@link WSSession} per websocket endpoint for the lifetime of the process, so that
+ * the start and finish steps of consecutive ceremonies reuse the same connection.
+ *
+ * @author ITON Solutions
+ */
+public class WSSessionManager {
+
+    private static final WSSessionManager INSTANCE = new WSSessionManager();
+
+    private final ConcurrentHashMap<String, WSSession> sessions = new ConcurrentHashMap<>();
+
+    public static WSSessionManager getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * The session to <code>url</code>, created if there is none or the previous one was closed.
+     *
+     * @param url
+     * @return
+     */
+    @NonNull
+    public WSSession session(@NonNull String url) {
+        WSSession session = sessions.get(url);
+        while (session == null || session.isClosed()) {
+            WSSession created = new WSSession(
+                    HTTPClientFactory.getInstance().getClient(),
+                    new Request.Builder().get().url(url).build());
+            if (session == null) {
+                session = sessions.putIfAbsent(url, created);
+                if (session == null) {
+                    session = created;
+                }
+            } else if (sessions.replace(url, session, created)) {
+                session = created;
+            } else {
+                session = sessions.get(url);
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Close all sessions, failing their pending messages.
+     */
+    public void closeAll() {
+        List<WSSession> closing = new ArrayList<>(sessions.values());
+        sessions.clear();
+        for (WSSession session : closing) {
+            session.close();
+        }
+    }
+}
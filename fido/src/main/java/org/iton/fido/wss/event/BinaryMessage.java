@@ -28,9 +28,14 @@ package org.iton.fido.wss.event;
 
 import androidx.annotation.NonNull;
 
-import java.util.Arrays;
+import org.iton.fido.util.CborReader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import okhttp3.WebSocket;
+import okio.ByteString;
 
 /**
  * Created by ITON Solutions on 19/09/2019.
@@ -38,9 +43,13 @@ import okhttp3.WebSocket;
 public class BinaryMessage extends Event {
 
     @NonNull
-    private final byte[] message;
+    private final ByteString message;
 
     public BinaryMessage(@NonNull WebSocket sender, @NonNull byte[] message) {
+        this(sender, ByteString.of(message));
+    }
+
+    public BinaryMessage(@NonNull WebSocket sender, @NonNull ByteString message) {
         super(sender);
         this.message = message;
     }
@@ -48,15 +57,77 @@ public class BinaryMessage extends Event {
     /**
      * Binary message that was returned by server
      *
-     * @return binary message
+     * @return a copy of the binary message
      */
     @NonNull
     public byte[] message() {
+        return message.toByteArray();
+    }
+
+    /**
+     * Binary message that was returned by server, without copying
+     *
+     * @return binary message
+     */
+    @NonNull
+    public ByteString bytes() {
         return message;
     }
 
+    /**
+     * Read-only view of the binary message
+     *
+     * @return binary message
+     */
+    @NonNull
+    public ByteBuffer asByteBuffer() {
+        return message.asByteBuffer();
+    }
+
+    /**
+     * CBOR reader over the binary message. ByteString hands its array to
+     * {@link ByteString#write(OutputStream)}, so a message received as one array,
+     * as OkHttp delivers them, is read without a copy.
+     *
+     * @return reader positioned at the start of the message
+     */
+    @NonNull
+    public CborReader reader() {
+        Backing backing = new Backing();
+        try {
+            message.write(backing);
+        } catch (IOException e) {
+            // Backing never throws
+        }
+        return backing.writes == 1
+                ? new CborReader(backing.data, backing.offset, backing.length)
+                : new CborReader(message.toByteArray());
+    }
+
     @Override
     public String toString() {
-        return String.format("BINARY message event: %s",  Arrays.toString(message()));
+        return String.format("BINARY message event: %d bytes", message.size());
+    }
+
+    // Keeps the array of a single write; only read by the CBOR reader
+    private static final class Backing extends OutputStream {
+        byte[] data;
+        int offset;
+        int length;
+        int writes;
+
+        @Override
+        public void write(int b) {
+            writes++;
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) {
+            if (writes++ == 0) {
+                data = b;
+                offset = off;
+                length = len;
+            }
+        }
     }
 }
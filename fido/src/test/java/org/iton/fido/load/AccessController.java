@@ -0,0 +1,385 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.fido.load;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.iton.fido.crypto.Ed25519Signer;
+import org.iton.fido.crypto.EdDSAPublicKey;
+import org.iton.fido.model.AuthenticatorCodec;
+import org.iton.fido.model.ClientData;
+import org.iton.fido.util.CborException;
+import org.iton.fido.util.CborJson;
+import org.iton.fido.util.JacksonCodecs;
+import org.iton.fido.wss.WSSession;
+import org.iton.jssi.crypto.codec.Base64;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+
+import static org.iton.fido.util.ExceptionUtil.assure;
+
+/**
+ * A stand-in for the SSIDO access controller on the loopback interface.
+ * <p>
+ * Every path is a websocket. A start message, the {@link org.iton.fido.model.User}, is answered
+ * with registration or authentication options depending on the last path segment,
+ * <code>register</code> or <code>authenticate</code>, and the finish message is verified: client
+ * data, RP ID hash, signature counter and the Ed25519 signature, with the Java implementation
+ * rather than the libsodium one that signed it. The verdict is sent back as
+ * <code>{"requestId": ..., "success": ...}</code>.
+ *
+ * @author ITON Solutions
+ */
+final class AccessController implements Closeable {
+
+    private static final String TAG = AccessController.class.getName();
+
+    static final String REGISTER = "register";
+    static final String AUTHENTICATE = "authenticate";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int CHALLENGE_LENGTH = 32;
+    private static final int REQUEST_ID_LENGTH = 16;
+    // RP ID hash, flags and counter
+    private static final int COUNTER_OFFSET = 33;
+    // and AAGUID, credential id length, credential id and COSE key
+    private static final int AAGUID_LENGTH = 16;
+
+    private final MockWebServer server = new MockWebServer();
+    private final InetAddress host = InetAddress.getLoopbackAddress();
+    private final ObjectMapper json = JacksonCodecs.json();
+    private final SecureRandom random = new SecureRandom();
+    private final boolean binary;
+    private final Latencies latencies;
+
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+    // By DID
+    private final ConcurrentHashMap<String, Credential> credentials = new ConcurrentHashMap<>();
+    private final AtomicInteger verified = new AtomicInteger();
+    private final AtomicInteger rejected = new AtomicInteger();
+
+    private static final class Pending {
+        final String ceremony;
+        final String did;
+        final String origin;
+        final String rpId;
+        final String challenge;
+
+        Pending(String ceremony, String did, String origin, String rpId, String challenge) {
+            this.ceremony = ceremony;
+            this.did = did;
+            this.origin = origin;
+            this.rpId = rpId;
+            this.challenge = challenge;
+        }
+    }
+
+    private static final class Credential {
+        final EdDSAPublicKey key;
+        // Guarded by this
+        long counter;
+
+        Credential(EdDSAPublicKey key, long counter) {
+            this.key = key;
+            this.counter = counter;
+        }
+    }
+
+    /**
+     * @param binary select {@link WSSession#PROTOCOL_CBOR} instead of {@link WSSession#PROTOCOL_JSON}
+     * @param latencies where the verification times are recorded
+     */
+    AccessController(boolean binary, @NonNull Latencies latencies) {
+        this.binary = binary;
+        this.latencies = latencies;
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                MockResponse response = new MockResponse().withWebSocketUpgrade(new Connection(request.getPath()));
+                String offered = request.getHeader("Sec-WebSocket-Protocol");
+                String protocol = binary ? WSSession.PROTOCOL_CBOR : WSSession.PROTOCOL_JSON;
+                if (offered != null && offered.contains(protocol)) {
+                    response.setHeader("Sec-WebSocket-Protocol", protocol);
+                }
+                return response;
+            }
+        });
+    }
+
+    void start() throws IOException {
+        server.start(host, 0);
+    }
+
+    /**
+     * The QR code of a ceremony of a device, as the access controller shows it.
+     *
+     * @param device path of the device
+     * @param sessionId
+     * @return
+     */
+    String scan(String device, String sessionId) {
+        return String.format("ws://%s:%d/%s/%s", host.getHostAddress(), server.getPort(), device, sessionId);
+    }
+
+    int verified() {
+        return verified.get();
+    }
+
+    int rejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    private final class Connection extends WebSocketListener {
+
+        private final String path;
+
+        Connection(String path) {
+            this.path = path;
+        }
+
+        @Override
+        public void onOpen(@NonNull WebSocket socket, @NonNull Response response) {
+            Log.d(TAG, String.format("Connected %s", path));
+        }
+
+        @Override
+        public void onMessage(@NonNull WebSocket socket, @NonNull String text) {
+            try {
+                receive(socket, json.readTree(text));
+            } catch (IOException e) {
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
+            }
+        }
+
+        @Override
+        public void onMessage(@NonNull WebSocket socket, @NonNull ByteString bytes) {
+            try {
+                receive(socket, CborJson.toJson(bytes.toByteArray()));
+            } catch (CborException e) {
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
+            }
+        }
+
+        @Override
+        public void onClosing(@NonNull WebSocket socket, int code, @NonNull String reason) {
+            socket.close(code, null);
+        }
+
+        private void receive(WebSocket socket, JsonNode message) {
+            if (message.has("credential")) {
+                finish(socket, message);
+            } else {
+                start(socket, message);
+            }
+        }
+
+        private void start(WebSocket socket, JsonNode user) {
+            String action = String.format("ws://%s:%d%s", host.getHostAddress(), server.getPort(), path);
+            String ceremony = action.substring(action.lastIndexOf("/") + 1);
+            String origin = action.substring(0, action.lastIndexOf("/"));
+            String rpId = host.getHostAddress();
+            String username = user.path("username").asText();
+            String requestId = Base64.encodeUrl(random(REQUEST_ID_LENGTH));
+            String challenge = Base64.encodeUrl(random(CHALLENGE_LENGTH));
+            pending.put(requestId, new Pending(ceremony, user.path("did").asText(), origin, rpId, challenge));
+
+            ObjectNode reply = json.createObjectNode();
+            reply.put("success", true);
+            reply.put("action", action);
+            ObjectNode request = reply.putObject("request");
+            request.put("requestId", requestId);
+            request.put("username", username);
+            if (REGISTER.equals(ceremony)) {
+                request.put("credentialNickname", username);
+                ObjectNode options = request.putObject("publicKeyCredentialCreationOptions");
+                options.putObject("rp").put("name", "SSIDO").put("id", rpId);
+                options.putObject("user")
+                        .put("name", username)
+                        .put("displayName", user.path("displayName").asText())
+                        .put("id", Base64.encodeUrl(user.path("did").asText().getBytes(UTF8)));
+                options.put("challenge", challenge);
+                options.putArray("pubKeyCredParams").addObject().put("alg", -8).put("type", "public-key");
+                options.putArray("excludeCredentials");
+                options.put("attestation", "direct");
+            } else {
+                ObjectNode options = request.putObject("publicKeyCredentialRequestOptions");
+                options.put("challenge", challenge);
+                options.put("rpId", rpId);
+                options.put("userVerification", "preferred");
+            }
+            send(socket, reply);
+        }
+
+        private void finish(WebSocket socket, JsonNode message) {
+            long start = System.nanoTime();
+            String requestId = message.path("requestId").asText();
+            Pending ceremony = pending.remove(requestId);
+            boolean success = false;
+            try {
+                assure(ceremony != null, "Unknown request %s", requestId);
+                verify(ceremony, message.path("credential").path("response"));
+                success = true;
+                verified.incrementAndGet();
+            } catch (GeneralSecurityException | IOException | IllegalArgumentException e) {
+                rejected.incrementAndGet();
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
+            }
+            if (ceremony != null) {
+                latencies.add("server verify " + ceremony.ceremony, System.nanoTime() - start);
+            }
+
+            ObjectNode reply = json.createObjectNode();
+            reply.put("requestId", requestId);
+            reply.put("success", success);
+            send(socket, reply);
+        }
+
+        private void send(WebSocket socket, ObjectNode message) {
+            if (binary) {
+                socket.send(ByteString.of(CborJson.encode(message)));
+                return;
+            }
+            try {
+                socket.send(json.writeValueAsString(message));
+            } catch (IOException e) {
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
+            }
+        }
+    }
+
+    private void verify(Pending ceremony, JsonNode response) throws GeneralSecurityException, IOException {
+        boolean register = REGISTER.equals(ceremony.ceremony);
+        byte[] clientDataJson = bytes(response.path("clientDataJSON"));
+        JsonNode clientData = json.readTree(clientDataJson);
+        assure(ceremony.challenge.equals(clientData.path("challenge").asText()), "Wrong challenge");
+        assure(ceremony.origin.equals(clientData.path("origin").asText()), "Wrong origin %s", clientData.path("origin").asText());
+        assure((register ? ClientData.TYPE_CREATE : ClientData.TYPE_GET).equals(clientData.path("type").asText()), "Wrong type");
+
+        byte[] authenticatorData;
+        byte[] signature;
+        Credential credential;
+        if (register) {
+            JsonNode attestation;
+            try {
+                attestation = CborJson.toJson(bytes(response.path("attestationObject")));
+            } catch (CborException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            authenticatorData = bytes(attestation.path("authData"));
+            signature = bytes(attestation.path("attStmt").path("sig"));
+            credential = new Credential((EdDSAPublicKey) AuthenticatorCodec.coseToPublicKey(coseKey(authenticatorData)), counter(authenticatorData));
+        } else {
+            authenticatorData = bytes(response.path("authenticatorData"));
+            signature = bytes(response.path("signature"));
+            credential = credentials.get(ceremony.did);
+            assure(credential != null, "No credential of %s", ceremony.did);
+        }
+
+        assure(authenticatorData.length > COUNTER_OFFSET + 4, "Authenticator data too short");
+        byte[] rpIdHash = sha256(ceremony.rpId.getBytes(UTF8));
+        assure(Arrays.equals(rpIdHash, Arrays.copyOf(authenticatorData, rpIdHash.length)), "Wrong RP ID hash");
+
+        // authenticatorData || sha256(clientDataJSON)
+        byte[] signed = Arrays.copyOf(authenticatorData, authenticatorData.length + rpIdHash.length);
+        System.arraycopy(sha256(clientDataJson), 0, signed, authenticatorData.length, rpIdHash.length);
+        assure(Ed25519Signer.verify(credential.key, signed, signature), "Invalid signature");
+
+        if (register) {
+            credentials.put(ceremony.did, credential);
+            return;
+        }
+        long counter = counter(authenticatorData);
+        synchronized (credential) {
+            // Authenticators without a counter always send 0
+            assure(counter > credential.counter || counter == 0 && credential.counter == 0,
+                    "Counter %d not above %d", counter, credential.counter);
+            credential.counter = counter;
+        }
+    }
+
+    private static byte[] coseKey(byte[] authenticatorData) {
+        int offset = COUNTER_OFFSET + 4 + AAGUID_LENGTH;
+        assure(authenticatorData.length > offset + 2, "No attested credential data");
+        int credentialIdLength = (authenticatorData[offset] & 0xff) << 8 | authenticatorData[offset + 1] & 0xff;
+        offset += 2 + credentialIdLength;
+        assure(authenticatorData.length > offset, "No credential public key");
+        return Arrays.copyOfRange(authenticatorData, offset, authenticatorData.length);
+    }
+
+    private static long counter(byte[] authenticatorData) {
+        long counter = 0;
+        for (int i = COUNTER_OFFSET; i < COUNTER_OFFSET + 4; i++) {
+            counter = counter << 8 | authenticatorData[i] & 0xff;
+        }
+        return counter;
+    }
+
+    // Binary members are base64url in CBOR converted to JSON, and clientDataJSON is classic base64 in JSON
+    private static byte[] bytes(JsonNode node) {
+        String text = node.asText();
+        assure(!text.isEmpty(), "Missing binary member");
+        return text.indexOf('+') >= 0 || text.indexOf('/') >= 0 ? Base64.decode(text) : Base64.decodeUrl(text);
+    }
+
+    private static byte[] sha256(byte[] data) throws GeneralSecurityException {
+        return MessageDigest.getInstance("SHA-256").digest(data);
+    }
+
+    private byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.fido.load;
+
+import org.iton.fido.http.HTTPClientFactory;
+import org.iton.fido.wss.WSSessionManager;
+import org.iton.jssi.crypto.codec.Base64;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.libsodium.jni.NaCl;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Load of many phones on one access controller, on the loopback interface. Every virtual
+ * authenticator registers once and then authenticates <code>ceremony.count</code> times in a row,
+ * all authenticators at the same time. The latency percentiles of every phase and the
+ * ceremonies per second are printed.
+ * <p>
+ * Signing needs libsodiumjni built for the host, see <code>sodium.library.path</code> in
+ * fido/build.gradle; without it the test is skipped. Settings, as <code>-P</code> properties of
+ * the build:
+ * <ul>
+ * <li><code>ceremony.authenticators</code> virtual authenticators, default 8</li>
+ * <li><code>ceremony.count</code> authentications of each, default 20</li>
+ * <li><code>ceremony.warmup</code> authentications of each before measuring, default 2</li>
+ * <li><code>ceremony.protocol</code> <code>cbor</code> or <code>json</code>, default cbor</li>
+ * <li><code>ceremony.timeout</code> milliseconds a ceremony may take, default 10000</li>
+ * </ul>
+ *
+ * @author ITON Solutions
+ */
+public class CeremonyLoadTest {
+
+    private static final int AUTHENTICATORS = Integer.getInteger("ceremony.authenticators", 8);
+    private static final int COUNT = Integer.getInteger("ceremony.count", 20);
+    private static final int WARMUP = Integer.getInteger("ceremony.warmup", 2);
+    private static final boolean BINARY = !"json".equalsIgnoreCase(System.getProperty("ceremony.protocol", "cbor"));
+    private static final long TIMEOUT = Long.getLong("ceremony.timeout", 10 * 1000);
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private interface Ceremony {
+        boolean run(VirtualAuthenticator authenticator) throws Exception;
+    }
+
+    @BeforeClass
+    public static void setUp() {
+        try {
+            NaCl.sodium();
+        } catch (UnsatisfiedLinkError e) {
+            Assume.assumeNoException("libsodiumjni for the host is not on java.library.path", e);
+        }
+
+        // A register and an authenticate websocket per authenticator, each holds a dispatcher thread
+        HTTPClientFactory.setInstance(new HTTPClientFactory(
+                2 * AUTHENTICATORS,
+                HTTPClientFactory.DEFAULT_KEEP_ALIVE,
+                2 * AUTHENTICATORS,
+                2 * AUTHENTICATORS,
+                HTTPClientFactory.DEFAULT_PING_INTERVAL));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        WSSessionManager.getInstance().closeAll();
+        HTTPClientFactory.setInstance(null);
+    }
+
+    @Test
+    public void ceremonies() throws Exception {
+        Latencies latencies = new Latencies();
+        ExecutorService executor = Executors.newFixedThreadPool(AUTHENTICATORS);
+        try (AccessController controller = new AccessController(BINARY, latencies)) {
+            controller.start();
+
+            List<VirtualAuthenticator> authenticators = new ArrayList<>(AUTHENTICATORS);
+            for (int i = 0; i < AUTHENTICATORS; i++) {
+                authenticators.add(new VirtualAuthenticator(String.format(Locale.US, "device-%d", i), TIMEOUT));
+            }
+
+            long start = System.nanoTime();
+            int registered = run(executor, authenticators, 1,
+                    authenticator -> authenticator.register(scan(controller, authenticator), latencies));
+            double registrations = rate(registered, start);
+            assertEquals("Registrations", AUTHENTICATORS, registered);
+
+            Latencies warmup = new Latencies();
+            run(executor, authenticators, WARMUP,
+                    authenticator -> authenticator.authenticate(scan(controller, authenticator), warmup));
+
+            start = System.nanoTime();
+            int authenticated = run(executor, authenticators, COUNT,
+                    authenticator -> authenticator.authenticate(scan(controller, authenticator), latencies));
+            double authentications = rate(authenticated, start);
+
+            System.out.println(String.format(Locale.US,
+                    "Ceremonies: %d authenticators, %s, registrations %.1f/s, authentications %.1f/s, verified %d, rejected %d",
+                    AUTHENTICATORS, BINARY ? "cbor" : "json", registrations, authentications,
+                    controller.verified(), controller.rejected()));
+            System.out.println(latencies);
+
+            assertEquals("Authentications", AUTHENTICATORS * COUNT, authenticated);
+            assertEquals("Rejected", 0, controller.rejected());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Run <code>rounds</code> ceremonies one after the other on every authenticator, all
+     * authenticators in parallel.
+     *
+     * @return ceremonies that succeeded
+     */
+    private static int run(ExecutorService executor, List<VirtualAuthenticator> authenticators, int rounds, Ceremony ceremony) throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<>(authenticators.size());
+        for (VirtualAuthenticator authenticator : authenticators) {
+            tasks.add(() -> {
+                int succeeded = 0;
+                for (int i = 0; i < rounds; i++) {
+                    if (ceremony.run(authenticator)) {
+                        succeeded++;
+                    }
+                }
+                return succeeded;
+            });
+        }
+        int succeeded = 0;
+        for (Future<Integer> future : executor.invokeAll(tasks)) {
+            succeeded += future.get();
+        }
+        return succeeded;
+    }
+
+    // A new session id for every ceremony, as the access controller shows a new QR code
+    private static String scan(AccessController controller, VirtualAuthenticator authenticator) {
+        byte[] sessionId = new byte[16];
+        random.nextBytes(sessionId);
+        return controller.scan(authenticator.getDevice(), Base64.encodeUrl(sessionId));
+    }
+
+    private static double rate(int ceremonies, long start) {
+        return ceremonies / ((System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+}
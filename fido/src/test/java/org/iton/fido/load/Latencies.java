@@ -0,0 +1,96 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.fido.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency samples of the ceremonies of a load run, by ceremony and phase.
+ *
+ * @author ITON Solutions
+ */
+final class Latencies {
+
+    private static final double[] PERCENTILES = {50, 95, 99};
+
+    // Guarded by this, nanoseconds in the order the phases were first recorded
+    private final Map<String, List<Long>> samples = new LinkedHashMap<>();
+
+    synchronized void add(String phase, long nanos) {
+        List<Long> values = samples.get(phase);
+        if (values == null) {
+            values = new ArrayList<>();
+            samples.put(phase, values);
+        }
+        values.add(nanos);
+    }
+
+    /**
+     * Nearest rank percentile of a phase.
+     *
+     * @param phase
+     * @param percentile 0 to 100
+     * @return nanoseconds or -1 without samples
+     */
+    synchronized long percentile(String phase, double percentile) {
+        List<Long> values = samples.get(phase);
+        if (values == null || values.isEmpty()) {
+            return -1;
+        }
+        List<Long> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * sorted.size());
+        return sorted.get(Math.max(rank, 1) - 1);
+    }
+
+    synchronized int count(String phase) {
+        List<Long> values = samples.get(phase);
+        return values == null ? 0 : values.size();
+    }
+
+    /**
+     * A table of the percentiles of every phase in milliseconds.
+     */
+    @Override
+    public synchronized String toString() {
+        StringBuilder result = new StringBuilder(String.format(Locale.US, "%-32s %8s", "phase", "count"));
+        for (double percentile : PERCENTILES) {
+            result.append(String.format(Locale.US, " %9s", String.format(Locale.US, "p%.0f ms", percentile)));
+        }
+        for (String phase : samples.keySet()) {
+            result.append(String.format(Locale.US, "%n%-32s %8d", phase, count(phase)));
+            for (double percentile : PERCENTILES) {
+                result.append(String.format(Locale.US, " %9.3f", percentile(phase, percentile) / 1e6));
+            }
+        }
+        return result.toString();
+    }
+}
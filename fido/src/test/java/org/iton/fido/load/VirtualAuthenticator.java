@@ -0,0 +1,248 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.fido.load;
+
+import android.content.Context;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import org.iton.fido.Fido;
+import org.iton.fido.core.CeremonyStager;
+import org.iton.fido.model.ClientData;
+import org.iton.fido.service.FidoService;
+import org.iton.fido.store.StoreService;
+import org.iton.fido.ui.authenticate.FinishAuthenticationHandler;
+import org.iton.fido.ui.authenticate.StartAuthenticationHandler;
+import org.iton.fido.ui.register.FinishRegistrationHandler;
+import org.iton.fido.ui.register.StartRegistrationHandler;
+import org.iton.fido.util.JacksonCodecs;
+import org.iton.fido.wss.WSSession;
+import org.iton.fido.wss.WSSessionManager;
+import org.iton.fido.wss.event.BinaryMessage;
+import org.iton.fido.wss.event.StringMessage;
+import org.iton.jssi.crypto.KeyRecord;
+import org.iton.jssi.crypto.codec.Base58;
+import org.iton.jssi.did.Did;
+import org.libsodium.api.Crypto_sign_ed25519;
+import org.libsodium.jni.SodiumException;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.subjects.SingleSubject;
+
+/**
+ * A phone running the app, without the camera and the wallet: it has its own DID, keys and
+ * signature counter in memory, and runs the ceremony of a scanned QR code the way
+ * {@link org.iton.fido.ui.register.RegisterActivity} and
+ * {@link org.iton.fido.ui.authenticate.AuthenticateActivity} do, with the same handlers.
+ * <p>
+ * The handlers only report that the finish message was sent, so the verdict of the access
+ * controller is read from the events of the session.
+ *
+ * @author ITON Solutions
+ */
+final class VirtualAuthenticator {
+
+    static final String REGISTRATION = "registration";
+    static final String AUTHENTICATION = "authentication";
+
+    private static final ObjectReader VERDICT = JacksonCodecs.json().readerFor(JsonNode.class);
+
+    private final String device;
+    private final byte[] verkey;
+    private final byte[] signkey;
+    private final App app;
+    private final long timeout;
+
+    /**
+     * @param device name of the device, also its path on the access controller
+     * @param timeout milliseconds a ceremony may take
+     * @throws SodiumException
+     */
+    VirtualAuthenticator(String device, long timeout) throws SodiumException {
+        Map<String, byte[]> keys = Crypto_sign_ed25519.keypair();
+        this.device = device;
+        this.verkey = keys.get("pk");
+        this.signkey = keys.get("sk");
+        this.timeout = timeout;
+
+        Did did = new Did(Base58.encode(Arrays.copyOf(verkey, 16)), Base58.encode(verkey));
+        app = new App();
+        app.service = new Service(new Store(app, did, device));
+    }
+
+    String getDevice() {
+        return device;
+    }
+
+    /**
+     * Register with the access controller.
+     *
+     * @param scan the QR code
+     * @param latencies where the phases are recorded, if the ceremony succeeds
+     * @return true if the access controller verified the registration
+     */
+    boolean register(String scan, Latencies latencies) {
+        String sessionId = scan.substring(scan.lastIndexOf("/") + 1);
+        String action = scan.replace(sessionId, AccessController.REGISTER);
+        SingleSubject<Boolean> verdict = verdict(action);
+
+        long start = System.nanoTime();
+        CeremonyStager stager = CeremonyStager.stage(action, ClientData.TYPE_CREATE, this::keys);
+        StartRegistrationHandler handler = new StartRegistrationHandler(app, sessionId, action, stager);
+        handler.handle((register, request) -> {
+            stager.mark(CeremonyStager.Phase.OPTIONS_RECEIVED);
+            FinishRegistrationHandler finish = new FinishRegistrationHandler(app, request, register, stager);
+            finish.handle(() -> stager.mark(CeremonyStager.Phase.FINISHED));
+        });
+        return await(REGISTRATION, verdict, stager, start, latencies);
+    }
+
+    /**
+     * Authenticate with the access controller, after {@link #register}.
+     *
+     * @param scan the QR code
+     * @param latencies where the phases are recorded, if the ceremony succeeds
+     * @return true if the access controller verified the assertion
+     */
+    boolean authenticate(String scan, Latencies latencies) {
+        String sessionId = scan.substring(scan.lastIndexOf("/") + 1);
+        String action = scan.replace(sessionId, AccessController.AUTHENTICATE);
+        SingleSubject<Boolean> verdict = verdict(action);
+
+        long start = System.nanoTime();
+        CeremonyStager stager = CeremonyStager.stage(action, ClientData.TYPE_GET, this::keys);
+        StartAuthenticationHandler handler = new StartAuthenticationHandler(app, sessionId, action, stager);
+        handler.handle((authentication, request) -> {
+            stager.mark(CeremonyStager.Phase.OPTIONS_RECEIVED);
+            FinishAuthenticationHandler finish = new FinishAuthenticationHandler(app, request, authentication, stager);
+            finish.handle(() -> stager.mark(CeremonyStager.Phase.FINISHED));
+        });
+        return await(AUTHENTICATION, verdict, stager, start, latencies);
+    }
+
+    // Subscribed before the ceremony starts, so that a fast verdict is not missed
+    private SingleSubject<Boolean> verdict(String action) {
+        SingleSubject<Boolean> verdict = SingleSubject.create();
+        WSSessionManager.getInstance().session(action).events()
+                .filter(event -> event instanceof StringMessage || event instanceof BinaryMessage)
+                .map(event -> WSSession.<JsonNode>decode(VERDICT, event))
+                // The reply to the start message carries the options
+                .filter(message -> !message.has("request"))
+                .map(message -> message.path("success").asBoolean())
+                .firstOrError()
+                .timeout(timeout, TimeUnit.MILLISECONDS)
+                .onErrorReturnItem(false)
+                .subscribe(verdict);
+        return verdict;
+    }
+
+    private boolean await(String ceremony, SingleSubject<Boolean> verdict, CeremonyStager stager, long start, Latencies latencies) {
+        boolean success = verdict.blockingGet();
+        long elapsed = System.nanoTime() - start;
+        // As the activity does when it goes away
+        stager.close();
+        if (success) {
+            for (CeremonyStager.Phase phase : CeremonyStager.Phase.values()) {
+                long nanos = stager.elapsedNanos(phase);
+                if (phase != CeremonyStager.Phase.SCANNED && nanos >= 0) {
+                    latencies.add(ceremony + " " + phase.name().toLowerCase(Locale.US), nanos);
+                }
+            }
+            latencies.add(ceremony + " verified", elapsed);
+        }
+        return success;
+    }
+
+    private KeyRecord keys(CeremonyStager stager) {
+        app.getService().getStoreService().getDid();
+        stager.mark(CeremonyStager.Phase.DID_LOADED);
+        // A copy for every ceremony, the finish handler clears the signkey
+        return new KeyRecord(KeyRecord.ED25519, verkey, signkey.clone());
+    }
+
+    private static final class App extends Fido {
+
+        private FidoService service;
+
+        @Override
+        public FidoService getService() {
+            return service;
+        }
+    }
+
+    private static final class Service extends FidoService {
+
+        private final StoreService store;
+
+        Service(StoreService store) {
+            this.store = store;
+        }
+
+        @Override
+        public StoreService getStoreService() {
+            return store;
+        }
+    }
+
+    private static final class Store extends StoreService {
+
+        private final Did did;
+        private final String username;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        Store(Context context, Did did, String username) {
+            super(context);
+            this.did = did;
+            this.username = username;
+        }
+
+        @Override
+        public Did getDid() {
+            return did;
+        }
+
+        @Override
+        public String getUsername() {
+            return username;
+        }
+
+        @Override
+        public Integer getCounter() {
+            return counter.get();
+        }
+
+        @Override
+        public void setCounter(int counter) {
+            this.counter.set(counter);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.upokecenter.cbor.CBORObject;
+
+import org.iton.fido.util.CborException;
+import org.iton.fido.util.CborReader;
+import org.iton.fido.util.CborWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding an attestation object with {@link CborWriter} and {@link CborReader},
+ * against the upokecenter and Jackson CBOR codecs.
+ *
+ * @author ITON Solutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CborBenchmark {
+
+    private static final String FMT = "fmt";
+    private static final String ATT_STMT = "attStmt";
+    private static final String AUTH_DATA = "authData";
+
+    @Param({"32", "1024", "32768", "1048576"})
+    public int size;
+
+    private final ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+    private byte[] authData;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        authData = Payloads.random(size);
+        encoded = encode(authData);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return encode(authData);
+    }
+
+    @Benchmark
+    public byte[] read() throws CborException {
+        return decode(encoded);
+    }
+
+    @Benchmark
+    public byte[] upokecenterWrite() {
+        return upokecenterEncode(authData);
+    }
+
+    @Benchmark
+    public byte[] upokecenterRead() {
+        return CBORObject.DecodeFromBytes(encoded).get(AUTH_DATA).GetByteString();
+    }
+
+    @Benchmark
+    public byte[] jacksonWrite() throws Exception {
+        return jacksonEncode(authData);
+    }
+
+    @Benchmark
+    public byte[] jacksonRead() throws Exception {
+        return mapper.readTree(encoded).get(AUTH_DATA).binaryValue();
+    }
+
+    // Keys in canonical order, as an authenticator writes them
+    private static byte[] encode(byte[] authData) {
+        return new CborWriter(authData.length + 32)
+                .writeMap(3)
+                .writeText(FMT).writeText("none")
+                .writeText(ATT_STMT).writeMap(0)
+                .writeText(AUTH_DATA).writeBytes(authData)
+                .toByteArray();
+    }
+
+    private static byte[] decode(byte[] encoded) throws CborException {
+        CborReader reader = new CborReader(encoded);
+        byte[] authData = null;
+        int entries = reader.readMap();
+        for (int i = 0; i < entries; i++) {
+            if (AUTH_DATA.equals(reader.readText())) {
+                authData = reader.readBytes();
+            } else {
+                reader.skip();
+            }
+        }
+        return authData;
+    }
+
+    private static byte[] upokecenterEncode(byte[] authData) {
+        return CBORObject.NewMap()
+                .Add(FMT, "none")
+                .Add(ATT_STMT, CBORObject.NewMap())
+                .Add(AUTH_DATA, authData)
+                .EncodeToBytes();
+    }
+
+    private byte[] jacksonEncode(byte[] authData) throws Exception {
+        ObjectNode node = mapper.createObjectNode();
+        node.put(FMT, "none");
+        node.putObject(ATT_STMT);
+        node.put(AUTH_DATA, authData);
+        return mapper.writeValueAsBytes(node);
+    }
+}
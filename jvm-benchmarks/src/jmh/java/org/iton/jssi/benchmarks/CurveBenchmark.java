@@ -0,0 +1,104 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import org.iton.fido.crypto.math.Field;
+import org.iton.fido.crypto.math.FieldElement;
+import org.iton.fido.crypto.math.GroupElement;
+import org.iton.fido.crypto.spec.EdDSANamedCurveTable;
+import org.iton.fido.crypto.spec.EdDSAParameterSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Ed25519 arithmetic under {@link SignatureBenchmark}: scalar multiplication of group
+ * elements and the field operations they are built of.
+ *
+ * @author ITON Solutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurveBenchmark {
+
+    private GroupElement base;
+    private GroupElement negA;
+    private byte[] a;
+    private byte[] b;
+    private FieldElement x;
+    private FieldElement y;
+
+    @Setup
+    public void setUp() {
+        EdDSAParameterSpec spec = EdDSANamedCurveTable.ED_25519_CURVE_SPEC;
+        base = spec.getB();
+        a = Payloads.scalar();
+        b = Payloads.scalar();
+        negA = base.scalarMultiply(Payloads.scalar()).negate();
+
+        Field field = spec.getCurve().getField();
+        x = field.fromByteArray(Payloads.scalar());
+        y = field.fromByteArray(Payloads.scalar());
+    }
+
+    @Benchmark
+    public GroupElement scalarMultiply() {
+        return base.scalarMultiply(a);
+    }
+
+    @Benchmark
+    public GroupElement doubleScalarMultiply() {
+        return base.doubleScalarMultiplyVariableTime(negA, a, b);
+    }
+
+    @Benchmark
+    public FieldElement multiply() {
+        return x.multiply(y);
+    }
+
+    @Benchmark
+    public FieldElement square() {
+        return x.square();
+    }
+
+    @Benchmark
+    public FieldElement invert() {
+        return x.invert();
+    }
+}
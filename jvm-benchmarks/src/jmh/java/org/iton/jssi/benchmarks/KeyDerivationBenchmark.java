@@ -0,0 +1,79 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import org.iton.jssi.crypto.codec.Base58;
+import org.iton.jssi.wallet.crypto.KeyDerivationData;
+import org.iton.jssi.wallet.crypto.Method;
+import org.libsodium.jni.NaCl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.libsodium.jni.SodiumConstants.CRYPTO_PWHASH_ARGON2I_SALTBYTES;
+
+/**
+ * The master key derivation of {@link KeyDerivationData} for every {@link Method}. Argon2 is
+ * memory hard, run it with one thread.
+ *
+ * @author ITON Solutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyDerivationBenchmark {
+
+    @Param({"ARGON2I_MOD", "ARGON2I_INT", "RAW"})
+    public Method method;
+
+    private KeyDerivationData data;
+
+    @Setup
+    public void setUp() {
+        NaCl.sodium();
+        // RAW takes the master key itself, as Base58
+        String passphrase = method == Method.RAW ? Base58.encode(Payloads.random(32)) : "benchmark";
+        data = new KeyDerivationData(passphrase, Payloads.random(CRYPTO_PWHASH_ARGON2I_SALTBYTES), method);
+    }
+
+    @Benchmark
+    public byte[] deriveMasterKey() throws Exception {
+        return data.deriveMasterKey();
+    }
+}
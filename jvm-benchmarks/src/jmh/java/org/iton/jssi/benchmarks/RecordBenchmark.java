@@ -0,0 +1,179 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import org.iton.jssi.store.model.Item;
+import org.iton.jssi.wallet.Wallet;
+import org.iton.jssi.wallet.WalletStats;
+import org.iton.jssi.wallet.record.WalletRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The record operations of a {@link Wallet} by number of records, tags and value size, on
+ * SQLite through JDBC. With more threads they share the wallet, as the services of the app do.
+ *
+ * @author ITON Solutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordBenchmark {
+
+    // Records looked up in turn, in random order
+    private static final int LOOKUPS = 1024;
+
+    @Param({"1000", "10000"})
+    public int records;
+
+    @Param({"0", "4", "16"})
+    public int tags;
+
+    @Param({"64", "256", "16384"})
+    public int valueSize;
+
+    private Wallet wallet;
+
+    /**
+     * A record of each thread, added and deleted again so the wallet keeps its size.
+     */
+    @State(Scope.Thread)
+    public static class Added {
+
+        private static final AtomicInteger NEXT = new AtomicInteger();
+
+        WalletRecord record;
+
+        @Setup
+        public void setUp(RecordBenchmark benchmark) {
+            record = WalletFixture.record(benchmark.records + NEXT.getAndIncrement(), benchmark.tags, benchmark.valueSize);
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown(RecordBenchmark benchmark) {
+            benchmark.wallet.deleteRecord(record);
+        }
+    }
+
+    /**
+     * Records of each thread, looked up in turn.
+     */
+    @State(Scope.Thread)
+    public static class Lookups {
+
+        final String[] types = new String[LOOKUPS];
+        final String[] names = new String[LOOKUPS];
+        int next;
+
+        @Setup
+        public void setUp(RecordBenchmark benchmark) {
+            Random random = new Random();
+            for (int i = 0; i < LOOKUPS; i++) {
+                int record = random.nextInt(benchmark.records);
+                types[i] = WalletFixture.type(record);
+                names[i] = WalletFixture.name(record);
+            }
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        wallet = WalletFixture.wallet(records, tags, valueSize);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        WalletFixture.release(wallet);
+    }
+
+    @Benchmark
+    public Item addRecord(Added added) throws Exception {
+        return wallet.addRecord(added.record);
+    }
+
+    @Benchmark
+    public WalletRecord findRecord(Lookups lookups) throws Exception {
+        int i = lookups.next;
+        lookups.next = (i + 1) % LOOKUPS;
+        return wallet.findRecord(lookups.types[i], lookups.names[i]);
+    }
+
+    @Benchmark
+    public WalletRecord findMissingRecord() throws Exception {
+        return wallet.findRecord(WalletFixture.type(0), WalletFixture.name(records));
+    }
+
+    /**
+     * One type, a tenth of the records.
+     */
+    @Benchmark
+    public List<WalletRecord> findRecords() throws Exception {
+        return wallet.findRecords(WalletFixture.type(0));
+    }
+
+    /**
+     * The same records, decrypted in parallel on the crypto scheduler.
+     */
+    @Benchmark
+    public void findRecordsRx() {
+        wallet.rx().findRecords(WalletFixture.type(0)).blockingSubscribe();
+    }
+
+    @Benchmark
+    public List<WalletRecord> findAllRecords() throws Exception {
+        return wallet.findAllRecords();
+    }
+
+    @Benchmark
+    public void updateRecordValue() throws Exception {
+        WalletRecord record = WalletFixture.record(0, tags, valueSize);
+        wallet.updateRecordValue(record, record.getValue());
+    }
+
+    @Benchmark
+    public WalletStats stats() throws Exception {
+        return wallet.stats();
+    }
+}
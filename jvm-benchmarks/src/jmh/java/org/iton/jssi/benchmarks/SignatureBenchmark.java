@@ -0,0 +1,153 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import org.iton.fido.crypto.Ed25519Signer;
+import org.iton.fido.crypto.EdDSAEngine;
+import org.iton.fido.crypto.EdDSAPrivateKey;
+import org.iton.fido.crypto.EdDSAPublicKey;
+import org.iton.fido.crypto.spec.EdDSANamedCurveTable;
+import org.iton.fido.crypto.spec.EdDSAPrivateKeySpec;
+import org.iton.fido.crypto.spec.EdDSAPublicKeySpec;
+import org.iton.jssi.crypto.ComboBox;
+import org.iton.jssi.crypto.CryptoService;
+import org.iton.jssi.crypto.Keys;
+import org.libsodium.jni.NaCl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signatures and public key encryption: libsodium through {@link CryptoService}, and the Java
+ * Ed25519 of the authenticator through {@link EdDSAEngine} and {@link Ed25519Signer}.
+ *
+ * @author ITON Solutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignatureBenchmark {
+
+    @Param({"32", "1024", "32768", "1048576"})
+    public int size;
+
+    private byte[] data;
+
+    private CryptoService service;
+    private Keys sender;
+    private Keys receiver;
+    private byte[] signature;
+
+    private EdDSAPrivateKey privateKey;
+    private EdDSAPublicKey publicKey;
+    private byte[] edSignature;
+
+    /**
+     * An engine is used by one thread at a time.
+     */
+    @State(Scope.Thread)
+    public static class Engines {
+
+        EdDSAEngine signer;
+        EdDSAEngine verifier;
+
+        @Setup
+        public void setUp(SignatureBenchmark benchmark) throws Exception {
+            signer = new EdDSAEngine();
+            signer.initSign(benchmark.privateKey);
+            verifier = new EdDSAEngine();
+            verifier.initVerify(benchmark.publicKey);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        NaCl.sodium();
+        data = Payloads.random(size);
+
+        service = new CryptoService();
+        sender = service.createKeys(null);
+        receiver = service.createKeys(null);
+        signature = service.sign(data, sender);
+
+        privateKey = new EdDSAPrivateKey(new EdDSAPrivateKeySpec(Payloads.random(32), EdDSANamedCurveTable.ED_25519_CURVE_SPEC));
+        publicKey = new EdDSAPublicKey(new EdDSAPublicKeySpec(privateKey.getA(), EdDSANamedCurveTable.ED_25519_CURVE_SPEC));
+        edSignature = Ed25519Signer.sign(privateKey, data);
+    }
+
+    @Benchmark
+    public byte[] sign() throws Exception {
+        return service.sign(data, sender);
+    }
+
+    @Benchmark
+    public boolean verify() throws Exception {
+        return service.verify(data, signature, sender);
+    }
+
+    @Benchmark
+    public ComboBox cryptoBox() throws Exception {
+        return service.comboBox(sender, receiver, data);
+    }
+
+    @Benchmark
+    public byte[] cryptoBoxSeal() throws Exception {
+        return service.cryptoBoxSeal(receiver, data);
+    }
+
+    @Benchmark
+    public byte[] engineSign(Engines engines) throws Exception {
+        return engines.signer.signOneShot(data);
+    }
+
+    @Benchmark
+    public boolean engineVerify(Engines engines) throws Exception {
+        return engines.verifier.verifyOneShot(data, edSignature);
+    }
+
+    @Benchmark
+    public byte[] signerSign() throws Exception {
+        return Ed25519Signer.sign(privateKey, data);
+    }
+
+    @Benchmark
+    public boolean signerVerify() throws Exception {
+        return Ed25519Signer.verify(publicKey, data, edSignature);
+    }
+}
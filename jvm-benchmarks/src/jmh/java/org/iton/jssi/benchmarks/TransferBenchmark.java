@@ -0,0 +1,141 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import org.iton.jssi.wallet.Wallet;
+import org.iton.jssi.wallet.io.IOConfig;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export and import of a wallet by number of records. Besides the operations per second,
+ * reports the bytes of the export file moved per second. Both include the key derivation of the
+ * export passphrase.
+ *
+ * @author ITON Solutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransferBenchmark {
+
+    private static final String EXPORT_KEY = "export";
+    private static final int TAGS = 4;
+    private static final int VALUE_SIZE = 256;
+
+    @Param({"1000", "10000"})
+    public int records;
+
+    private Wallet wallet;
+    private IOConfig config;
+    private long size;
+
+    /**
+     * Bytes of the export file written or read, per second over the iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Transferred {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    /**
+     * An empty wallet of each thread to import into.
+     */
+    @State(Scope.Thread)
+    public static class Target {
+
+        String id;
+        Wallet wallet;
+
+        @Setup(Level.Invocation)
+        public void setUp(TransferBenchmark benchmark) throws Exception {
+            if (id == null) {
+                id = WalletFixture.id(benchmark.records, TAGS, VALUE_SIZE) + "-import-" + Thread.currentThread().getId();
+            }
+            wallet = WalletFixture.empty(id);
+        }
+
+        @TearDown
+        public void tearDown() throws Exception {
+            WalletFixture.delete(id);
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        wallet = WalletFixture.wallet(records, TAGS, VALUE_SIZE);
+        File file = new File(System.getProperty("java.io.tmpdir"), WalletFixture.id(records, TAGS, VALUE_SIZE) + ".export");
+        config = new IOConfig(file.getPath(), EXPORT_KEY);
+        wallet.rx().export(config).blockingSubscribe();
+        size = file.length();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        WalletFixture.release(wallet);
+    }
+
+    /**
+     * Every thread writes its own file, next to the one imported from.
+     */
+    @Benchmark
+    public void export(Transferred transferred) {
+        IOConfig target = new IOConfig(config.path + "-" + Thread.currentThread().getId(), EXPORT_KEY);
+        wallet.rx().export(target).blockingSubscribe();
+        transferred.bytes += size;
+    }
+
+    @Benchmark
+    public void restore(Target target, Transferred transferred) {
+        target.wallet.rx().restore(config).blockingSubscribe();
+        transferred.bytes += size;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import org.iton.jssi.wallet.crypto.Crypto;
+import org.iton.jssi.wallet.record.ItemValue;
+import org.libsodium.api.Crypto_aead_chacha20poly1305_ietf;
+import org.libsodium.api.Crypto_auth_hmacsha256;
+import org.libsodium.jni.NaCl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The encryption of wallet records: searchable type, name and tag encryption, and values with
+ * their own keys.
+ *
+ * @author ITON Solutions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WalletCryptoBenchmark {
+
+    @Param({"32", "1024", "32768", "1048576"})
+    public int size;
+
+    private byte[] data;
+    private byte[] key;
+    private byte[] hmacKey;
+    private byte[] searchable;
+    private ItemValue value;
+
+    @Setup
+    public void setUp() throws Exception {
+        NaCl.sodium();
+        data = Payloads.random(size);
+        key = Crypto_aead_chacha20poly1305_ietf.keygen();
+        hmacKey = Crypto_auth_hmacsha256.keygen();
+        searchable = Crypto.encryptAsSearchable(data, key, hmacKey);
+        value = new ItemValue().encrypt(data, key);
+    }
+
+    @Benchmark
+    public byte[] encryptAsSearchable() throws Exception {
+        return Crypto.encryptAsSearchable(data, key, hmacKey);
+    }
+
+    @Benchmark
+    public byte[] decryptMerged() throws Exception {
+        return Crypto.decryptMerged(searchable, key);
+    }
+
+    @Benchmark
+    public ItemValue encryptValue() throws Exception {
+        return new ItemValue().encrypt(data, key);
+    }
+
+    @Benchmark
+    public String decryptValue() throws Exception {
+        return value.decrypt(key);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.benchmarks;
+
+import android.content.Context;
+
+import org.iton.jssi.wallet.Wallet;
+import org.iton.jssi.wallet.WalletConstants;
+import org.iton.jssi.wallet.WalletCredential;
+import org.iton.jssi.wallet.WalletManager;
+import org.iton.jssi.wallet.record.WalletRecord;
+import org.libsodium.jni.NaCl;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+
+/**
+ * Wallets of generated records for the benchmarks, in SQLite files under the
+ * <code>android.storage</code> directory. A wallet is made once for each record count, tag count
+ * and value size and kept for the next runs.
+ *
+ * @author ITON Solutions
+ */
+final class WalletFixture {
+
+    static final String PASSPHRASE = "benchmark";
+    // Records are spread over this many types
+    static final int TYPES = 10;
+
+    // Records encrypted and written at once while filling a wallet
+    private static final int CONCURRENCY = 256;
+
+    private static WalletManager manager;
+
+    private WalletFixture() {
+    }
+
+    static synchronized WalletManager manager() throws Exception {
+        if (manager == null) {
+            NaCl.sodium();
+            File directory = new File(WalletConstants.WALLET_DIR);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IllegalStateException("Wallet directory not created");
+            }
+            manager = new WalletManager(new Context(), 4, TimeUnit.HOURS.toMillis(1), WalletManager.MEMORY_BUDGET);
+        }
+        return manager;
+    }
+
+    static String id(int count, int tags, int valueSize) {
+        return String.format(Locale.ROOT, "bench-%d-%d-%d", count, tags, valueSize);
+    }
+
+    static WalletCredential credential(String id) {
+        return new WalletCredential(id, PASSPHRASE);
+    }
+
+    /**
+     * @return a wallet with <code>count</code> records of {@link #record(int, int, int)}
+     */
+    static Wallet wallet(int count, int tags, int valueSize) throws Exception {
+        String id = id(count, tags, valueSize);
+
+        if (exists(id)) {
+            Wallet wallet = manager().open(credential(id)).blockingFirst();
+            if (wallet.stats().getCount() == count) {
+                return wallet;
+            }
+            delete(id);
+        }
+
+        final Wallet wallet = manager().create(credential(id)).blockingFirst();
+        Flowable.range(0, count)
+                .flatMapSingle(i -> wallet.rx().addRecord(record(i, tags, valueSize)), false, CONCURRENCY)
+                .blockingLast();
+        return wallet;
+    }
+
+    /**
+     * Return a wallet of {@link #wallet} or {@link #empty}, so the manager may close it.
+     */
+    static void release(Wallet wallet) throws Exception {
+        manager().release(wallet);
+    }
+
+    /**
+     * A new empty wallet, replacing one with the same id.
+     */
+    static Wallet empty(String id) throws Exception {
+        delete(id);
+        return manager().create(credential(id)).blockingFirst();
+    }
+
+    static void delete(String id) throws Exception {
+        // The files are deleted once the database is closed
+        manager().close(id).blockingAwait();
+        for (String suffix : new String[]{"", "-wal", "-shm", "-journal"}) {
+            File file = new File(WalletConstants.WALLET_DIR + id + ".db" + suffix);
+            if (file.exists() && !file.delete()) {
+                throw new IllegalStateException(String.format("%s not deleted", file));
+            }
+        }
+    }
+
+    static WalletRecord record(int i, int tags, int valueSize) {
+        Map<String, String> map = new HashMap<>();
+        for (int tag = 0; tag < tags; tag++) {
+            // Every other tag is stored in plain text
+            String name = (tag % 2 == 0 ? "tag-" : "~tag-") + tag;
+            map.put(name, String.format(Locale.ROOT, "%d-%d", i % 100, tag));
+        }
+        return new WalletRecord(type(i), name(i), value(i, valueSize), map);
+    }
+
+    static String type(int i) {
+        return "type-" + (i % TYPES);
+    }
+
+    static String name(int i) {
+        return "record-" + i;
+    }
+
+    private static String value(int i, int valueSize) {
+        StringBuilder value = new StringBuilder(valueSize);
+        value.append(i).append(':');
+        while (value.length() < valueSize) {
+            value.append((char) ('a' + value.length() % 26));
+        }
+        return value.toString();
+    }
+
+    private static boolean exists(String id) {
+        return new File(WalletConstants.WALLET_DIR + id + ".db").exists();
+    }
+}
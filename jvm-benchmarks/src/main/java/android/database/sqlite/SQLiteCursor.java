@@ -0,0 +1,287 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package android.database.sqlite;
+
+import android.database.Cursor;
+import android.database.SQLException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The rows of a {@link SQLiteQuery}, read when the cursor is made. Values convert as in a cursor
+ * window: text to and from numbers, text to bytes, and null to zero.
+ *
+ * @author ITON Solutions
+ */
+public class SQLiteCursor implements Cursor {
+
+    private final SQLiteCursorDriver driver;
+    private final String editTable;
+    private final Rows rows;
+    private int position = -1;
+    private boolean closed;
+
+    public SQLiteCursor(SQLiteCursorDriver driver, String editTable, SQLiteQuery query) {
+        this.driver = driver;
+        this.editTable = editTable;
+        this.rows = query.fill();
+    }
+
+    public String getEditTable() {
+        return editTable;
+    }
+
+    @Override
+    public int getCount() {
+        return rows.values.size();
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean move(int offset) {
+        return moveToPosition(position + offset);
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+        int count = getCount();
+        if (position >= count) {
+            this.position = count;
+            return false;
+        }
+        if (position < 0) {
+            this.position = -1;
+            return false;
+        }
+        this.position = position;
+        return true;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        return moveToPosition(0);
+    }
+
+    @Override
+    public boolean moveToLast() {
+        return moveToPosition(getCount() - 1);
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return moveToPosition(position + 1);
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        return moveToPosition(position - 1);
+    }
+
+    @Override
+    public boolean isFirst() {
+        return position == 0 && getCount() != 0;
+    }
+
+    @Override
+    public boolean isLast() {
+        int count = getCount();
+        return position == count - 1 && count != 0;
+    }
+
+    @Override
+    public boolean isBeforeFirst() {
+        return getCount() == 0 || position == -1;
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        return getCount() == 0 || position == getCount();
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        // Columns may be asked for as table.column
+        int dot = columnName.lastIndexOf('.');
+        String name = dot == -1 ? columnName : columnName.substring(dot + 1);
+        for (int i = 0; i < rows.columns.length; i++) {
+            if (rows.columns[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) throws IllegalArgumentException {
+        int index = getColumnIndex(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+        }
+        return index;
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return rows.columns[columnIndex];
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return rows.columns.clone();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return rows.columns.length;
+    }
+
+    @Override
+    public byte[] getBlob(int columnIndex) {
+        Object value = value(columnIndex);
+        if (value == null || value instanceof byte[]) {
+            return (byte[]) value;
+        }
+        if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8);
+        }
+        throw new SQLException("Unable to convert " + type(value) + " to blob");
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        Object value = value(columnIndex);
+        if (value instanceof byte[]) {
+            throw new SQLException("Unable to convert BLOB to string");
+        }
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public short getShort(int columnIndex) {
+        return (short) getLong(columnIndex);
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return (int) getLong(columnIndex);
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        throw new SQLException("Unable to convert BLOB to long");
+    }
+
+    @Override
+    public float getFloat(int columnIndex) {
+        return (float) getDouble(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        throw new SQLException("Unable to convert BLOB to double");
+    }
+
+    @Override
+    public int getType(int columnIndex) {
+        Object value = value(columnIndex);
+        if (value == null) {
+            return FIELD_TYPE_NULL;
+        }
+        if (value instanceof byte[]) {
+            return FIELD_TYPE_BLOB;
+        }
+        if (value instanceof String) {
+            return FIELD_TYPE_STRING;
+        }
+        return value instanceof Double || value instanceof Float ? FIELD_TYPE_FLOAT : FIELD_TYPE_INTEGER;
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return value(columnIndex) == null;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            if (driver != null) {
+                driver.cursorClosed();
+            }
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private Object value(int columnIndex) {
+        if (closed) {
+            throw new IllegalStateException("Cursor is closed");
+        }
+        if (position < 0 || position >= getCount()) {
+            throw new IndexOutOfBoundsException(String.format("Index %d requested, with a size of %d", position, getCount()));
+        }
+        return rows.values.get(position)[columnIndex];
+    }
+
+    private static String type(Object value) {
+        return value instanceof Double || value instanceof Float ? "FLOAT" : "INTEGER";
+    }
+}
@@ -0,0 +1,627 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package android.database.sqlite;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.util.Log;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A SQLite database on the JVM, through the SQLite JDBC driver. As on Android one connection
+ * writes and runs the transactions: a thread holds it from {@link #beginTransaction()} to
+ * {@link #endTransaction()}, and while it runs a statement outside of a transaction. With write
+ * ahead logging the queries of other threads run on a connection of their own, and never wait
+ * for the writer.
+ *
+ * @author ITON Solutions
+ */
+public final class SQLiteDatabase {
+
+    private static final String TAG = SQLiteDatabase.class.getName();
+
+    public static final int CONFLICT_NONE = 0;
+    public static final int CONFLICT_ROLLBACK = 1;
+    public static final int CONFLICT_ABORT = 2;
+    public static final int CONFLICT_FAIL = 3;
+    public static final int CONFLICT_IGNORE = 4;
+    public static final int CONFLICT_REPLACE = 5;
+
+    private static final String[] CONFLICT_VALUES = {"", " OR ROLLBACK", " OR ABORT", " OR FAIL", " OR IGNORE", " OR REPLACE"};
+
+    // Prepared statements kept per connection, as many as Android keeps
+    private static final int STATEMENT_CACHE_SIZE = 25;
+
+    private static final SQLiteCursorDriver DRIVER = () -> {
+    };
+
+    private static final Step<Void> EXECUTE = (statement, link) -> {
+        if (statement.execute()) {
+            statement.getResultSet().close();
+        }
+        return null;
+    };
+
+    public interface CursorFactory {
+
+        Cursor newCursor(SQLiteDatabase db, SQLiteCursorDriver masterQuery, String editTable, SQLiteQuery query);
+    }
+
+    private final String path;
+    private final CursorFactory factory;
+    private final Link primary;
+    // Held by the thread of a transaction, and by a thread running a statement on the primary
+    private final ReentrantLock lock = new ReentrantLock();
+    // Whether each nested transaction is marked successful, innermost first. Guarded by lock
+    private final Deque<Boolean> transactions = new ArrayDeque<>();
+    // A nested transaction ended unsuccessful. Guarded by lock
+    private boolean failed;
+    private final ThreadLocal<Link> reader = new ThreadLocal<>();
+    // Guarded by this
+    private final List<Link> readers = new ArrayList<>();
+    private volatile boolean wal;
+    private volatile boolean open = true;
+
+    private SQLiteDatabase(String path, CursorFactory factory) {
+        this.path = path;
+        this.factory = factory;
+        this.primary = connect();
+    }
+
+    public static SQLiteDatabase openOrCreateDatabase(String path, CursorFactory factory) {
+        return new SQLiteDatabase(path, factory);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    public int getVersion() {
+        return (int) executeForLong("PRAGMA user_version", null);
+    }
+
+    public void setVersion(int version) {
+        execSQL("PRAGMA user_version = " + version);
+    }
+
+    /**
+     * Let queries outside of a transaction run on a connection of their thread.
+     *
+     * @return false if the database can not use a write ahead log
+     */
+    public boolean enableWriteAheadLogging() {
+        checkOpen();
+        lock.lock();
+        try {
+            if (!transactions.isEmpty()) {
+                throw new IllegalStateException("Write Ahead Logging (WAL) mode cannot be enabled or disabled while there are transactions in progress.");
+            }
+            String mode = run(primary, "PRAGMA journal_mode = WAL", null, (statement, link) -> {
+                try (ResultSet result = statement.executeQuery()) {
+                    return result.next() ? result.getString(1) : null;
+                }
+            });
+            wal = "wal".equalsIgnoreCase(mode);
+            return wal;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Run every statement on the primary connection again. Connections of readers are closed
+     * with the database.
+     */
+    public void disableWriteAheadLogging() {
+        checkOpen();
+        lock.lock();
+        try {
+            if (!transactions.isEmpty()) {
+                throw new IllegalStateException("Write Ahead Logging (WAL) mode cannot be enabled or disabled while there are transactions in progress.");
+            }
+            wal = false;
+            run(primary, "PRAGMA journal_mode = DELETE", null, EXECUTE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isWriteAheadLoggingEnabled() {
+        return wal;
+    }
+
+    public void beginTransaction() {
+        begin("BEGIN EXCLUSIVE");
+    }
+
+    public void beginTransactionNonExclusive() {
+        begin("BEGIN IMMEDIATE");
+    }
+
+    public void setTransactionSuccessful() {
+        checkTransaction();
+        if (transactions.peek()) {
+            throw new IllegalStateException("Cannot perform this operation because the transaction has already been marked successful.");
+        }
+        transactions.pop();
+        transactions.push(true);
+    }
+
+    /**
+     * End the innermost transaction. The outermost one commits if every nested transaction was
+     * marked successful, and rolls back otherwise.
+     */
+    public void endTransaction() {
+        checkTransaction();
+        try {
+            if (!transactions.pop()) {
+                failed = true;
+            }
+            if (transactions.isEmpty()) {
+                if (failed) {
+                    run(primary, "ROLLBACK", null, EXECUTE);
+                } else {
+                    commit();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean inTransaction() {
+        return lock.isHeldByCurrentThread() && !transactions.isEmpty();
+    }
+
+    public void execSQL(String sql) throws SQLException {
+        execute(sql, null);
+    }
+
+    public void execSQL(String sql, Object[] bindArgs) throws SQLException {
+        try (SQLiteStatement statement = new SQLiteStatement(this, sql, bindArgs)) {
+            statement.execute();
+        }
+    }
+
+    public SQLiteStatement compileStatement(String sql) throws SQLException {
+        checkOpen();
+        return new SQLiteStatement(this, sql, null);
+    }
+
+    public Cursor rawQuery(String sql, String[] selectionArgs) {
+        return rawQueryWithFactory(null, sql, selectionArgs, null);
+    }
+
+    public Cursor rawQueryWithFactory(CursorFactory cursorFactory, String sql, String[] selectionArgs, String editTable) {
+        checkOpen();
+        SQLiteQuery query = new SQLiteQuery(this, sql, selectionArgs);
+        CursorFactory cursors = cursorFactory != null ? cursorFactory : factory;
+        return cursors != null
+                ? cursors.newCursor(this, DRIVER, editTable, query)
+                : new SQLiteCursor(DRIVER, editTable, query);
+    }
+
+    public Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                        String groupBy, String having, String orderBy) {
+        return query(false, table, columns, selection, selectionArgs, groupBy, having, orderBy, null);
+    }
+
+    public Cursor query(String table, String[] columns, String selection, String[] selectionArgs,
+                        String groupBy, String having, String orderBy, String limit) {
+        return query(false, table, columns, selection, selectionArgs, groupBy, having, orderBy, limit);
+    }
+
+    public Cursor query(boolean distinct, String table, String[] columns, String selection, String[] selectionArgs,
+                        String groupBy, String having, String orderBy, String limit) {
+        return queryWithFactory(null, distinct, table, columns, selection, selectionArgs, groupBy, having, orderBy, limit);
+    }
+
+    /**
+     * The selection arguments are bound as strings, the factory may bind others before it makes
+     * the cursor.
+     */
+    public Cursor queryWithFactory(CursorFactory cursorFactory, boolean distinct, String table, String[] columns,
+                                   String selection, String[] selectionArgs, String groupBy, String having,
+                                   String orderBy, String limit) {
+        String sql = buildQuery(distinct, table, columns, selection, groupBy, having, orderBy, limit);
+        return rawQueryWithFactory(cursorFactory, sql, selectionArgs, table);
+    }
+
+    /**
+     * @return row id of the new row, -1 on an error
+     */
+    public long insert(String table, String nullColumnHack, ContentValues values) {
+        try {
+            return insertWithOnConflict(table, nullColumnHack, values, CONFLICT_NONE);
+        } catch (SQLException e) {
+            Log.e(TAG, String.format("Error inserting into %s: %s", table, e.getMessage()));
+            return -1;
+        }
+    }
+
+    public long insertOrThrow(String table, String nullColumnHack, ContentValues values) throws SQLException {
+        return insertWithOnConflict(table, nullColumnHack, values, CONFLICT_NONE);
+    }
+
+    /**
+     * @return row id of the new row, -1 if the conflict algorithm left it out
+     */
+    public long insertWithOnConflict(String table, String nullColumnHack, ContentValues initialValues, int conflictAlgorithm) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("INSERT").append(CONFLICT_VALUES[conflictAlgorithm]).append(" INTO ").append(table).append('(');
+
+        Object[] bindArgs = null;
+        int size = initialValues == null ? 0 : initialValues.size();
+        if (size > 0) {
+            bindArgs = new Object[size];
+            int i = 0;
+            for (Map.Entry<String, Object> value : initialValues.valueSet()) {
+                sql.append(i > 0 ? "," : "").append(value.getKey());
+                bindArgs[i++] = value.getValue();
+            }
+            sql.append(") VALUES (");
+            for (i = 0; i < size; i++) {
+                sql.append(i > 0 ? ",?" : "?");
+            }
+        } else {
+            sql.append(nullColumnHack).append(") VALUES (NULL");
+        }
+        sql.append(')');
+
+        try (SQLiteStatement statement = new SQLiteStatement(this, sql.toString(), bindArgs)) {
+            return statement.executeInsert();
+        }
+    }
+
+    public int update(String table, ContentValues values, String whereClause, String[] whereArgs) {
+        return updateWithOnConflict(table, values, whereClause, whereArgs, CONFLICT_NONE);
+    }
+
+    public int updateWithOnConflict(String table, ContentValues values, String whereClause, String[] whereArgs,
+                                    int conflictAlgorithm) {
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("Empty values");
+        }
+        StringBuilder sql = new StringBuilder(120);
+        sql.append("UPDATE").append(CONFLICT_VALUES[conflictAlgorithm]).append(' ').append(table).append(" SET ");
+
+        int size = values.size();
+        Object[] bindArgs = new Object[whereArgs == null ? size : size + whereArgs.length];
+        int i = 0;
+        for (Map.Entry<String, Object> value : values.valueSet()) {
+            sql.append(i > 0 ? "," : "").append(value.getKey()).append("=?");
+            bindArgs[i++] = value.getValue();
+        }
+        if (whereArgs != null) {
+            System.arraycopy(whereArgs, 0, bindArgs, size, whereArgs.length);
+        }
+        if (whereClause != null && !whereClause.isEmpty()) {
+            sql.append(" WHERE ").append(whereClause);
+        }
+
+        try (SQLiteStatement statement = new SQLiteStatement(this, sql.toString(), bindArgs)) {
+            return statement.executeUpdateDelete();
+        }
+    }
+
+    public int delete(String table, String whereClause, String[] whereArgs) {
+        String where = whereClause == null || whereClause.isEmpty() ? "" : " WHERE " + whereClause;
+        try (SQLiteStatement statement = new SQLiteStatement(this, "DELETE FROM " + table + where, whereArgs)) {
+            return statement.executeUpdateDelete();
+        }
+    }
+
+    /**
+     * Close the connections, after the transaction of another thread. Readers should be done.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            synchronized (this) {
+                if (!open) {
+                    return;
+                }
+                open = false;
+                for (Link link : readers) {
+                    link.close();
+                }
+                readers.clear();
+            }
+            primary.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SQLiteDatabase: " + path;
+    }
+
+    void execute(String sql, Object[] bindArgs) {
+        run(sql, bindArgs, true, EXECUTE);
+    }
+
+    int executeForChangedRowCount(String sql, Object[] bindArgs) {
+        return run(sql, bindArgs, true, (statement, link) -> statement.executeUpdate());
+    }
+
+    long executeForLastInsertedRowId(String sql, Object[] bindArgs) {
+        return run(sql, bindArgs, true, (statement, link) -> {
+            if (statement.executeUpdate() == 0) {
+                return -1L;
+            }
+            try (ResultSet result = link.prepare("SELECT last_insert_rowid()").executeQuery()) {
+                result.next();
+                return result.getLong(1);
+            }
+        });
+    }
+
+    long executeForLong(String sql, Object[] bindArgs) {
+        return run(sql, bindArgs, false, (statement, link) -> {
+            try (ResultSet result = statement.executeQuery()) {
+                if (!result.next()) {
+                    throw new SQLException("no rows returned from " + sql);
+                }
+                return result.getLong(1);
+            }
+        });
+    }
+
+    Rows executeForRows(String sql, Object[] bindArgs) {
+        return run(sql, bindArgs, false, (statement, link) -> {
+            try (ResultSet result = statement.executeQuery()) {
+                ResultSetMetaData metadata = result.getMetaData();
+                String[] columns = new String[metadata.getColumnCount()];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = metadata.getColumnLabel(i + 1);
+                }
+                List<Object[]> values = new ArrayList<>();
+                while (result.next()) {
+                    Object[] row = new Object[columns.length];
+                    for (int i = 0; i < columns.length; i++) {
+                        row[i] = result.getObject(i + 1);
+                    }
+                    values.add(row);
+                }
+                return new Rows(columns, values);
+            }
+        });
+    }
+
+    private void begin(String sql) {
+        checkOpen();
+        lock.lock();
+        try {
+            if (transactions.isEmpty()) {
+                run(primary, sql, null, EXECUTE);
+                failed = false;
+            }
+            transactions.push(false);
+        } catch (RuntimeException e) {
+            lock.unlock();
+            throw e;
+        }
+    }
+
+    private void commit() {
+        try {
+            run(primary, "COMMIT", null, EXECUTE);
+        } catch (SQLException e) {
+            // A failed commit leaves the transaction open
+            run(primary, "ROLLBACK", null, EXECUTE);
+            throw e;
+        }
+    }
+
+    private void checkTransaction() {
+        if (!lock.isHeldByCurrentThread() || transactions.isEmpty()) {
+            throw new IllegalStateException("Cannot perform this operation because there is no current transaction.");
+        }
+    }
+
+    private void checkOpen() {
+        if (!open) {
+            throw new IllegalStateException("attempt to re-open an already-closed object: " + this);
+        }
+    }
+
+    /**
+     * Queries outside of a transaction go to the connection of their thread under write ahead
+     * logging, everything else to the primary connection.
+     */
+    private <T> T run(String sql, Object[] bindArgs, boolean write, Step<T> step) {
+        checkOpen();
+        if (!write && wal && !lock.isHeldByCurrentThread()) {
+            return run(reader(), sql, bindArgs, step);
+        }
+        lock.lock();
+        try {
+            return run(primary, sql, bindArgs, step);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static <T> T run(Link link, String sql, Object[] bindArgs, Step<T> step) {
+        try {
+            PreparedStatement statement = link.prepare(sql);
+            statement.clearParameters();
+            // Parameters without an argument are null, as in SQLite
+            int count = statement.getParameterMetaData().getParameterCount();
+            for (int i = 0; i < count; i++) {
+                bind(statement, i + 1, bindArgs != null && i < bindArgs.length ? bindArgs[i] : null);
+            }
+            return step.run(statement, link);
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(String.format("%s, while executing: %s", e.getMessage(), sql), e);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, int index, Object value) throws java.sql.SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.NULL);
+        } else if (value instanceof byte[]) {
+            statement.setBytes(index, (byte[]) value);
+        } else if (value instanceof Long) {
+            statement.setLong(index, (Long) value);
+        } else if (value instanceof Double) {
+            statement.setDouble(index, (Double) value);
+        } else {
+            statement.setString(index, value.toString());
+        }
+    }
+
+    private Link reader() {
+        Link link = reader.get();
+        if (link == null) {
+            link = connect();
+            synchronized (this) {
+                if (!open) {
+                    link.close();
+                    checkOpen();
+                }
+                readers.add(link);
+            }
+            reader.set(link);
+        }
+        return link;
+    }
+
+    private Link connect() {
+        try {
+            return new Link(DriverManager.getConnection("jdbc:sqlite:" + path));
+        } catch (java.sql.SQLException e) {
+            throw new SQLException(String.format("Unable to open database %s: %s", path, e.getMessage()), e);
+        }
+    }
+
+    private static String buildQuery(boolean distinct, String table, String[] columns, String where,
+                                     String groupBy, String having, String orderBy, String limit) {
+        StringBuilder query = new StringBuilder(120);
+        query.append("SELECT ");
+        if (distinct) {
+            query.append("DISTINCT ");
+        }
+        if (columns != null && columns.length != 0) {
+            query.append(String.join(", ", columns)).append(' ');
+        } else {
+            query.append("* ");
+        }
+        query.append("FROM ").append(table);
+        appendClause(query, " WHERE ", where);
+        appendClause(query, " GROUP BY ", groupBy);
+        appendClause(query, " HAVING ", having);
+        appendClause(query, " ORDER BY ", orderBy);
+        appendClause(query, " LIMIT ", limit);
+        return query.toString();
+    }
+
+    private static void appendClause(StringBuilder query, String name, String clause) {
+        if (clause != null && !clause.isEmpty()) {
+            query.append(name).append(clause);
+        }
+    }
+
+    private interface Step<T> {
+
+        T run(PreparedStatement statement, Link link) throws java.sql.SQLException;
+    }
+
+    /**
+     * A connection with the statements prepared on it, used by one thread at a time.
+     */
+    private static final class Link {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= STATEMENT_CACHE_SIZE) {
+                    return false;
+                }
+                close(eldest.getValue());
+                return true;
+            }
+        };
+
+        Link(Connection connection) {
+            this.connection = connection;
+        }
+
+        PreparedStatement prepare(String sql) throws java.sql.SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        void close() {
+            for (PreparedStatement statement : statements.values()) {
+                close(statement);
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (java.sql.SQLException e) {
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
+            }
+        }
+
+        private static void close(PreparedStatement statement) {
+            try {
+                statement.close();
+            } catch (java.sql.SQLException e) {
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package android.database.sqlite;
+
+import android.content.Context;
+import android.database.SQLException;
+
+import java.io.File;
+
+/**
+ * Opens a database by its path, and creates or upgrades its schema to the version of the helper.
+ *
+ * @author ITON Solutions
+ */
+public abstract class SQLiteOpenHelper {
+
+    private final String name;
+    private final SQLiteDatabase.CursorFactory factory;
+    private final int version;
+    private boolean wal;
+    private SQLiteDatabase database;
+
+    public SQLiteOpenHelper(Context context, String name, SQLiteDatabase.CursorFactory factory, int version) {
+        if (version < 1) {
+            throw new IllegalArgumentException("Version must be >= 1, was " + version);
+        }
+        this.name = name;
+        this.factory = factory;
+        this.version = version;
+    }
+
+    public String getDatabaseName() {
+        return name;
+    }
+
+    public synchronized void setWriteAheadLoggingEnabled(boolean enabled) {
+        if (wal == enabled) {
+            return;
+        }
+        if (database != null && database.isOpen()) {
+            if (enabled) {
+                database.enableWriteAheadLogging();
+            } else {
+                database.disableWriteAheadLogging();
+            }
+        }
+        wal = enabled;
+    }
+
+    public synchronized SQLiteDatabase getWritableDatabase() {
+        if (database != null && database.isOpen()) {
+            return database;
+        }
+        File parent = new File(name).getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(name, factory);
+        try {
+            if (wal) {
+                db.enableWriteAheadLogging();
+            }
+            onConfigure(db);
+
+            int current = db.getVersion();
+            if (current != version) {
+                db.beginTransaction();
+                try {
+                    if (current == 0) {
+                        onCreate(db);
+                    } else if (current > version) {
+                        onDowngrade(db, current, version);
+                    } else {
+                        onUpgrade(db, current, version);
+                    }
+                    db.setVersion(version);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            }
+            onOpen(db);
+        } catch (RuntimeException e) {
+            db.close();
+            throw e;
+        }
+        database = db;
+        return db;
+    }
+
+    /**
+     * There is no read only connection, readers get the database that writes.
+     */
+    public SQLiteDatabase getReadableDatabase() {
+        return getWritableDatabase();
+    }
+
+    public synchronized void close() {
+        if (database != null && database.isOpen()) {
+            database.close();
+        }
+        database = null;
+    }
+
+    public void onConfigure(SQLiteDatabase db) {
+    }
+
+    public abstract void onCreate(SQLiteDatabase db);
+
+    public abstract void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion);
+
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        throw new SQLException("Can't downgrade database from version " + oldVersion + " to " + newVersion);
+    }
+
+    public void onOpen(SQLiteDatabase db) {
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package android.database.sqlite;
+
+import java.io.Closeable;
+import java.util.Arrays;
+
+/**
+ * An SQL statement and its arguments. The statement itself is prepared by the database on the
+ * connection that runs it, and kept there for the next time.
+ *
+ * @author ITON Solutions
+ */
+public abstract class SQLiteProgram implements Closeable {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final SQLiteDatabase database;
+    private final String sql;
+    private Object[] bindArgs = NO_ARGS;
+
+    SQLiteProgram(SQLiteDatabase database, String sql) {
+        this.database = database;
+        this.sql = sql;
+    }
+
+    final SQLiteDatabase getDatabase() {
+        return database;
+    }
+
+    final String getSql() {
+        return sql;
+    }
+
+    final Object[] getBindArgs() {
+        return bindArgs;
+    }
+
+    public void bindNull(int index) {
+        bind(index, null);
+    }
+
+    public void bindLong(int index, long value) {
+        bind(index, value);
+    }
+
+    public void bindDouble(int index, double value) {
+        bind(index, value);
+    }
+
+    public void bindString(int index, String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("the bind value at index " + index + " is null");
+        }
+        bind(index, value);
+    }
+
+    public void bindBlob(int index, byte[] value) {
+        if (value == null) {
+            throw new IllegalArgumentException("the bind value at index " + index + " is null");
+        }
+        bind(index, value);
+    }
+
+    public void clearBindings() {
+        Arrays.fill(bindArgs, null);
+    }
+
+    /**
+     * @param bindArgs bound to the parameters from 1 on, nothing if null
+     */
+    public void bindAllArgsAsStrings(String[] bindArgs) {
+        if (bindArgs != null) {
+            for (int i = bindArgs.length; i != 0; i--) {
+                bindString(i, bindArgs[i - 1]);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void bind(int index, Object value) {
+        if (index < 1) {
+            throw new IllegalArgumentException("Cannot bind argument at index " + index);
+        }
+        if (index > bindArgs.length) {
+            bindArgs = Arrays.copyOf(bindArgs, index);
+        }
+        bindArgs[index - 1] = value;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package android.database.sqlite;
+
+/**
+ * A statement that returns no rows, or a single number.
+ *
+ * @author ITON Solutions
+ */
+public final class SQLiteStatement extends SQLiteProgram {
+
+    SQLiteStatement(SQLiteDatabase database, String sql, Object[] bindArgs) {
+        super(database, sql);
+        if (bindArgs != null) {
+            for (int i = 0; i < bindArgs.length; i++) {
+                bind(i + 1, bindArgs[i]);
+            }
+        }
+    }
+
+    public void execute() {
+        getDatabase().execute(getSql(), getBindArgs());
+    }
+
+    /**
+     * @return number of rows changed
+     */
+    public int executeUpdateDelete() {
+        return getDatabase().executeForChangedRowCount(getSql(), getBindArgs());
+    }
+
+    /**
+     * @return row id of the inserted row, -1 if none was inserted
+     */
+    public long executeInsert() {
+        return getDatabase().executeForLastInsertedRowId(getSql(), getBindArgs());
+    }
+
+    public long simpleQueryForLong() {
+        return getDatabase().executeForLong(getSql(), getBindArgs());
+    }
+
+    private void bind(int index, Object value) {
+        if (value == null) {
+            bindNull(index);
+        } else if (value instanceof byte[]) {
+            bindBlob(index, (byte[]) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            bindLong(index, (Boolean) value ? 1 : 0);
+        } else {
+            bindString(index, value.toString());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SQLiteProgram: " + getSql();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package android.util;
+
+import java.io.PrintStream;
+
+/**
+ * The framework log on the JVM: warnings and errors go to standard error, debug and info
+ * messages are dropped so they do not weigh on the measurements.
+ *
+ * @author ITON Solutions
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int v(String tag, String message) {
+        return 0;
+    }
+
+    public static int d(String tag, String message) {
+        return 0;
+    }
+
+    public static int i(String tag, String message) {
+        return 0;
+    }
+
+    public static int w(String tag, String message) {
+        return print("W", tag, message, null);
+    }
+
+    public static int w(String tag, String message, Throwable throwable) {
+        return print("W", tag, message, throwable);
+    }
+
+    public static int e(String tag, String message) {
+        return print("E", tag, message, null);
+    }
+
+    public static int e(String tag, String message, Throwable throwable) {
+        return print("E", tag, message, throwable);
+    }
+
+    private static int print(String level, String tag, String message, Throwable throwable) {
+        PrintStream out = System.err;
+        String line = level + "/" + tag + ": " + message;
+        out.println(line);
+        if (throwable != null) {
+            throwable.printStackTrace(out);
+        }
+        return line.length();
+    }
+}
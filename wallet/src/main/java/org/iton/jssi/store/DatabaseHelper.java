@@ -27,6 +27,7 @@
 package org.iton.jssi.store;
 
 import android.content.Context;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
@@ -37,10 +38,12 @@ import org.iton.jssi.wallet.WalletConstants;
  */
 public class DatabaseHelper extends SQLiteOpenHelper {
 
-    private static final int DB_VERSION = 1;
+    private static final int DB_VERSION = 2;
 
     public DatabaseHelper(String database, Context context) {
         super(context, WalletConstants.WALLET_DIR + database, null, DB_VERSION);
+        // Readers get their own pooled connections and never wait for the writer
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -52,11 +55,42 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 //        indexOnItemsTable(database);
 //        indexOnEncryptedTable(database);
 //        indexOnPlaintextTable(database);
+        // Wallet files come with their tables, only the statistics are ours
+        statsTable(database);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            statsTable(database);
+        }
+    }
 
+    /**
+     * Create the tables of a wallet in a new database file. Wallet files made elsewhere come
+     * with them.
+     *
+     * @return false if the database has the tables already
+     */
+    public boolean createTables() {
+        SQLiteDatabase database = getWritableDatabase();
+        if (hasTable(database, Table.ITEMS)) {
+            return false;
+        }
+        database.beginTransaction();
+        try {
+            itemsTable(database);
+            metadataTable(database);
+            encryptedTable(database);
+            plaintextTable(database);
+            indexOnItemsTable(database);
+            indexOnEncryptedTable(database);
+            indexOnPlaintextTable(database);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+        return true;
     }
 
     public static class Table {
@@ -64,6 +98,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         public static final String METADATA = "metadata";
         public static final String TAGS_ENCRYPTED = "tags_encrypted";
         public static final String TAGS_PLAINTEXT = "tags_plaintext";
+        public static final String STATS = "stats";
     }
 
     public static class Column {
@@ -91,6 +126,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             public static final String NAME = "name";
             public static final String VALUE = "value";
         }
+
+        public static class Stats {
+            public static final String TYPE        = "type";
+            public static final String COUNT       = "count";
+            public static final String VALUE_BYTES = "value_bytes";
+        }
     }
 
     private void itemsTable(SQLiteDatabase database) {
@@ -155,4 +196,35 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         database.execSQL("CREATE INDEX idx_tags_plaintext_value ON " + Table.TAGS_PLAINTEXT + "(" + Column.TagPlaintext.VALUE + ");");
         database.execSQL("CREATE INDEX idx_tags_plaintext_item_id ON " + Table.TAGS_PLAINTEXT + "(" + Column.TagPlaintext.ITEM_ID + ");");
     }
+
+    /**
+     * Number of items and bytes of encrypted values per encrypted type, kept by {@link ItemDao}
+     * in the transaction of each insert, update and delete. Filled from the items already in the
+     * wallet when created.
+     */
+    private void statsTable(SQLiteDatabase database) {
+        final String create = "CREATE TABLE IF NOT EXISTS "
+                + Table.STATS + " ("
+                + Column.Stats.TYPE + " NOT NULL, "
+                + Column.Stats.COUNT + " INTEGER NOT NULL, "
+                + Column.Stats.VALUE_BYTES + " INTEGER NOT NULL, "
+                + "PRIMARY KEY(" + Column.Stats.TYPE + ")"
+                + ");";
+        database.execSQL(create);
+
+        if (!hasTable(database, Table.ITEMS)) {
+            return;
+        }
+        database.execSQL("INSERT OR REPLACE INTO " + Table.STATS + " ("
+                + Column.Stats.TYPE + ", "
+                + Column.Stats.COUNT + ", "
+                + Column.Stats.VALUE_BYTES + ") SELECT "
+                + Column.Item.TYPE + ", COUNT(*), SUM(LENGTH(" + Column.Item.VALUE + "))"
+                + " FROM " + Table.ITEMS + " GROUP BY " + Column.Item.TYPE + ";");
+    }
+
+    private static boolean hasTable(SQLiteDatabase database, String table) {
+        return DatabaseUtils.queryNumEntries(database, "sqlite_master",
+                "type = 'table' AND name = ?", new String[]{table}) > 0;
+    }
 }
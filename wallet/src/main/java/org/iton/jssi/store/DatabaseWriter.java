@@ -0,0 +1,290 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.store;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs all mutations of a database on one thread.
+ * <p>
+ * Callers block until their mutation is committed. Mutations queued while a transaction is
+ * running are committed together in the next one (group commit); if one of them fails the group
+ * is rolled back and each is retried in its own transaction, so a failure only affects its own
+ * caller. With write-ahead logging enabled by {@link DatabaseHelper} reads run on the pooled
+ * read connections and never wait for the writer.
+ *
+ * @author ITON Solutions
+ */
+public class DatabaseWriter {
+
+    private static final String TAG = DatabaseWriter.class.getName();
+
+    static final int MAX_BATCH = 64;
+
+    public interface Mutation<T, E extends Exception> {
+        T apply() throws E;
+    }
+
+    public interface Callback<T> {
+        void onSuccess(T result);
+
+        void onError(Throwable error);
+    }
+
+    private static final class Task<T, E extends Exception> {
+        final Mutation<T, E> mutation;
+        final Callback<? super T> callback;
+        final CountDownLatch done = new CountDownLatch(1);
+        T result;
+        Throwable error;
+
+        Task(Mutation<T, E> mutation, Callback<? super T> callback) {
+            this.mutation = mutation;
+            this.callback = callback;
+        }
+
+        void run() throws Exception {
+            result = mutation.apply();
+        }
+
+        void complete(Throwable error) {
+            this.error = error;
+            done.countDown();
+            if (callback == null) {
+                return;
+            }
+            try {
+                if (error == null) {
+                    callback.onSuccess(result);
+                } else {
+                    callback.onError(error);
+                }
+            } catch (Throwable e) {
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
+            }
+        }
+    }
+
+    private static final Task<Void, RuntimeException> CLOSE = new Task<>(() -> null, null);
+
+    private final SQLiteDatabase database;
+    private final BlockingQueue<Task<?, ?>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    // Guarded by queue, so that nothing is queued after CLOSE
+    private boolean closed;
+
+    public DatabaseWriter(DatabaseHelper helper) {
+        this.database = helper.getWritableDatabase();
+        this.thread = new Thread(this::loop, TAG);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Run a mutation in a transaction on the writer thread and wait for it to commit. Called
+     * from within a mutation it runs inline, in the enclosing transaction.
+     *
+     * @param mutation
+     * @return the result of the mutation
+     * @throws E the exception thrown by the mutation, after its transaction was rolled back
+     */
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T execute(Mutation<T, E> mutation) throws E {
+        if (Thread.currentThread() == thread) {
+            return mutation.apply();
+        }
+        Task<T, E> task = new Task<>(mutation, null);
+        if (!enqueue(task)) {
+            throw new IllegalStateException("Writer closed");
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                task.done.await();
+                break;
+            } catch (InterruptedException e) {
+                // The mutation may already be running, wait for its outcome
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (task.error instanceof RuntimeException) {
+            throw (RuntimeException) task.error;
+        }
+        if (task.error instanceof Error) {
+            throw (Error) task.error;
+        }
+        if (task.error != null) {
+            throw (E) task.error;
+        }
+        return task.result;
+    }
+
+    /**
+     * Queue a mutation without waiting for it. The callback runs on the writer thread once the
+     * mutation is committed or rolled back.
+     *
+     * @param mutation
+     * @param callback
+     */
+    public <T, E extends Exception> void submit(Mutation<T, E> mutation, Callback<? super T> callback) {
+        Task<T, E> task = new Task<>(mutation, callback);
+        if (Thread.currentThread() == thread) {
+            Throwable error = null;
+            try {
+                task.run();
+            } catch (Throwable e) {
+                error = e;
+            }
+            task.complete(error);
+            return;
+        }
+        if (!enqueue(task)) {
+            task.complete(new IllegalStateException("Writer closed"));
+        }
+    }
+
+    /**
+     * Stop the writer thread once the mutations already queued are committed. Returns at once,
+     * see {@link #awaitTermination(long, TimeUnit)}.
+     */
+    public void close() {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(CLOSE);
+        }
+    }
+
+    /**
+     * Wait for the writer thread to stop after {@link #close()}. The database must stay open
+     * until it has, the queued mutations still run on it.
+     *
+     * @param timeout
+     * @param unit
+     * @return true if the thread stopped, false if the timeout elapsed first
+     * @throws InterruptedException
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (Thread.currentThread() == thread) {
+            return false;
+        }
+        thread.join(Math.max(1, unit.toMillis(timeout)));
+        return !thread.isAlive();
+    }
+
+    private boolean enqueue(Task<?, ?> task) {
+        synchronized (queue) {
+            if (closed) {
+                return false;
+            }
+            queue.add(task);
+            return true;
+        }
+    }
+
+    private void loop() {
+        List<Task<?, ?>> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+
+            boolean close = batch.remove(CLOSE);
+            if (!batch.isEmpty()) {
+                commit(batch);
+            }
+            batch.clear();
+
+            if (close) {
+                // Nothing is queued after CLOSE
+                return;
+            }
+        }
+    }
+
+    private void commit(List<Task<?, ?>> batch) {
+        if (batch.size() > 1 && commitGroup(batch)) {
+            for (Task<?, ?> task : batch) {
+                task.complete(null);
+            }
+            return;
+        }
+
+        for (Task<?, ?> task : batch) {
+            task.complete(commitOne(task));
+        }
+    }
+
+    private boolean commitGroup(List<Task<?, ?>> batch) {
+        try {
+            database.beginTransactionNonExclusive();
+            try {
+                for (Task<?, ?> task : batch) {
+                    task.run();
+                }
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            return true;
+        } catch (Throwable e) {
+            Log.d(TAG, String.format("Group of %d rolled back: %s", batch.size(), e.getMessage()));
+            return false;
+        }
+    }
+
+    private Throwable commitOne(Task<?, ?> task) {
+        try {
+            database.beginTransactionNonExclusive();
+            try {
+                task.run();
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+            return null;
+        } catch (Throwable e) {
+            return e;
+        }
+    }
+}
@@ -42,9 +42,11 @@ public class EncryptedDao implements Serializable {
 
     private static final String TAG = EncryptedDao.class.getName();
     private SQLiteDatabase database;
+    private TagWriter writer;
 
     public EncryptedDao(DatabaseHelper helper) {
         database = helper.getWritableDatabase();
+        writer = new TagWriter(database, DatabaseHelper.Table.TAGS_ENCRYPTED);
     }
 
     public long create(Encrypted tag)  {
@@ -59,46 +61,35 @@ public class EncryptedDao implements Serializable {
     }
 
     public long create(Collection<Encrypted> tags)  {
-        long result = 0;
-        for(Encrypted tag : tags){
-            ContentValues values = new ContentValues();
-            values.put(DatabaseHelper.Column.TagEncrypted.ITEM_ID, tag.getItemId());
-            values.put(DatabaseHelper.Column.TagEncrypted.NAME, tag.getName());
-            values.put(DatabaseHelper.Column.TagEncrypted.VALUE, tag.getValue());
-            result += database.insert(
-                    DatabaseHelper.Table.TAGS_ENCRYPTED,
-                    null,
-                    values);
-        }
-        return result;
+        return writer.insert(tags, false);
     }
 
-    public int delete(Collection<Encrypted> tags)  {
-        int result = 0;
-        for(Encrypted tag : tags){
-            String[] item_id = {String.valueOf(tag.getItemId())};
-            result += database.delete(
-                    DatabaseHelper.Table.TAGS_ENCRYPTED,
-                    "item_id = ?",
-                    item_id);
-        }
-        return result;
+    /**
+     * Insert the tags, overwriting the value of those that exist.
+     */
+    public long upsert(Collection<Encrypted> tags)  {
+        return writer.insert(tags, true);
     }
 
+    /**
+     * Set the value of the tags that exist, by item and tag name.
+     */
     public int update(Collection<Encrypted> tags)  {
-        int result = 0;
-        for(Encrypted tag : tags){
-            ContentValues values = new ContentValues();
-            values.put(DatabaseHelper.Column.TagEncrypted.NAME, tag.getName());
-            values.put(DatabaseHelper.Column.TagEncrypted.VALUE, tag.getValue());
-
-            String[] item_id = {String.valueOf(tag.getItemId())};
-            result += database.update(
-                    DatabaseHelper.Table.TAGS_ENCRYPTED,
-                    values, "item_id = ?",
-                    item_id);
-        }
-        return result;
+        return writer.update(tags);
+    }
+
+    /**
+     * Delete the tags with these names from their item.
+     */
+    public int delete(Collection<Encrypted> tags)  {
+        return writer.delete(tags);
+    }
+
+    /**
+     * Replace the tags of an item, writing only the rows that change.
+     */
+    public int replace(int item_id, Collection<Encrypted> tags)  {
+        return writer.replace(item_id, tags);
     }
 
     public List<Encrypted> queryForAll(int item_id) {
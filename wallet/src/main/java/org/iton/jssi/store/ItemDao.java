@@ -33,9 +33,12 @@ import android.database.sqlite.SQLiteCursor;
 import android.database.sqlite.SQLiteDatabase;
 
 import org.iton.jssi.store.model.Item;
+import org.iton.jssi.store.model.Stats;
+import org.iton.jssi.store.model.Tag;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -46,10 +49,12 @@ public class ItemDao implements Serializable {
     private static final String TAG = ItemDao.class.getName();
     private SQLiteDatabase database;
     private DatabaseHelper helper;
+    private StatsDao statsDao;
 
     public ItemDao(DatabaseHelper helper) {
         this.helper = helper;
         database = helper.getWritableDatabase();
+        statsDao = new StatsDao(helper);
     }
 
     public long create(Item item) {
@@ -60,6 +65,19 @@ public class ItemDao implements Serializable {
         values.put(DatabaseHelper.Column.Item.VALUE, item.getValue());
         values.put(DatabaseHelper.Column.Item.KEY, item.getKey());
         long result = database.insert(DatabaseHelper.Table.ITEMS, null, values);
+        if (result == -1) {
+            return result;
+        }
+        statsDao.add(item.getType(), 1, item.getValue().length);
+
+        // Tags of a new item are encrypted before it has an id
+        item.setId((int) result);
+        for (Tag tag : item.getEncrypted()) {
+            tag.setItemId(item.getId());
+        }
+        for (Tag tag : item.getPlaintext()) {
+            tag.setItemId(item.getId());
+        }
 
         EncryptedDao encrypted = new EncryptedDao(helper);
         PlaintextDao plaintext = new PlaintextDao(helper);
@@ -82,13 +100,42 @@ public class ItemDao implements Serializable {
         values.put(DatabaseHelper.Column.Item.VALUE, item.getValue());
         values.put(DatabaseHelper.Column.Item.KEY, item.getKey());
 
+        Stats stats = stored(item.getId());
         String[] item_id = {String.valueOf(item.getId())};
         result += database.update(
                 DatabaseHelper.Table.ITEMS,
                 values, "id = ?",
                 item_id);
+        moveStats(stats, stored(item.getId()));
 
+        return result;
+    }
 
+    /**
+     * Update some columns of an item with one statement, leaving its tags alone.
+     *
+     * @param id
+     * @param update the columns to set
+     * @return number of rows updated
+     */
+    public int update(int id, Update update) {
+        if (update.values.size() == 0) {
+            return 0;
+        }
+        // Only a type change needs the row read around the update
+        boolean typed = update.values.containsKey(DatabaseHelper.Column.Item.TYPE);
+        byte[] value = update.values.getAsByteArray(DatabaseHelper.Column.Item.VALUE);
+        Stats stats = typed ? stored(id) : null;
+        if (!typed && value != null) {
+            statsDao.resize(id, value.length);
+        }
+        int result = database.update(
+                DatabaseHelper.Table.ITEMS,
+                update.values, DatabaseHelper.Column.Item.ID + " = ?",
+                new String[]{String.valueOf(id)});
+        if (typed) {
+            moveStats(stats, stored(id));
+        }
         return result;
     }
 
@@ -96,7 +143,43 @@ public class ItemDao implements Serializable {
         String[] id = {String.valueOf(item.getId())};
         database.delete(DatabaseHelper.Table.TAGS_ENCRYPTED, "item_id = ?", id);
         database.delete(DatabaseHelper.Table.TAGS_PLAINTEXT, "item_id = ?", id);
-        return database.delete(DatabaseHelper.Table.ITEMS, "id = ?", id);
+        Stats stats = stored(item.getId());
+        int result = database.delete(DatabaseHelper.Table.ITEMS, "id = ?", id);
+        if (result > 0 && stats != null) {
+            statsDao.add(stats.getType(), -1, -stats.getValueBytes());
+        }
+        return result;
+    }
+
+    /**
+     * The type and value size of an item as stored, to keep the {@link StatsDao} counters.
+     *
+     * @param id
+     * @return count 1 with the stored type and value bytes, or null if there is no such item
+     */
+    private Stats stored(int id) {
+        Stats stats = null;
+        try (Cursor cursor = database.rawQuery(
+                "SELECT " + DatabaseHelper.Column.Item.TYPE + ", LENGTH(" + DatabaseHelper.Column.Item.VALUE + ")"
+                        + " FROM " + DatabaseHelper.Table.ITEMS + " WHERE " + DatabaseHelper.Column.Item.ID + " = ?",
+                new String[]{String.valueOf(id)})) {
+            if (cursor.moveToFirst()) {
+                stats = new Stats(cursor.getBlob(0), 1, cursor.getLong(1));
+            }
+        }
+        return stats;
+    }
+
+    private void moveStats(Stats before, Stats after) {
+        if (before == null || after == null) {
+            return;
+        }
+        if (Arrays.equals(before.getType(), after.getType())) {
+            statsDao.add(after.getType(), 0, after.getValueBytes() - before.getValueBytes());
+        } else {
+            statsDao.add(before.getType(), -1, -before.getValueBytes());
+            statsDao.add(after.getType(), 1, after.getValueBytes());
+        }
     }
 
     public List<Item> queryForAll() {
@@ -161,6 +244,39 @@ public class ItemDao implements Serializable {
         return items;
     }
 
+    /**
+     * The items after an id in id order, with their tags.
+     *
+     * @param id items with a greater id are returned, 0 for the first
+     * @param limit maximum number of items
+     * @return the items, empty after the last
+     */
+    public List<Item> queryForBatch(int id, int limit) {
+        List<Item> items = new ArrayList<>();
+        Cursor cursor = database.rawQuery(
+                "SELECT * FROM " + DatabaseHelper.Table.ITEMS
+                        + " WHERE " + DatabaseHelper.Column.Item.ID + " > ?"
+                        + " ORDER BY " + DatabaseHelper.Column.Item.ID + " LIMIT " + limit,
+                new String[]{String.valueOf(id)});
+
+        if (cursor.moveToFirst()) {
+            Wrapper wrapper = new Wrapper(cursor);
+            EncryptedDao encrypted = new EncryptedDao(helper);
+            PlaintextDao plaintext = new PlaintextDao(helper);
+            while (!wrapper.isAfterLast()) {
+                Item item = wrapper.wrap();
+                item.setEncrypted(encrypted.queryForAll(item.getId()));
+                item.setPlaintext(plaintext.queryForAll(item.getId()));
+
+                items.add(item);
+                wrapper.moveToNext();
+            }
+        }
+
+        cursor.close();
+        return items;
+    }
+
     public Item queryForFirst(byte[] type, byte[] name) {
         Item item = null;
 
@@ -195,10 +311,72 @@ public class ItemDao implements Serializable {
 
     }
 
+    /**
+     * The id of an item, without loading its tags.
+     *
+     * @param type encrypted type
+     * @param name encrypted name
+     * @return the id or null if there is no such item
+     */
+    public Integer queryForId(byte[] type, byte[] name) {
+        Integer id = null;
+
+        final SQLiteDatabase.CursorFactory factory = (db, masterQuery, editTable, query) -> {
+            query.bindBlob(1, type);
+            query.bindBlob(2, name);
+            return new SQLiteCursor(masterQuery, editTable, query);
+        };
+
+        final Cursor cursor = database.queryWithFactory(
+                factory,
+                false, DatabaseHelper.Table.ITEMS,
+                new String[]{DatabaseHelper.Column.Item.ID},
+                DatabaseHelper.Column.Item.TYPE + " = ? AND " + DatabaseHelper.Column.Item.NAME + " = ?",
+                null,
+                null, null,
+                null,
+                null);
+
+        if (cursor.moveToFirst()) {
+            id = cursor.getInt(0);
+        }
+
+        cursor.close();
+        return id;
+    }
+
     public long getCount() {
         return DatabaseUtils.queryNumEntries(database, DatabaseHelper.Table.ITEMS);
     }
 
+    /**
+     * The columns of a partial item update.
+     */
+    public static class Update {
+
+        private final ContentValues values = new ContentValues();
+
+        public Update type(byte[] type) {
+            values.put(DatabaseHelper.Column.Item.TYPE, type);
+            return this;
+        }
+
+        public Update name(byte[] name) {
+            values.put(DatabaseHelper.Column.Item.NAME, name);
+            return this;
+        }
+
+        /**
+         * @param value encrypted value
+         * @param key encrypted key of the value, they change together
+         */
+        public Update value(byte[] value, byte[] key) {
+            values.put(DatabaseHelper.Column.Item.VALUE, value);
+            values.put(DatabaseHelper.Column.Item.KEY, key);
+            return this;
+        }
+    }
+
     private class Wrapper extends CursorWrapper {
 
         Wrapper(Cursor cursor) {
@@ -38,6 +38,12 @@ import org.iton.jssi.store.model.Metadata;
 public class MetadataDao {
 
     private static final String TAG = MetadataDao.class.getName();
+
+    /** Id of the metadata holding the wallet keys */
+    public static final int KEYS = 1;
+    /** Id of the metadata of an unfinished key rotation */
+    public static final int REKEY = 2;
+
     private SQLiteDatabase database;
     private DatabaseHelper helper;
 
@@ -57,6 +63,23 @@ public class MetadataDao {
         database.insert(DatabaseHelper.Table.METADATA, null, values);
     }
 
+    /**
+     * Insert the metadata with its id, or replace the value of the metadata with that id.
+     */
+    public void put(Metadata metadata) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.Column.Metadata.ID, metadata.getId());
+        values.put(DatabaseHelper.Column.Metadata.VALUE, metadata.getValue());
+        database.insertWithOnConflict(DatabaseHelper.Table.METADATA, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    public int delete(int id) {
+        return database.delete(
+                DatabaseHelper.Table.METADATA,
+                DatabaseHelper.Column.Metadata.ID + " = ?",
+                new String[] { String.valueOf(id) });
+    }
+
     public Metadata getMetadata(int id) {
         Metadata result = null;
 
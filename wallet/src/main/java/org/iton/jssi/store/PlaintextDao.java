@@ -45,9 +45,11 @@ public class PlaintextDao implements Serializable {
 
     private static final String TAG = PlaintextDao.class.getName();
     private SQLiteDatabase database;
+    private TagWriter writer;
 
     public PlaintextDao(DatabaseHelper helper) {
         database = helper.getWritableDatabase();
+        writer = new TagWriter(database, DatabaseHelper.Table.TAGS_PLAINTEXT);
     }
 
     public long create(Plaintext tag)  {
@@ -62,46 +64,35 @@ public class PlaintextDao implements Serializable {
     }
 
     public long create(Collection<Plaintext> tags)  {
-        long result = 0;
-        for(Plaintext tag : tags){
-            ContentValues values = new ContentValues();
-            values.put(DatabaseHelper.Column.TagPlaintext.ITEM_ID, tag.getItemId());
-            values.put(DatabaseHelper.Column.TagPlaintext.NAME, tag.getName());
-            values.put(DatabaseHelper.Column.TagPlaintext.VALUE, tag.getValue());
-            result += database.insert(
-                    DatabaseHelper.Table.TAGS_PLAINTEXT,
-                    null,
-                    values);
-        }
-        return result;
+        return writer.insert(tags, false);
+    }
+
+    /**
+     * Insert the tags, overwriting the value of those that exist.
+     */
+    public long upsert(Collection<Plaintext> tags)  {
+        return writer.insert(tags, true);
     }
 
+    /**
+     * Set the value of the tags that exist, by item and tag name.
+     */
     public int update(Collection<Plaintext> tags)  {
-        int result = 0;
-        for(Plaintext tag : tags){
-            ContentValues values = new ContentValues();
-            values.put(DatabaseHelper.Column.TagPlaintext.NAME, tag.getName());
-            values.put(DatabaseHelper.Column.TagPlaintext.VALUE, tag.getValue());
-
-            String[] item_id = {String.valueOf(tag.getItemId())};
-            result += database.update(
-                    DatabaseHelper.Table.TAGS_PLAINTEXT,
-                    values, "item_id = ?",
-                    item_id);
-        }
-        return result;
+        return writer.update(tags);
     }
 
+    /**
+     * Delete the tags with these names from their item.
+     */
     public int delete(Collection<Plaintext> tags)  {
-        int result = 0;
-        for(Plaintext tag : tags){
-            String[] item_id = {String.valueOf(tag.getItemId())};
-            result += database.delete(
-                    DatabaseHelper.Table.TAGS_PLAINTEXT,
-                    "item_id = ?",
-                    item_id);
-        }
-        return result;
+        return writer.delete(tags);
+    }
+
+    /**
+     * Replace the tags of an item, writing only the rows that change.
+     */
+    public int replace(int item_id, Collection<Plaintext> tags)  {
+        return writer.replace(item_id, tags);
     }
 
     public List<Plaintext> queryForAll(int item_id) {
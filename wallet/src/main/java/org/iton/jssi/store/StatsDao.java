@@ -0,0 +1,160 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.store;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.iton.jssi.store.model.Stats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per type counters of the items table. {@link ItemDao} changes them in the same transaction as
+ * the items, so they never need a scan of the items to be read.
+ *
+ * @author ITON Solutions
+ */
+public class StatsDao {
+
+    private static final String TAG = StatsDao.class.getName();
+
+    private static final String TYPE = DatabaseHelper.Column.Stats.TYPE;
+    private static final String COUNT = DatabaseHelper.Column.Stats.COUNT;
+    private static final String VALUE_BYTES = DatabaseHelper.Column.Stats.VALUE_BYTES;
+
+    private SQLiteDatabase database;
+
+    public StatsDao(DatabaseHelper helper) {
+        database = helper.getWritableDatabase();
+    }
+
+    /**
+     * Add to the counters of a type, negative to remove. The row of a type goes away with its
+     * last item.
+     *
+     * @param type encrypted type
+     * @param count number of items
+     * @param valueBytes bytes of encrypted values
+     */
+    void add(byte[] type, long count, long valueBytes) {
+        if (count == 0 && valueBytes == 0) {
+            return;
+        }
+        try (SQLiteStatement statement = database.compileStatement(
+                "INSERT OR IGNORE INTO " + DatabaseHelper.Table.STATS + " ("
+                        + TYPE + ", "
+                        + COUNT + ", "
+                        + VALUE_BYTES + ") VALUES (?, 0, 0)")) {
+            statement.bindBlob(1, type);
+            statement.executeInsert();
+        }
+        try (SQLiteStatement statement = database.compileStatement(
+                "UPDATE " + DatabaseHelper.Table.STATS + " SET "
+                        + COUNT + " = " + COUNT + " + ?, "
+                        + VALUE_BYTES + " = " + VALUE_BYTES + " + ? WHERE "
+                        + TYPE + " = ?")) {
+            statement.bindLong(1, count);
+            statement.bindLong(2, valueBytes);
+            statement.bindBlob(3, type);
+            statement.executeUpdateDelete();
+        }
+        if (count < 0) {
+            try (SQLiteStatement statement = database.compileStatement(
+                    "DELETE FROM " + DatabaseHelper.Table.STATS + " WHERE "
+                            + TYPE + " = ? AND "
+                            + COUNT + " <= 0")) {
+                statement.bindBlob(1, type);
+                statement.executeUpdateDelete();
+            }
+        }
+    }
+
+    /**
+     * Move the value bytes of the type of an item to a new value length, in one statement that
+     * reads the stored type and value length of the item. Call before the value is updated.
+     *
+     * @param itemId the item
+     * @param valueBytes length of the new encrypted value
+     */
+    void resize(int itemId, long valueBytes) {
+        String item = " FROM " + DatabaseHelper.Table.ITEMS + " WHERE " + DatabaseHelper.Column.Item.ID + " = ?)";
+        try (SQLiteStatement statement = database.compileStatement(
+                "UPDATE " + DatabaseHelper.Table.STATS + " SET "
+                        + VALUE_BYTES + " = " + VALUE_BYTES + " + ? - (SELECT LENGTH(" + DatabaseHelper.Column.Item.VALUE + ")" + item
+                        + " WHERE " + TYPE + " = (SELECT " + DatabaseHelper.Column.Item.TYPE + item)) {
+            statement.bindLong(1, valueBytes);
+            statement.bindLong(2, itemId);
+            statement.bindLong(3, itemId);
+            statement.executeUpdateDelete();
+        }
+    }
+
+    public List<Stats> queryForAll() {
+        List<Stats> stats = new ArrayList<>();
+        try (Cursor cursor = database.rawQuery(
+                "SELECT " + TYPE + ", " + COUNT + ", " + VALUE_BYTES
+                        + " FROM " + DatabaseHelper.Table.STATS,
+                null)) {
+            while (cursor.moveToNext()) {
+                stats.add(new Stats(cursor.getBlob(0), cursor.getLong(1), cursor.getLong(2)));
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * @param type encrypted type
+     * @return the counters of the type, zero if it has no items
+     */
+    public Stats queryForType(byte[] type) {
+        Stats stats = new Stats(type, 0, 0);
+
+        final SQLiteDatabase.CursorFactory factory = (db, masterQuery, editTable, query) -> {
+            query.bindBlob(1, type);
+            return new SQLiteCursor(masterQuery, editTable, query);
+        };
+
+        try (Cursor cursor = database.queryWithFactory(
+                factory,
+                false, DatabaseHelper.Table.STATS,
+                new String[]{COUNT, VALUE_BYTES},
+                TYPE + " = ?",
+                null,
+                null, null,
+                null,
+                null)) {
+            if (cursor.moveToFirst()) {
+                stats.setCount(cursor.getLong(0));
+                stats.setValueBytes(cursor.getLong(1));
+            }
+        }
+        return stats;
+    }
+}
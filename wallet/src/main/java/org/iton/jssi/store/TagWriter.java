@@ -0,0 +1,176 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.store;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.iton.jssi.store.model.Tag;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the rows of a tag table with compiled statements, each row addressed by its
+ * (item_id, name) primary key. The statements of one call run in the transaction of the caller,
+ * the {@link DatabaseWriter}.
+ *
+ * @author ITON Solutions
+ */
+final class TagWriter {
+
+    // Both tag tables have the same columns
+    private static final String ITEM_ID = DatabaseHelper.Column.TagEncrypted.ITEM_ID;
+    private static final String NAME = DatabaseHelper.Column.TagEncrypted.NAME;
+    private static final String VALUE = DatabaseHelper.Column.TagEncrypted.VALUE;
+
+    private final SQLiteDatabase database;
+    private final String table;
+
+    TagWriter(SQLiteDatabase database, String table) {
+        this.database = database;
+        this.table = table;
+    }
+
+    /**
+     * @param tags
+     * @param replace overwrite the value of a tag that already exists instead of skipping it
+     * @return number of rows written
+     */
+    long insert(Collection<? extends Tag> tags, boolean replace) {
+        if (tags.isEmpty()) {
+            return 0;
+        }
+        long result = 0;
+        try (SQLiteStatement statement = database.compileStatement(
+                (replace ? "INSERT OR REPLACE INTO " : "INSERT OR IGNORE INTO ") + table + " ("
+                        + ITEM_ID + ", "
+                        + NAME + ", "
+                        + VALUE + ") VALUES (?, ?, ?)")) {
+            for (Tag tag : tags) {
+                statement.bindLong(1, tag.getItemId());
+                statement.bindBlob(2, tag.getName());
+                statement.bindBlob(3, tag.getValue());
+                if (statement.executeInsert() != -1) {
+                    result++;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Set the value of each tag that exists.
+     *
+     * @param tags
+     * @return number of rows updated
+     */
+    int update(Collection<? extends Tag> tags) {
+        if (tags.isEmpty()) {
+            return 0;
+        }
+        int result = 0;
+        try (SQLiteStatement statement = database.compileStatement(
+                "UPDATE " + table + " SET " + VALUE + " = ? WHERE "
+                        + ITEM_ID + " = ? AND "
+                        + NAME + " = ?")) {
+            for (Tag tag : tags) {
+                statement.bindBlob(1, tag.getValue());
+                statement.bindLong(2, tag.getItemId());
+                statement.bindBlob(3, tag.getName());
+                result += statement.executeUpdateDelete();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Delete the tags with the names of <code>tags</code>, whatever their value.
+     *
+     * @param tags
+     * @return number of rows deleted
+     */
+    int delete(Collection<? extends Tag> tags) {
+        if (tags.isEmpty()) {
+            return 0;
+        }
+        int result = 0;
+        try (SQLiteStatement statement = database.compileStatement(
+                "DELETE FROM " + table + " WHERE "
+                        + ITEM_ID + " = ? AND "
+                        + NAME + " = ?")) {
+            for (Tag tag : tags) {
+                statement.bindLong(1, tag.getItemId());
+                statement.bindBlob(2, tag.getName());
+                result += statement.executeUpdateDelete();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Make <code>tags</code> the tags of an item, inserting, updating and deleting only the rows
+     * that differ.
+     *
+     * @param itemId
+     * @param tags the new tags of the item
+     * @return number of rows written
+     */
+    int replace(int itemId, Collection<? extends Tag> tags) {
+        Map<ByteBuffer, Tag> current = current(itemId);
+        List<Tag> inserts = new ArrayList<>();
+        List<Tag> updates = new ArrayList<>();
+        for (Tag tag : tags) {
+            Tag existing = current.remove(ByteBuffer.wrap(tag.getName()));
+            if (existing == null) {
+                inserts.add(tag);
+            } else if (!Arrays.equals(existing.getValue(), tag.getValue())) {
+                updates.add(tag);
+            }
+        }
+        return (int) insert(inserts, false) + update(updates) + delete(current.values());
+    }
+
+    private Map<ByteBuffer, Tag> current(int itemId) {
+        Map<ByteBuffer, Tag> tags = new HashMap<>();
+        try (Cursor cursor = database.rawQuery(
+                "SELECT " + NAME + ", " + VALUE
+                        + " FROM " + table + " WHERE " + ITEM_ID + " = ?",
+                new String[]{String.valueOf(itemId)})) {
+            while (cursor.moveToNext()) {
+                byte[] name = cursor.getBlob(0);
+                tags.put(ByteBuffer.wrap(name), new Tag(itemId, name, cursor.getBlob(1)));
+            }
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.wallet;
+
+import org.iton.jssi.store.DatabaseWriter;
+import org.iton.jssi.store.DatabaseWriter.Mutation;
+import org.iton.jssi.store.model.Item;
+import org.iton.jssi.wallet.io.IOConfig;
+import org.iton.jssi.wallet.record.ItemTags;
+import org.iton.jssi.wallet.record.WalletRecord;
+
+import java.util.Map;
+
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+
+/**
+ * The operations of a {@link Wallet} as Rx sources. Queries run on the io scheduler, encryption
+ * and decryption on the crypto scheduler, and mutations on the wallet writer, whose thread
+ * delivers their result. No operation blocks a scheduler thread while waiting for another.
+ *
+ * @author ITON Solutions
+ */
+public class RxWallet {
+
+    private final Wallet wallet;
+    private final WalletSchedulers schedulers;
+
+    RxWallet(Wallet wallet, WalletSchedulers schedulers) {
+        this.wallet = wallet;
+        this.schedulers = schedulers;
+    }
+
+    public WalletSchedulers getSchedulers() {
+        return schedulers;
+    }
+
+    /**
+     * @param type
+     * @param name
+     * @return Maybe that is empty if there is no such record
+     */
+    public Maybe<WalletRecord> findRecord(String type, String name) {
+        return find(type, name)
+                .observeOn(schedulers.crypto())
+                .map(wallet::decrypt);
+    }
+
+    public Flowable<WalletRecord> findRecords(String type) {
+        return Flowable.fromCallable(() -> wallet.findItems(type))
+                .subscribeOn(schedulers.io())
+                .flatMapIterable(items -> items)
+                .observeOn(schedulers.crypto())
+                .map(wallet::decrypt);
+    }
+
+    public Flowable<WalletRecord> findAllRecords() {
+        return Flowable.fromCallable(wallet::findAllItems)
+                .subscribeOn(schedulers.io())
+                .flatMapIterable(items -> items)
+                .observeOn(schedulers.crypto())
+                .map(wallet::decrypt);
+    }
+
+    public Single<Long> count() {
+        return Single.fromCallable(wallet::count)
+                .subscribeOn(schedulers.io());
+    }
+
+    /**
+     * @param config file and passphrase of the export
+     * @return the number of records left to export
+     */
+    public Observable<Integer> export(IOConfig config) {
+        return new WalletExport(wallet).export(config);
+    }
+
+    /**
+     * @param config file and passphrase of an export
+     * @return the number of records imported so far
+     */
+    public Observable<Integer> restore(IOConfig config) {
+        return new WalletImport(wallet).restore(config);
+    }
+
+    public Single<WalletStats> stats() {
+        return Single.fromCallable(wallet::findStats)
+                .subscribeOn(schedulers.io())
+                .observeOn(schedulers.crypto())
+                .map(wallet::stats);
+    }
+
+    public Single<Item> addRecord(WalletRecord record) {
+        return Single.fromCallable(() -> wallet.encrypt(record))
+                .subscribeOn(schedulers.crypto())
+                .flatMap(this::addItem);
+    }
+
+    public Single<Item> addItem(Item item) {
+        return write(wallet.insertItem(item));
+    }
+
+    public Completable deleteRecord(String type, String name) {
+        return find(type, name)
+                .flatMapCompletable(item -> complete(wallet.deleteItem(item)));
+    }
+
+    public Completable updateRecordValue(WalletRecord record, String value) {
+        return findId(record.getType(), record.getName())
+                .observeOn(schedulers.crypto())
+                .flatMapCompletable(id -> complete(wallet.updateItem(id, wallet.encryptValue(value))));
+    }
+
+    public Completable addRecordTags(WalletRecord record, Map<String, String> tags) {
+        return tags(record, tags)
+                .flatMapCompletable(itemTags -> complete(wallet.upsertTags(itemTags)));
+    }
+
+    public Completable deleteRecordTags(WalletRecord record, Map<String, String> tags) {
+        return tags(record, tags)
+                .flatMapCompletable(itemTags -> complete(wallet.deleteTags(itemTags)));
+    }
+
+    public Completable updateRecordTags(WalletRecord record, Map<String, String> tags) {
+        return findId(record.getType(), record.getName())
+                .observeOn(schedulers.crypto())
+                .flatMapCompletable(id -> complete(wallet.replaceTags(id, wallet.encryptTags(id, tags))));
+    }
+
+    private Maybe<Item> find(String type, String name) {
+        return Maybe.fromCallable(() -> wallet.findItem(type, name))
+                .subscribeOn(schedulers.io());
+    }
+
+    private Maybe<Integer> findId(String type, String name) {
+        return Maybe.fromCallable(() -> wallet.findItemId(type, name))
+                .subscribeOn(schedulers.io());
+    }
+
+    private Maybe<ItemTags> tags(WalletRecord record, Map<String, String> tags) {
+        return findId(record.getType(), record.getName())
+                .observeOn(schedulers.crypto())
+                .map(id -> wallet.encryptTags(id, tags));
+    }
+
+    private <T> Single<T> write(Mutation<T, ?> mutation) {
+        return Single.create(emitter -> wallet.writer().submit(mutation, new DatabaseWriter.Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                emitter.onSuccess(result);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                emitter.tryOnError(error);
+            }
+        }));
+    }
+
+    private Completable complete(Mutation<?, ?> mutation) {
+        return Completable.create(emitter -> wallet.writer().submit(mutation, new DatabaseWriter.Callback<Object>() {
+            @Override
+            public void onSuccess(Object result) {
+                emitter.onComplete();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                emitter.tryOnError(error);
+            }
+        }));
+    }
+}
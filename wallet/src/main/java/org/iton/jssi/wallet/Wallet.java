@@ -27,10 +27,16 @@ import android.util.Log;
 
 
 import org.iton.jssi.store.DatabaseHelper;
+import org.iton.jssi.store.DatabaseWriter;
+import org.iton.jssi.store.DatabaseWriter.Mutation;
+import org.iton.jssi.store.MetadataDao;
 import org.iton.jssi.store.PreexistingEntityException;
+import org.iton.jssi.store.StatsDao;
 import org.iton.jssi.wallet.crypto.Crypto;
 import org.iton.jssi.wallet.crypto.Keys;
 import org.iton.jssi.store.model.Item;
+import org.iton.jssi.store.model.Metadata;
+import org.iton.jssi.store.model.Stats;
 import org.iton.jssi.wallet.record.ItemTags;
 import org.iton.jssi.wallet.record.ItemValue;
 import org.iton.jssi.wallet.record.WalletRecord;
@@ -40,12 +46,18 @@ import org.iton.jssi.store.PlaintextDao;
 import org.libsodium.jni.SodiumException;
 
 
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Safe for use from any thread. Reads run concurrently on the pooled read connections of the
+ * database, mutations are serialized by a {@link DatabaseWriter}. The methods of this class
+ * block and encrypt or decrypt on the calling thread, {@link #rx()} runs the same operations on
+ * the wallet schedulers.
+ */
 public class Wallet {
 
     private static final String TAG = Wallet.class.getName();
@@ -55,13 +67,28 @@ public class Wallet {
     private final ItemDao itemDao;
     private final EncryptedDao encryptedDao;
     private final PlaintextDao plaintextDao;
-    
-    Wallet(String id, Keys keys, DatabaseHelper helper) {
+    private final StatsDao statsDao;
+    private final MetadataDao metadataDao;
+    private final DatabaseWriter writer;
+    private final RxWallet rx;
+
+    Wallet(String id, Keys keys, DatabaseHelper helper, WalletSchedulers schedulers) {
         this.id = id;
         this.keys = keys;
         this.itemDao = new ItemDao(helper);
         this.encryptedDao = new EncryptedDao(helper);
         this.plaintextDao = new PlaintextDao(helper);
+        this.statsDao = new StatsDao(helper);
+        this.metadataDao = new MetadataDao(helper);
+        this.writer = new DatabaseWriter(helper);
+        this.rx = new RxWallet(this, schedulers);
+    }
+
+    /**
+     * @return the asynchronous operations of this wallet
+     */
+    public RxWallet rx() {
+        return rx;
     }
     
     public WalletRecord findRecord(String type, String name) throws SodiumException {
@@ -70,17 +97,16 @@ public class Wallet {
         if(item == null){
             return null;
         }
-        WalletRecord record = new WalletRecord();
-        return record.decrypt(item, keys);
+        return decrypt(item);
     }
 
     public List<WalletRecord> findAllRecords() throws SodiumException {
 
         List<WalletRecord> records = new ArrayList<>();
 
-        List<Item> items = itemDao.queryForAll();
+        List<Item> items = findAllItems();
         for(Item item : items) {
-            records.add(new WalletRecord().decrypt(item, keys));
+            records.add(decrypt(item));
         }
         return records;
     }
@@ -88,63 +114,84 @@ public class Wallet {
     public List<WalletRecord> findRecords(String type) throws SodiumException {
 
         List<WalletRecord> records = new ArrayList<>();
-        byte[] encryptedType = type == null ? new byte[0]
-                : Crypto.encryptAsSearchable(type.getBytes(), keys.getTypeKey(), keys.getItemHmacKey());
 
-        List<Item> items = itemDao.queryForType(encryptedType);
+        List<Item> items = findItems(type);
         for(Item item : items) {
-            records.add(new WalletRecord().decrypt(item, keys));
+            records.add(decrypt(item));
         }
         return records;
     }
 
 
+    /**
+     * Add tags to a record, overwriting the value of tags it already has.
+     */
     public void addRecordTags(WalletRecord record, Map<String, String> tags) throws SodiumException {
 
-        Item item = findItem(record.getType(), record.getName());
+        Integer id = findItemId(record.getType(), record.getName());
 
-        if(item == null){
+        if(id == null){
             return;
         }
 
-        ItemTags itemTags = new ItemTags();
-        itemTags.encrypt(item, tags, keys.getTagNameKey(), keys.getTagValueKey(), keys.getTagsHmacKey());
-        encryptedDao.create(itemTags.getEncrypted());
-        plaintextDao.create(itemTags.getPlaintext());
+        writer.execute(upsertTags(encryptTags(id, tags)));
     }
 
+    /**
+     * Delete the tags with the names in <code>tags</code> from a record.
+     */
     public void deleteRecordTags(WalletRecord record, Map<String, String> tags) throws SodiumException {
 
-        Item item = findItem(record.getType(), record.getName());
+        Integer id = findItemId(record.getType(), record.getName());
 
-        if(item == null){
+        if(id == null){
             return;
         }
 
-        ItemTags itemTags = new ItemTags();
-        itemTags.encrypt(item, tags, keys.getTagNameKey(), keys.getTagValueKey(), keys.getTagsHmacKey());
-        encryptedDao.delete(itemTags.getEncrypted());
-        plaintextDao.delete(itemTags.getPlaintext());
+        writer.execute(deleteTags(encryptTags(id, tags)));
     }
 
 
     public Item addRecord(WalletRecord record) throws SodiumException, PreexistingEntityException {
-        Item item = record.encrypt(keys);
-        long result = itemDao.create(item);
+        return addItem(encrypt(record));
+    }
 
-        if(result == 0){
-            throw new PreexistingEntityException("Item already exists");
-        }
+    /**
+     * Encrypts a record with the keys of this wallet without storing it,
+     * see {@link #addItem(Item)}.
+     */
+    public Item encrypt(WalletRecord record) throws SodiumException {
+        return record.encrypt(keys);
+    }
 
-        encryptedDao.create(item.getEncrypted());
-        plaintextDao.create(item.getPlaintext());
-        return item;
+    /**
+     * Stores a record already encrypted by {@link #encrypt(WalletRecord)}.
+     */
+    public Item addItem(Item item) throws PreexistingEntityException {
+        return writer.execute(insertItem(item));
     }
     
     public long count() {
         return itemDao.getCount();
     }
 
+    /**
+     * Number of records and value bytes per type, without reading the records.
+     */
+    public WalletStats stats() throws SodiumException {
+        return stats(findStats());
+    }
+
+    /**
+     * Number of records and value bytes of one type, without reading the records.
+     */
+    public WalletStats.Type stats(String type) throws SodiumException {
+        byte[] encryptedType = type == null ? new byte[0]
+                : Crypto.encryptAsSearchable(type.getBytes(), keys.getTypeKey(), keys.getItemHmacKey());
+        Stats stats = statsDao.queryForType(encryptedType);
+        return new WalletStats.Type(stats.getCount(), stats.getValueBytes());
+    }
+
     public void deleteRecord(WalletRecord record) {
         deleteRecord(record.getType(), record.getName());
     }
@@ -157,51 +204,61 @@ public class Wallet {
             return;
         }
 
-        encryptedDao.delete(item.getEncrypted());
-        plaintextDao.delete(item.getPlaintext());
-        itemDao.delete(item);
+        writer.execute(deleteItem(item));
     }
 
+    /**
+     * Replace the value of a record. Only the value and its key are written, the tags are neither
+     * read nor written.
+     */
     public void updateRecordValue(WalletRecord record, String value) throws SodiumException {
 
-        Item item = findItem(record.getType(), record.getName());
+        Integer id = findItemId(record.getType(), record.getName());
 
-        if(item == null){
+        if(id == null){
             return;
         }
 
-        ItemValue itemValue = new ItemValue(item);
-        itemValue = itemValue.encrypt(value.getBytes(), keys.getValueKey());
-        item.setValue(itemValue.getValue());
-        item.setKey(itemValue.getKey());
-        itemDao.update(item);
+        writer.execute(updateItem(id, encryptValue(value)));
     }
 
+    /**
+     * Replace the tags of a record. Only the tags that are added, changed or removed are written.
+     */
     public void updateRecordTags(WalletRecord record, Map<String, String> tags) throws SodiumException {
 
-        Item item = findItem(record.getType(), record.getName());
-        if(item == null){
+        Integer id = findItemId(record.getType(), record.getName());
+        if(id == null){
             return;
         }
 
-        Map<String, String> aggregated = new HashMap<>();
-        for(String element : tags.keySet()){
-            if(record.getTags().keySet().contains(element)){
-                aggregated.put(element, tags.get(element));
-            }
-        }
-
-        ItemTags itemTags = new ItemTags();
-        itemTags.encrypt(item, aggregated, keys.getTagNameKey(), keys.getTagValueKey(), keys.getTagsHmacKey());
-        encryptedDao.update(itemTags.getEncrypted());
-        plaintextDao.update(itemTags.getPlaintext());
+        writer.execute(replaceTags(id, encryptTags(id, tags)));
     }
 
     public String getId() {
         return id;
     }
 
-    private Item findItem(String type, String name){
+    /**
+     * Stop the writer once pending mutations are committed. The wallet cannot be changed after.
+     */
+    public void close() {
+        writer.close();
+    }
+
+    /**
+     * Wait until the mutations pending at {@link #close()} are committed, before the database
+     * of the wallet is closed.
+     *
+     * @return true if they are, false if the timeout elapsed first
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return writer.awaitTermination(timeout, unit);
+    }
+
+    // Reads, run on the calling thread or the io scheduler
+
+    Item findItem(String type, String name){
         Item item = null;
         try {
             byte[] encryptedType = type == null ? new byte[0]
@@ -215,4 +272,129 @@ public class Wallet {
         }
         return item;
     }
+
+    Integer findItemId(String type, String name) throws SodiumException {
+        byte[] encryptedType = type == null ? new byte[0]
+                : Crypto.encryptAsSearchable(type.getBytes(), keys.getTypeKey(), keys.getItemHmacKey());
+        byte[] encryptedName = name == null ? new byte[0]
+                : Crypto.encryptAsSearchable(name.getBytes(), keys.getNameKey(), keys.getItemHmacKey());
+        return itemDao.queryForId(encryptedType, encryptedName);
+    }
+
+    List<Item> findItems(String type) throws SodiumException {
+        byte[] encryptedType = type == null ? new byte[0]
+                : Crypto.encryptAsSearchable(type.getBytes(), keys.getTypeKey(), keys.getItemHmacKey());
+        return itemDao.queryForType(encryptedType);
+    }
+
+    List<Item> findAllItems() {
+        return itemDao.queryForAll();
+    }
+
+    List<Item> findItems(int id, int limit) {
+        return itemDao.queryForBatch(id, limit);
+    }
+
+    Metadata findMetadata(int id) {
+        return metadataDao.getMetadata(id);
+    }
+
+    List<Stats> findStats() {
+        return statsDao.queryForAll();
+    }
+
+    // Crypto, run on the calling thread or the crypto scheduler
+
+    WalletRecord decrypt(Item item) throws SodiumException {
+        return new WalletRecord().decrypt(item, keys);
+    }
+
+    WalletStats stats(List<Stats> stats) throws SodiumException {
+        Map<String, WalletStats.Type> types = new HashMap<>();
+        for (Stats type : stats) {
+            String name = new String(Crypto.decryptMerged(type.getType(), keys.getTypeKey()));
+            types.put(name, new WalletStats.Type(type.getCount(), type.getValueBytes()));
+        }
+        return new WalletStats(types);
+    }
+
+    ItemDao.Update encryptValue(String value) throws SodiumException {
+        ItemValue itemValue = new ItemValue().encrypt(value.getBytes(), keys.getValueKey());
+        return new ItemDao.Update().value(itemValue.getValue(), itemValue.getKey());
+    }
+
+    ItemTags encryptTags(int id, Map<String, String> tags) throws SodiumException {
+        ItemTags itemTags = new ItemTags();
+        itemTags.encrypt(id, tags, keys.getTagNameKey(), keys.getTagValueKey(), keys.getTagsHmacKey());
+        return itemTags;
+    }
+
+    // Mutations, run by the writer
+
+    DatabaseWriter writer() {
+        return writer;
+    }
+
+    Mutation<Item, PreexistingEntityException> insertItem(Item item) {
+        return () -> {
+            // Stores the tags as well
+            long result = itemDao.create(item);
+
+            if(result == -1){
+                throw new PreexistingEntityException("Item already exists");
+            }
+            return item;
+        };
+    }
+
+    Mutation<Integer, RuntimeException> updateItem(int id, ItemDao.Update update) {
+        return () -> itemDao.update(id, update);
+    }
+
+    Mutation<Integer, RuntimeException> deleteItem(Item item) {
+        // Deletes the tags as well
+        return () -> itemDao.delete(item);
+    }
+
+    /**
+     * Write items encrypted again with other keys, with the progress of the rotation.
+     */
+    Mutation<Integer, RuntimeException> rekeyItems(List<Item> items, Metadata rekey) {
+        return () -> {
+            int result = 0;
+            for (Item item : items) {
+                result += itemDao.update(item.getId(), new ItemDao.Update()
+                        .type(item.getType())
+                        .name(item.getName())
+                        .value(item.getValue(), item.getKey()));
+                // The names of the tags change with the keys
+                encryptedDao.replace(item.getId(), item.getEncrypted());
+                plaintextDao.replace(item.getId(), item.getPlaintext());
+            }
+            metadataDao.put(rekey);
+            return result;
+        };
+    }
+
+    /**
+     * Store the keys of the wallet, ending a rotation if one is in progress.
+     */
+    Mutation<Boolean, RuntimeException> putKeys(Metadata keys) {
+        return () -> {
+            metadataDao.put(keys);
+            return metadataDao.delete(MetadataDao.REKEY) > 0;
+        };
+    }
+
+    Mutation<Long, RuntimeException> upsertTags(ItemTags itemTags) {
+        return () -> encryptedDao.upsert(itemTags.getEncrypted()) + plaintextDao.upsert(itemTags.getPlaintext());
+    }
+
+    Mutation<Integer, RuntimeException> replaceTags(int id, ItemTags itemTags) {
+        return () -> encryptedDao.replace(id, itemTags.getEncrypted()) + plaintextDao.replace(id, itemTags.getPlaintext());
+    }
+
+    Mutation<Integer, RuntimeException> deleteTags(ItemTags itemTags) {
+        return () -> encryptedDao.delete(itemTags.getEncrypted()) + plaintextDao.delete(itemTags.getPlaintext());
+    }
 }
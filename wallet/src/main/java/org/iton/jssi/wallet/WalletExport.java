@@ -26,12 +26,7 @@ package org.iton.jssi.wallet;
 import org.iton.jssi.wallet.io.IOConfig;
 import org.iton.jssi.wallet.io.Writer;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 import io.reactivex.Observable;
-import io.reactivex.ObservableEmitter;
-import io.reactivex.ObservableOnSubscribe;
 
 /**
  *
@@ -46,25 +41,12 @@ class WalletExport {
         this.wallet = wallet;
     }
 
-    private class Emitter implements ObservableOnSubscribe<Integer> {
-
-        IOConfig config;
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-
-        Emitter(IOConfig config) {
-            this.config = config;
-        }
-
-        @Override
-        public void subscribe(ObservableEmitter<Integer> emitter)  {
-            executor.execute(new Writer(wallet, config, emitter));
-        }
-    }
-
+    /**
+     * Runs on the io scheduler of the wallet, the export only reads the database.
+     */
     Observable<Integer> export(IOConfig config) {
-        return Observable.create(new Emitter(config));
+        return Observable.<Integer>create(emitter -> new Writer(wallet, config, emitter).run())
+                .subscribeOn(wallet.rx().getSchedulers().io());
     }
 
 }
-    
-    
@@ -0,0 +1,524 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.wallet;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import org.iton.jssi.store.DatabaseHelper;
+import org.iton.jssi.store.MetadataDao;
+import org.iton.jssi.store.PreexistingEntityException;
+import org.iton.jssi.store.model.Metadata;
+import org.iton.jssi.wallet.crypto.KeyDerivationData;
+import org.iton.jssi.wallet.crypto.Keys;
+import org.iton.jssi.wallet.crypto.KeysMetadata;
+import org.libsodium.api.Crypto_auth_hmacsha256;
+import org.libsodium.jni.SodiumException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.subjects.CompletableSubject;
+
+/**
+ * Keeps many wallets open at once, each in its own database file named after the wallet id.
+ * <p>
+ * Every {@link #open} and {@link #create} leases the wallet to the caller until it calls
+ * {@link #release}. Wallets nobody leases are closed least recently used first when there are more
+ * than <code>maxOpen</code>, when their estimated memory goes over <code>memoryBudget</code>, and
+ * when unused for <code>idleTimeout</code>; leased wallets stay open even over those limits. The
+ * keys derived from the passphrase of a wallet outlive it, so opening it again does not derive
+ * them again. Wallets opened at the same time by several callers are opened, and their keys
+ * derived, once.
+ * <p>
+ * A wallet is closed only once the mutations queued on it are committed. The close methods and
+ * evictions return at once; the wait for the commit and the database close run on the thread
+ * of the manager that sweeps idle wallets. {@link #close(String)} and {@link #close()} close
+ * leased wallets as well.
+ *
+ * @author ITON Solutions
+ */
+public class WalletManager {
+
+    private static final String TAG = WalletManager.class.getName();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader KEYS_METADATA_READER = MAPPER.readerFor(KeysMetadata.class);
+
+    public static final int MAX_OPEN = 16;
+    public static final long IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+    public static final long MEMORY_BUDGET = 32L * 1024 * 1024;
+
+    // SQLite caches up to 2000 KiB of pages per connection by default
+    private static final long CACHE_BYTES = 2000L * 1024;
+    // Keys of closed wallets kept for each open one
+    private static final int KEYS_PER_WALLET = 4;
+    // Seconds a closing wallet may take to commit its queued mutations
+    private static final long CLOSE_TIMEOUT = 30;
+
+    private final Context context;
+    private final int maxOpen;
+    private final long idleTimeout;
+    private final long memoryBudget;
+    private final WalletSchedulers schedulers;
+    private final ScheduledExecutorService sweeper;
+    // Passphrases are compared by their hmac with a key of this manager
+    private final byte[] credentialKey;
+
+    private final LinkedHashMap<String, Entry> wallets = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, DerivedKeys> keys = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentHashMap<String, FutureTask<Entry>> opening = new ConcurrentHashMap<>();
+    private long memory;
+
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong derived = new AtomicLong();
+    private final AtomicLong deriveNanos = new AtomicLong();
+
+    public WalletManager(Context context) throws SodiumException {
+        this(context, MAX_OPEN, IDLE_TIMEOUT, MEMORY_BUDGET);
+    }
+
+    /**
+     * @param context
+     * @param maxOpen most wallets open at once
+     * @param idleTimeout milliseconds a wallet stays open unused
+     * @param memoryBudget bytes of page cache open wallets may use, estimated from their size
+     */
+    public WalletManager(Context context, int maxOpen, long idleTimeout, long memoryBudget) throws SodiumException {
+        this.context = context;
+        this.maxOpen = maxOpen;
+        this.idleTimeout = idleTimeout;
+        this.memoryBudget = memoryBudget;
+        this.schedulers = new WalletSchedulers();
+        this.credentialKey = Crypto_auth_hmacsha256.keygen();
+
+        ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, new WalletSchedulers.Factory("wallet-evict"));
+        long period = Math.max(1000, idleTimeout / 2);
+        sweeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        this.sweeper = sweeper;
+    }
+
+    /**
+     * Open a wallet, or get it if it is open already, and lease it until {@link #release}.
+     *
+     * @param credential id of the wallet and its passphrase
+     * @return the wallet
+     */
+    public Observable<Wallet> open(final WalletCredential credential) {
+        return Observable.fromCallable(() -> get(credential))
+                .subscribeOn(schedulers.crypto());
+    }
+
+    /**
+     * Create a new wallet with new keys and open it, leased until {@link #release}.
+     *
+     * @param credential id of the wallet and its passphrase
+     * @return the wallet
+     */
+    public Observable<Wallet> create(final WalletCredential credential) {
+        return Observable.fromCallable(() -> {
+            DatabaseHelper helper = new DatabaseHelper(database(credential.id), context);
+            try {
+                if (!helper.createTables()) {
+                    throw new PreexistingEntityException(String.format("Wallet %s already exists", credential.id));
+                }
+                KeyDerivationData keyDerivationData = new KeyDerivationData(credential.key);
+                Keys keys = new Keys().init();
+                KeysMetadata keysMetadata = new KeysMetadata(keys.serialize(derive(keyDerivationData)), keyDerivationData.getSalt());
+                new MetadataDao(helper).put(new Metadata(MetadataDao.KEYS, MAPPER.writeValueAsBytes(keysMetadata)));
+                putKeys(credential.id, new DerivedKeys(hash(credential.key), keysMetadata, keys));
+            } finally {
+                helper.close();
+            }
+            return get(credential);
+        }).subscribeOn(schedulers.crypto());
+    }
+
+    /**
+     * Return a wallet leased by {@link #open} or {@link #create}. Once nobody leases it, it may
+     * be evicted.
+     *
+     * @param wallet
+     */
+    public synchronized void release(Wallet wallet) {
+        Entry entry = wallets.get(wallet.getId());
+        // A wallet closed already is not in the map any more
+        if (entry != null && entry.wallet == wallet && entry.leases > 0) {
+            entry.leases--;
+            entry.used = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Close a wallet if it is open, leased or not. Its keys are forgotten as well.
+     *
+     * @param id
+     * @return Completable that completes once the database of the wallet is closed
+     */
+    public Completable close(String id) {
+        Entry entry;
+        synchronized (this) {
+            entry = wallets.remove(id);
+            keys.remove(id);
+            if (entry != null) {
+                memory -= entry.memory;
+            }
+        }
+        if (entry == null) {
+            return Completable.complete();
+        }
+        entry.close();
+        return entry.closed.hide();
+    }
+
+    /**
+     * Close every wallet and stop the schedulers they run on. The databases are closed in the
+     * background once their mutations are committed.
+     */
+    public void close() {
+        List<Entry> closing;
+        synchronized (this) {
+            closing = new ArrayList<>(wallets.values());
+            wallets.clear();
+            keys.clear();
+            memory = 0;
+        }
+        for (Entry entry : closing) {
+            entry.close();
+        }
+        // Stops the idle sweep, the closes queued above still run
+        sweeper.shutdown();
+        schedulers.close();
+        Log.d(TAG, toString());
+    }
+
+    public WalletSchedulers getSchedulers() {
+        return schedulers;
+    }
+
+    public synchronized int getOpen() {
+        return wallets.size();
+    }
+
+    /**
+     * @return estimated page cache of the open wallets, in bytes
+     */
+    public synchronized long getMemory() {
+        return memory;
+    }
+
+    /**
+     * @return wallets opened from their database file
+     */
+    public long getOpened() {
+        return opened.get();
+    }
+
+    /**
+     * @return opens of a wallet that was open already
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return opens that waited for another open of the same wallet
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getEvicted() {
+        return evicted.get();
+    }
+
+    /**
+     * @return keys derived from a passphrase
+     */
+    public long getDerived() {
+        return derived.get();
+    }
+
+    /**
+     * @return mean time to derive keys from a passphrase, in milliseconds
+     */
+    public long getAverageDerive() {
+        long count = derived.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(deriveNanos.get() / count);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WalletManager: open=%d memory=%d opened=%d hits=%d coalesced=%d evicted=%d derived=%d derive=%d ms",
+                getOpen(), getMemory(), getOpened(), getHits(), getCoalesced(), getEvicted(),
+                getDerived(), getAverageDerive());
+    }
+
+    private Wallet get(WalletCredential credential) throws Exception {
+        byte[] hash = hash(credential.key);
+
+        while (true) {
+            synchronized (this) {
+                Entry entry = wallets.get(credential.id);
+                if (entry != null) {
+                    check(entry, hash);
+                    entry.leases++;
+                    entry.used = System.currentTimeMillis();
+                    hits.incrementAndGet();
+                    return entry.wallet;
+                }
+            }
+
+            FutureTask<Entry> task = new FutureTask<>(() -> load(credential, hash));
+            FutureTask<Entry> running = opening.putIfAbsent(credential.id, task);
+            boolean loaded = running == null;
+            if (loaded) {
+                running = task;
+                try {
+                    task.run();
+                } finally {
+                    opening.remove(credential.id, task);
+                }
+            } else {
+                coalesced.incrementAndGet();
+            }
+
+            Entry entry;
+            try {
+                entry = running.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+            if (loaded) {
+                // Loaded with its first lease taken
+                return entry.wallet;
+            }
+            synchronized (this) {
+                // Unless closed in the meantime, then open it again
+                if (wallets.get(credential.id) == entry) {
+                    check(entry, hash);
+                    entry.leases++;
+                    return entry.wallet;
+                }
+            }
+        }
+    }
+
+    private Entry load(WalletCredential credential, byte[] hash) throws Exception {
+        DatabaseHelper helper = new DatabaseHelper(database(credential.id), context);
+        try {
+            MetadataDao metadataDao = new MetadataDao(helper);
+            if (metadataDao.getMetadata(MetadataDao.REKEY) != null) {
+                throw new IllegalStateException("Wallet rekey not finished");
+            }
+            KeysMetadata keysMetadata = KEYS_METADATA_READER.readValue(metadataDao.getMetadata(MetadataDao.KEYS).getValue());
+
+            DerivedKeys derivedKeys;
+            synchronized (this) {
+                derivedKeys = keys.get(credential.id);
+            }
+            // Derived again for another passphrase, or keys changed by a rekey
+            if (derivedKeys == null || !Arrays.equals(derivedKeys.hash, hash) || !derivedKeys.metadata.equals(keysMetadata)) {
+                KeyDerivationData keyDerivationData = new KeyDerivationData(credential.key, keysMetadata);
+                Keys keys = new Keys().deserialize(keysMetadata.getKeys(), derive(keyDerivationData));
+                derivedKeys = new DerivedKeys(hash, keysMetadata, keys);
+                putKeys(credential.id, derivedKeys);
+            }
+
+            Entry entry = new Entry(new Wallet(credential.id, derivedKeys.keys, helper, schedulers), helper, hash,
+                    Math.min(CACHE_BYTES, new File(WalletConstants.WALLET_DIR + database(credential.id)).length()));
+            // Leased to the caller before anything can evict it
+            entry.leases = 1;
+            opened.incrementAndGet();
+
+            List<Entry> evicting;
+            synchronized (this) {
+                wallets.put(credential.id, entry);
+                memory += entry.memory;
+                evicting = evict();
+            }
+            for (Entry evict : evicting) {
+                evict.close();
+            }
+            return entry;
+        } catch (Exception e) {
+            helper.close();
+            throw e;
+        }
+    }
+
+    private byte[] derive(KeyDerivationData keyDerivationData) throws SodiumException {
+        long started = System.nanoTime();
+        byte[] masterKey = keyDerivationData.deriveMasterKey();
+        deriveNanos.addAndGet(System.nanoTime() - started);
+        derived.incrementAndGet();
+        return masterKey;
+    }
+
+    private synchronized void putKeys(String id, DerivedKeys derivedKeys) {
+        keys.put(id, derivedKeys);
+        Iterator<Map.Entry<String, DerivedKeys>> iterator = keys.entrySet().iterator();
+        while (keys.size() > maxOpen * KEYS_PER_WALLET && iterator.hasNext()) {
+            String eldest = iterator.next().getKey();
+            if (!wallets.containsKey(eldest)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Called holding the lock, the wallets are closed after releasing it
+    private List<Entry> evict() {
+        List<Entry> evicting = new ArrayList<>();
+        Iterator<Entry> iterator = wallets.values().iterator();
+        while ((wallets.size() > maxOpen || (memory > memoryBudget && wallets.size() > 1)) && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.leases > 0) {
+                continue;
+            }
+            iterator.remove();
+            memory -= entry.memory;
+            evicting.add(entry);
+        }
+        evicted.addAndGet(evicting.size());
+        return evicting;
+    }
+
+    private void evictIdle() {
+        List<Entry> evicting = new ArrayList<>();
+        long idle = System.currentTimeMillis() - idleTimeout;
+        synchronized (this) {
+            Iterator<Entry> iterator = wallets.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.leases == 0 && entry.used < idle) {
+                    iterator.remove();
+                    memory -= entry.memory;
+                    evicting.add(entry);
+                }
+            }
+        }
+        evicted.addAndGet(evicting.size());
+        for (Entry entry : evicting) {
+            entry.close();
+        }
+    }
+
+    private void check(Entry entry, byte[] hash) throws SodiumException {
+        if (!Arrays.equals(entry.hash, hash)) {
+            throw new SodiumException("Invalid wallet credential");
+        }
+    }
+
+    private byte[] hash(String passphrase) throws SodiumException {
+        return Crypto_auth_hmacsha256.hmacsha256(passphrase.getBytes(), credentialKey);
+    }
+
+    private static String database(String id) {
+        return id + ".db";
+    }
+
+    private class Entry {
+
+        private final Wallet wallet;
+        private final DatabaseHelper helper;
+        private final byte[] hash;
+        private final long memory;
+        private final CompletableSubject closed = CompletableSubject.create();
+        private volatile long used = System.currentTimeMillis();
+        // Guarded by the manager
+        private int leases;
+
+        Entry(Wallet wallet, DatabaseHelper helper, byte[] hash, long memory) {
+            this.wallet = wallet;
+            this.helper = helper;
+            this.hash = hash;
+            this.memory = memory;
+        }
+
+        // Returns once the writer is told to stop, the sweeper waits for it
+        void close() {
+            wallet.close();
+            try {
+                sweeper.execute(this::finish);
+            } catch (RejectedExecutionException e) {
+                // Only after the manager is closed
+                new WalletSchedulers.Factory("wallet-close").newThread(this::finish).start();
+            }
+        }
+
+        private void finish() {
+            try {
+                // The queued mutations, also those submitted through RxWallet, need the database
+                if (!wallet.awaitTermination(CLOSE_TIMEOUT, TimeUnit.SECONDS)) {
+                    Log.e(TAG, String.format("Error: %s", "Wallet still writing, database left open: " + wallet.getId()));
+                    closed.onError(new IllegalStateException("Wallet still writing: " + wallet.getId()));
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Log.e(TAG, String.format("Error: %s", "Interrupted closing wallet, database left open: " + wallet.getId()));
+                closed.onError(e);
+                return;
+            }
+            helper.close();
+            Log.d(TAG, String.format("Wallet closed: id=%s", wallet.getId()));
+            closed.onComplete();
+        }
+    }
+
+    private static class DerivedKeys {
+
+        private final byte[] hash;
+        private final KeysMetadata metadata;
+        private final Keys keys;
+
+        DerivedKeys(byte[] hash, KeysMetadata metadata, Keys keys) {
+            this.hash = hash;
+            this.metadata = metadata;
+            this.keys = keys;
+        }
+    }
+}
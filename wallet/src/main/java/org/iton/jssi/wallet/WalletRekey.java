@@ -0,0 +1,223 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.wallet;
+
+import android.util.Log;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import org.iton.jssi.store.MetadataDao;
+import org.iton.jssi.store.model.Encrypted;
+import org.iton.jssi.store.model.Item;
+import org.iton.jssi.store.model.Metadata;
+import org.iton.jssi.store.model.Plaintext;
+import org.iton.jssi.wallet.crypto.Crypto;
+import org.iton.jssi.wallet.crypto.KeyDerivationData;
+import org.iton.jssi.wallet.crypto.Keys;
+import org.iton.jssi.wallet.crypto.KeysMetadata;
+import org.iton.jssi.wallet.crypto.RekeyMetadata;
+import org.libsodium.jni.SodiumException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+
+/**
+ * Changes the passphrase of a wallet and optionally rotates the keys of its items, in place.
+ * <p>
+ * A new passphrase alone encrypts the same keys again in the metadata. A rotation encrypts every
+ * item and its tags again in batches: the items of a batch are encrypted in parallel on the crypto
+ * scheduler and written in one transaction with the id of the last of them, so a rotation that
+ * stops is resumed from there.
+ *
+ * @author ITON Solutions
+ */
+class WalletRekey {
+
+    private static final String TAG = WalletRekey.class.getName();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader REKEY_METADATA_READER = MAPPER.readerFor(RekeyMetadata.class);
+
+    // Items per transaction
+    private static final int BATCH = 256;
+
+    private final Wallet wallet;
+    private final Keys keys;
+
+    /**
+     * @param wallet the wallet, not used by anyone else until the rekey completes
+     * @param keys the current keys of the wallet
+     */
+    WalletRekey(final Wallet wallet, final Keys keys) {
+        this.wallet = wallet;
+        this.keys = keys;
+    }
+
+    /**
+     * A rotation in progress is always resumed, whatever <code>rotateItemKeys</code>, and must be
+     * given the passphrase it started with.
+     *
+     * @param passphrase the new passphrase
+     * @param rotateItemKeys encrypt the items with new keys as well
+     * @return the number of items encrypted with the new keys so far, none if only the passphrase
+     * changes
+     */
+    Observable<Integer> rekey(String passphrase, boolean rotateItemKeys) {
+        return Observable.<Integer>create(emitter -> {
+            try {
+                run(passphrase, rotateItemKeys, emitter);
+                emitter.onComplete();
+            } catch (Exception e) {
+                Log.e(TAG, String.format("Error: %s", e.getMessage()));
+                emitter.onError(e);
+            }
+        }).subscribeOn(wallet.rx().getSchedulers().io());
+    }
+
+    /**
+     * Stop the writer of the wallet.
+     */
+    void close() {
+        wallet.close();
+    }
+
+    private void run(String passphrase, boolean rotateItemKeys, ObservableEmitter<Integer> emitter) throws Exception {
+
+        Metadata pending = wallet.findMetadata(MetadataDao.REKEY);
+
+        if (pending == null && !rotateItemKeys) {
+            KeyDerivationData keyDerivationData = new KeyDerivationData(passphrase);
+            KeysMetadata keysMetadata = new KeysMetadata(keys.serialize(keyDerivationData.deriveMasterKey()), keyDerivationData.getSalt());
+            wallet.writer().execute(wallet.putKeys(new Metadata(MetadataDao.KEYS, MAPPER.writeValueAsBytes(keysMetadata))));
+            Log.d(TAG, "Wallet passphrase changed");
+            return;
+        }
+
+        RekeyMetadata rekey;
+        final Keys next;
+
+        if (pending == null) {
+            KeyDerivationData keyDerivationData = new KeyDerivationData(passphrase);
+            next = new Keys().init();
+            rekey = new RekeyMetadata(next.serialize(keyDerivationData.deriveMasterKey()), keyDerivationData.getSalt(), 0);
+            wallet.writer().execute(wallet.rekeyItems(Collections.<Item>emptyList(), metadata(rekey)));
+        } else {
+            rekey = REKEY_METADATA_READER.readValue(pending.getValue());
+            KeyDerivationData keyDerivationData = new KeyDerivationData(passphrase, rekey.toKeysMetadata());
+            // Fails unless the passphrase is the one the rotation started with
+            next = new Keys().deserialize(rekey.getKeys(), keyDerivationData.deriveMasterKey());
+            Log.d(TAG, String.format("Resume wallet rekey after item %d", rekey.getItemId()));
+        }
+
+        WalletSchedulers.Pool pool = wallet.rx().getSchedulers().getCryptoPool();
+        int count = 0;
+
+        List<Item> items;
+        while (!(items = wallet.findItems(rekey.getItemId(), BATCH)).isEmpty()) {
+            if (emitter.isDisposed()) {
+                // Resumed by the next rekey
+                return;
+            }
+
+            List<Callable<Item>> tasks = new ArrayList<>(items.size());
+            for (final Item item : items) {
+                tasks.add(() -> rekey(item, keys, next));
+            }
+
+            List<Item> rekeyed = new ArrayList<>(items.size());
+            for (Future<Item> future : pool.invokeAll(tasks)) {
+                rekeyed.add(get(future));
+            }
+
+            rekey = rekey.at(items.get(items.size() - 1).getId());
+            wallet.writer().execute(wallet.rekeyItems(rekeyed, metadata(rekey)));
+
+            count += items.size();
+            emitter.onNext(count);
+        }
+
+        wallet.writer().execute(wallet.putKeys(new Metadata(MetadataDao.KEYS, MAPPER.writeValueAsBytes(rekey.toKeysMetadata()))));
+        Log.d(TAG, String.format("Wallet rekey done, %d items", count));
+    }
+
+    private static Metadata metadata(RekeyMetadata rekey) throws Exception {
+        return new Metadata(MetadataDao.REKEY, MAPPER.writeValueAsBytes(rekey));
+    }
+
+    private static Item get(Future<Item> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Encrypt an item and its tags with other keys. The value keeps its own key, only that key is
+     * encrypted again.
+     */
+    static Item rekey(Item item, Keys from, Keys to) throws SodiumException {
+
+        Item rekeyed = new Item(item.getId(),
+                searchable(item.getType(), from.getTypeKey(), to.getTypeKey(), to.getItemHmacKey()),
+                searchable(item.getName(), from.getNameKey(), to.getNameKey(), to.getItemHmacKey()),
+                item.getValue(),
+                Crypto.encryptAsNotSearchable(Crypto.decryptMerged(item.getKey(), from.getValueKey()), to.getValueKey()));
+
+        List<Encrypted> encrypted = new ArrayList<>();
+        for (Encrypted tag : item.getEncrypted()) {
+            encrypted.add(new Encrypted(item.getId(),
+                    searchable(tag.getName(), from.getTagNameKey(), to.getTagNameKey(), to.getTagsHmacKey()),
+                    searchable(tag.getValue(), from.getTagValueKey(), to.getTagValueKey(), to.getTagsHmacKey())));
+        }
+
+        List<Plaintext> plaintext = new ArrayList<>();
+        for (Plaintext tag : item.getPlaintext()) {
+            plaintext.add(new Plaintext(item.getId(),
+                    searchable(tag.getName(), from.getTagNameKey(), to.getTagNameKey(), to.getTagsHmacKey()),
+                    tag.getValue()));
+        }
+
+        rekeyed.setEncrypted(encrypted);
+        rekeyed.setPlaintext(plaintext);
+        return rekeyed;
+    }
+
+    private static byte[] searchable(byte[] data, byte[] from, byte[] to, byte[] hmacKey) throws SodiumException {
+        // A record without type or name stores it empty
+        if (data.length == 0) {
+            return data;
+        }
+        return Crypto.encryptAsSearchable(Crypto.decryptMerged(data, from), to, hmacKey);
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.wallet;
+
+import android.util.Log;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * The schedulers wallet work runs on: {@link #io()} for SQLite queries and {@link #crypto()} for
+ * key derivation, encryption and decryption. Both are fixed size pools of named daemon threads,
+ * and report their queue depth and task latency.
+ *
+ * @author ITON Solutions
+ */
+public class WalletSchedulers {
+
+    private static final String TAG = WalletSchedulers.class.getName();
+
+    private static final long SHUTDOWN_TIMEOUT = 5;
+
+    private final Pool io;
+    private final Pool crypto;
+    private final Scheduler ioScheduler;
+    private final Scheduler cryptoScheduler;
+
+    public WalletSchedulers() {
+        // Android pools up to four read connections in WAL mode
+        this(Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors())),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public WalletSchedulers(int ioThreads, int cryptoThreads) {
+        this.io = new Pool("wallet-io", ioThreads);
+        this.crypto = new Pool("wallet-crypto", cryptoThreads);
+        this.ioScheduler = Schedulers.from(io);
+        this.cryptoScheduler = Schedulers.from(crypto);
+    }
+
+    public Scheduler io() {
+        return ioScheduler;
+    }
+
+    public Scheduler crypto() {
+        return cryptoScheduler;
+    }
+
+    public Pool getIoPool() {
+        return io;
+    }
+
+    public Pool getCryptoPool() {
+        return crypto;
+    }
+
+    public boolean isClosed() {
+        return io.isShutdown();
+    }
+
+    /**
+     * Finish the queued tasks and stop both pools. Returns at once, so it may be called on the
+     * main thread; a background thread waits a few seconds for running tasks and logs the metrics.
+     */
+    public void close() {
+        io.shutdown();
+        crypto.shutdown();
+        new Factory("wallet-shutdown").newThread(this::awaitTermination).start();
+    }
+
+    private void awaitTermination() {
+        try {
+            if (!io.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)
+                    || !crypto.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                Log.e(TAG, String.format("Error: %s", "Wallet tasks still running after shutdown"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Log.d(TAG, toString());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s", io, crypto);
+    }
+
+    /**
+     * A fixed size pool that times how long tasks wait in its queue and how long they run.
+     */
+    public static class Pool extends ThreadPoolExecutor {
+
+        private final String name;
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong runNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Pool(String name, int threads) {
+            super(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new Factory(name));
+            this.name = name;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            long queued = System.nanoTime();
+            super.execute(() -> {
+                long started = System.nanoTime();
+                try {
+                    command.run();
+                } finally {
+                    long wait = started - queued;
+                    waitNanos.addAndGet(wait);
+                    runNanos.addAndGet(System.nanoTime() - started);
+                    completed.incrementAndGet();
+                    long max = maxWaitNanos.get();
+                    while (wait > max && !maxWaitNanos.compareAndSet(max, wait)) {
+                        max = maxWaitNanos.get();
+                    }
+                }
+            });
+        }
+
+        /**
+         * @return tasks waiting for a thread
+         */
+        public int getQueueDepth() {
+            return getQueue().size();
+        }
+
+        public long getCompleted() {
+            return completed.get();
+        }
+
+        /**
+         * @return mean time tasks waited in the queue, in microseconds
+         */
+        public long getAverageWait() {
+            long count = completed.get();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(waitNanos.get() / count);
+        }
+
+        /**
+         * @return longest time a task waited in the queue, in microseconds
+         */
+        public long getMaxWait() {
+            return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get());
+        }
+
+        /**
+         * @return mean time tasks ran, in microseconds
+         */
+        public long getAverageRun() {
+            long count = completed.get();
+            return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(runNanos.get() / count);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: threads=%d active=%d queued=%d completed=%d wait=%d/%d us run=%d us",
+                    name, getPoolSize(), getActiveCount(), getQueueDepth(), getCompleted(),
+                    getAverageWait(), getMaxWait(), getAverageRun());
+        }
+    }
+
+    static class Factory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        Factory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
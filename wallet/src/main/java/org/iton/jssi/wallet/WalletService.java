@@ -27,6 +27,7 @@ import android.content.Context;
 import android.util.Log;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import org.iton.jssi.store.DatabaseHelper;
 import org.iton.jssi.store.MetadataDao;
@@ -48,14 +49,18 @@ import static org.libsodium.jni.SodiumConstants.CRYPTO_AEAD_CHACHA20POLY1305_IET
 public class WalletService {
     
     private static final String TAG = WalletService.class.getName();
+    private static final ObjectReader KEYS_METADATA_READER = new ObjectMapper().readerFor(KeysMetadata.class);
     
     private KeysMetadata keysMetadata;
     private KeyDerivationData keyDerivationData;
     private Keys keys;
-    private final WalletCredential credential;
+    private WalletCredential credential;
     private final Context context;
     private final DatabaseHelper helper;
-    private Wallet wallet;
+    private volatile Wallet wallet;
+    private WalletSchedulers schedulers;
+    // Guarded by this, set from closing the wallet for a rekey until the rekey ends
+    private boolean rekeying;
     
     public WalletService(final Context context, final WalletCredential credential, DatabaseHelper helper) {
         this.credential = credential;
@@ -66,16 +71,21 @@ public class WalletService {
     public Observable<Wallet> open(){
         if(wallet == null) {
             Log.d(TAG, "Open wallet");
+            // Key derivation runs on the crypto scheduler of the wallet
             return Observable.fromCallable(() -> {
-                Metadata metadata = new MetadataDao(helper).getMetadata(1);
-                keysMetadata = new ObjectMapper()
-                        .readerFor(KeysMetadata.class)
-                        .readValue(metadata.getValue());
-                keyDerivationData = new KeyDerivationData(credential.key, keysMetadata);
-                keys = new Keys().deserialize(keysMetadata.getKeys(), keyDerivationData.deriveMasterKey());
-                wallet = new Wallet(credential.id, keys, helper);
-                return wallet;
-            });
+                synchronized (this) {
+                    if (wallet == null) {
+                        if (rekeying) {
+                            throw new IllegalStateException("Wallet rekey in progress");
+                        }
+                        if (new MetadataDao(helper).getMetadata(MetadataDao.REKEY) != null) {
+                            throw new IllegalStateException("Wallet rekey not finished");
+                        }
+                        wallet = new Wallet(credential.id, deriveKeys(), helper, getSchedulers());
+                    }
+                    return wallet;
+                }
+            }).subscribeOn(getSchedulers().crypto());
         } else {
             Log.d(TAG, "Wallet already open");
             return Observable.just(wallet);
@@ -83,10 +93,65 @@ public class WalletService {
     }
 
     public Observable<Boolean> close(){
-        wallet = null;
+        Wallet closing;
+        WalletSchedulers stopping;
+        synchronized (this) {
+            closing = wallet;
+            stopping = schedulers;
+            wallet = null;
+            schedulers = null;
+        }
+        if (closing != null) {
+            closing.close();
+        }
+        if (stopping != null) {
+            stopping.close();
+        }
         return Observable.just(Boolean.TRUE);
     }
     
+    /**
+     * Change the passphrase of the wallet, and with <code>rotateItemKeys</code> encrypt every
+     * record with new keys as well. The wallet is closed during a rotation and opens with
+     * <code>newCredential</code> once it completes. A rotation that did not complete is resumed
+     * by calling again with the same credentials, the wallet does not open until then.
+     * {@link #open()} fails while a rekey runs, also before its first checkpoint is written.
+     *
+     * @param newCredential
+     * @param rotateItemKeys
+     * @return the number of records encrypted with the new keys so far
+     */
+    public Observable<Integer> rekey(final WalletCredential newCredential, final boolean rotateItemKeys) {
+        return Observable.fromCallable(() -> {
+            synchronized (this) {
+                if (rekeying) {
+                    throw new IllegalStateException("Wallet rekey in progress");
+                }
+                if (wallet != null) {
+                    wallet.close();
+                    wallet = null;
+                }
+                Keys current = deriveKeys();
+                WalletRekey rekey = new WalletRekey(new Wallet(credential.id, current, helper, getSchedulers()), current);
+                // Set before the lock is released, so open() cannot start a second writer on the old keys
+                rekeying = true;
+                return rekey;
+            }
+        }).subscribeOn(getSchedulers().crypto())
+                .flatMap((Function<WalletRekey, Observable<Integer>>) rekey -> rekey.rekey(newCredential.key, rotateItemKeys)
+                        .doOnComplete(() -> {
+                            synchronized (this) {
+                                credential = newCredential;
+                            }
+                        })
+                        .doFinally(() -> {
+                            rekey.close();
+                            synchronized (this) {
+                                rekeying = false;
+                            }
+                        }));
+    }
+
     public Observable<Integer> export(final IOConfig config) {
         return open().flatMap((Function<Wallet, Observable<Integer>>) wallet -> {
             WalletExport export = new WalletExport(wallet);
@@ -115,10 +180,31 @@ public class WalletService {
             DatabaseHelper helper = new DatabaseHelper("backup", context);
             new MetadataDao(helper).create(metadata);
             return Boolean.TRUE;
-        });
+        }).subscribeOn(getSchedulers().crypto());
+    }
+
+    // Called holding the lock of the service
+    private Keys deriveKeys() throws Exception {
+        Metadata metadata = new MetadataDao(helper).getMetadata(MetadataDao.KEYS);
+        keysMetadata = KEYS_METADATA_READER.readValue(metadata.getValue());
+        keyDerivationData = new KeyDerivationData(credential.key, keysMetadata);
+        keys = new Keys().deserialize(keysMetadata.getKeys(), keyDerivationData.deriveMasterKey());
+        return keys;
     }
 
     public Wallet getWallet() {
         return wallet;
     }
+
+    /**
+     * The schedulers of the wallet, started again after {@link #close()}.
+     *
+     * @return
+     */
+    public synchronized WalletSchedulers getSchedulers() {
+        if (schedulers == null) {
+            schedulers = new WalletSchedulers();
+        }
+        return schedulers;
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ *
+ *  The MIT License
+ *
+ *  Copyright 2019 ITON Solutions.
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ *
+ */
+package org.iton.jssi.wallet;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Number of records and bytes of encrypted values per record type, read from counters the wallet
+ * keeps with each change rather than by scanning it. The bytes are those stored, a record value
+ * decrypts to a few bytes less.
+ *
+ * @author ITON Solutions
+ */
+public class WalletStats {
+
+    private final Map<String, Type> types;
+    private final long count;
+    private final long valueBytes;
+
+    WalletStats(Map<String, Type> types) {
+        long count = 0;
+        long valueBytes = 0;
+        for (Type type : types.values()) {
+            count += type.count;
+            valueBytes += type.valueBytes;
+        }
+        this.types = Collections.unmodifiableMap(types);
+        this.count = count;
+        this.valueBytes = valueBytes;
+    }
+
+    /**
+     * @return the statistics of each record type in the wallet
+     */
+    public Map<String, Type> getTypes() {
+        return types;
+    }
+
+    /**
+     * @param type record type
+     * @return the statistics of the type, zero if the wallet has no records of it
+     */
+    public Type getType(String type) {
+        Type stats = types.get(type);
+        return stats == null ? new Type(0, 0) : stats;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getValueBytes() {
+        return valueBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "WalletStats[ count=" + count + ", valueBytes=" + valueBytes + ", types=" + types + " ]";
+    }
+
+    public static class Type {
+
+        private final long count;
+        private final long valueBytes;
+
+        Type(long count, long valueBytes) {
+            this.count = count;
+            this.valueBytes = valueBytes;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getValueBytes() {
+            return valueBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Type[ count=" + count + ", valueBytes=" + valueBytes + " ]";
+        }
+    }
+}
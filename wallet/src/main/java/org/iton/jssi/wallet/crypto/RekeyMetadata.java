@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 ITON Solutions.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.iton.jssi.wallet.crypto;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * The new keys of a rotation in progress, encrypted with the master key of the new passphrase,
+ * and the id of the last item encrypted with them. Items with a greater id still use the keys of
+ * {@link KeysMetadata}.
+ *
+ * @author ITON Solutions
+ */
+@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
+public class RekeyMetadata {
+
+    @JsonProperty("keys")
+    @JsonSerialize(using = KeysSerializer.class)
+    private byte[] keys;
+
+    @JsonProperty("master_key_salt")
+    @JsonSerialize(using = KeysSerializer.class)
+    private byte[] masterKeySalt;
+
+    @JsonProperty("item_id")
+    private int itemId;
+
+    @JsonCreator
+    public RekeyMetadata(@JsonProperty("keys") byte[] keys, @JsonProperty("master_key_salt") byte[] masterKeySalt, @JsonProperty("item_id") int itemId) {
+        this.keys = keys;
+        this.masterKeySalt = masterKeySalt;
+        this.itemId = itemId;
+    }
+
+    public byte[] getKeys() {
+        return keys;
+    }
+
+    public byte[] getMasterKeySalt() {
+        return masterKeySalt;
+    }
+
+    public int getItemId() {
+        return itemId;
+    }
+
+    /**
+     * @param itemId id of the last item encrypted with the new keys
+     * @return the same keys at a later item
+     */
+    public RekeyMetadata at(int itemId) {
+        return new RekeyMetadata(keys, masterKeySalt, itemId);
+    }
+
+    /**
+     * @return the metadata of the new keys once every item uses them
+     */
+    public KeysMetadata toKeysMetadata() {
+        return new KeysMetadata(keys, masterKeySalt);
+    }
+}
@@ -60,7 +60,8 @@ public class Writer implements Runnable {
 
         try {
             File file = new File(config.path);
-            if (!file.mkdirs()) {
+            File directory = file.getParentFile();
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
                 Log.e(TAG, "Directory not created");
             }
 
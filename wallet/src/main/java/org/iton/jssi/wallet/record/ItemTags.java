@@ -61,18 +61,23 @@ public class ItemTags {
     }
 
     public void encrypt(Item item, Map<String, String> tags, byte[] tagNameKey, byte[] tagValueKey, byte[] tagsHmacKey) throws SodiumException{
+        // A new item gets its id, and its tags with it, when it is stored
+        encrypt(item.getId() == null ? 0 : item.getId(), tags, tagNameKey, tagValueKey, tagsHmacKey);
+    }
+
+    public void encrypt(int itemId, Map<String, String> tags, byte[] tagNameKey, byte[] tagValueKey, byte[] tagsHmacKey) throws SodiumException{
 
         for(String name : tags.keySet()) {
             if(name.startsWith("~")){
                 byte[] encryptedValue = tags.get(name).getBytes();
                 name = name.substring(1);
                 byte[] encryptedName  = Crypto.encryptAsSearchable(name.getBytes(), tagNameKey, tagsHmacKey);
-                plaintext.add(new Plaintext(item.getId(), encryptedName, encryptedValue));
+                plaintext.add(new Plaintext(itemId, encryptedName, encryptedValue));
             } else {
                 String value = tags.get(name);
                 byte[] encryptedName  = Crypto.encryptAsSearchable(name.getBytes(), tagNameKey, tagsHmacKey);
                 byte[] encryptedValue = Crypto.encryptAsSearchable(value.getBytes(), tagValueKey, tagsHmacKey);
-                encrypted.add(new Encrypted(item.getId(), encryptedName, encryptedValue));
+                encrypted.add(new Encrypted(itemId, encryptedName, encryptedValue));
             }
         }
     }
@@ -34,7 +34,7 @@ public class ItemValue {
     private byte[] value;
     private byte[] key;
     
-    ItemValue(){
+    public ItemValue(){
     }
 
     public ItemValue(Item item){
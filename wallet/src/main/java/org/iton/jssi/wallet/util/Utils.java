@@ -29,23 +29,40 @@ package org.iton.jssi.wallet.util;
  */
 public class Utils {
     
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
     public static String toHex(byte[] bytes) {
-        StringBuilder builder = new StringBuilder();
-        for (byte b : bytes) {
-            builder.append(String.format("%02x", b));
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            result[j++] = HEX[(bytes[i] >>> 4) & 0x0f];
+            result[j++] = HEX[bytes[i] & 0x0f];
         }
-        return builder.toString();
+        return new String(result);
     }
     
+    /**
+     * @throws IllegalArgumentException if the string is not valid hexadecimal data
+     */
     public static byte[] fromHex(String data) {
+        if ((data.length() & 1) != 0) {
+            throw new IllegalArgumentException(String.format("Invalid hex length %d", data.length()));
+        }
         byte[] result = new byte[data.length() / 2];
 
         for (int i = 0; i < result.length; i++) {
             int index = i * 2;
-            result[i] = Integer.valueOf(data.substring(index, index + 2), 0x10).byteValue();
+            result[i] = (byte) (digit(data, index) << 4 | digit(data, index + 1));
         }
         return result;
     }
+
+    private static int digit(String data, int index) {
+        int digit = Character.digit(data.charAt(index), 0x10);
+        if (digit < 0) {
+            throw new IllegalArgumentException(String.format("Invalid hex character '%c'", data.charAt(index)));
+        }
+        return digit;
+    }
         
     public static byte[] toBytes(int value) {
         byte[] result = new byte[4];